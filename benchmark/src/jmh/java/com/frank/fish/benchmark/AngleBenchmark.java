@@ -0,0 +1,61 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FishLayout.calculateAngle() 的耗时，即每次点击时求鱼转向角度的计算
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AngleBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // 每组 6 个数，依次为 O、A、B 三个点的坐标
+    private final float[] points = new float[BATCH_SIZE * 6];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * 1080;
+        }
+    }
+
+    @Benchmark
+    public float single() {
+        int i = cursor;
+        cursor = (i + 1) % BATCH_SIZE;
+        return angle(i * 6);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public float batch1k() {
+        float sum = 0;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            sum += angle(i * 6);
+        }
+        return sum;
+    }
+
+    private float angle(int offset) {
+        float[] p = points;
+        return FishMath.calculateAngle(p[offset], p[offset + 1], p[offset + 2], p[offset + 3],
+                p[offset + 4], p[offset + 5]);
+    }
+}
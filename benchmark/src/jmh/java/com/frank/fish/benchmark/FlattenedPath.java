@@ -0,0 +1,65 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishMath;
+
+/**
+ * 模拟 android.graphics.PathMeasure 的做法：构造时把三阶贝塞尔曲线细分成折线并累加长度，
+ * 查询时二分查找所在线段再线性插值。只用作基准测试的对照组。
+ */
+class FlattenedPath {
+
+    private static final int SEGMENTS = 64;
+
+    private final float[] xs = new float[SEGMENTS + 1];
+    private final float[] ys = new float[SEGMENTS + 1];
+    private final float[] distances = new float[SEGMENTS + 1];
+    private final float[] point = new float[2];
+
+    void set(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        float length = 0;
+        for (int i = 0; i <= SEGMENTS; i++) {
+            FishMath.cubicPoint(x0, y0, x1, y1, x2, y2, x3, y3, (float) i / SEGMENTS, point, 0);
+            xs[i] = point[0];
+            ys[i] = point[1];
+            if (i > 0) {
+                float dx = xs[i] - xs[i - 1];
+                float dy = ys[i] - ys[i - 1];
+                length += (float) Math.sqrt(dx * dx + dy * dy);
+            }
+            distances[i] = length;
+        }
+    }
+
+    float getLength() {
+        return distances[SEGMENTS];
+    }
+
+    /**
+     * 与 PathMeasure.getPosTan() 相同，pos 和 tan 都可以为 null
+     */
+    void getPosTan(float distance, float[] pos, float[] tan) {
+        int low = 0;
+        int high = SEGMENTS;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (distances[middle] < distance) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        float dx = xs[high] - xs[low];
+        float dy = ys[high] - ys[low];
+        float segment = distances[high] - distances[low];
+        float t = segment == 0 ? 0 : (distance - distances[low]) / segment;
+        if (pos != null) {
+            pos[0] = xs[low] + dx * t;
+            pos[1] = ys[low] + dy * t;
+        }
+        if (tan != null) {
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            tan[0] = length == 0 ? 1 : dx / length;
+            tan[1] = length == 0 ? 0 : dy / length;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.AquariumSimulation;
+import com.frank.fish.TouchLog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 无界面重放一段 {@link TouchLog}，纯 Java 实现，可以在没有 Android 的 CI 机器上运行。
+ * <p>
+ * 用 {@link AquariumSimulation#replay(TouchLog)} 按记录的步长和种子逐步推进，不等待墙上时间，每一步输出一行
+ * "步数 校验和"。给出期望的校验和文件时改为逐步比较，遇到第一个不一致的步数就报告并以非 0 状态退出，
+ * 用来发现模拟行为的回归；结束时在标准错误输出重放的耗时以及相对实时的倍数。
+ * <p>
+ * 用法：HeadlessReplay &lt;touch-log&gt; [expected-checksums]
+ */
+public class HeadlessReplay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: HeadlessReplay <touch-log> [expected-checksums]");
+            System.exit(2);
+        }
+        TouchLog log;
+        InputStream in = new FileInputStream(args[0]);
+        try {
+            log = TouchLog.readFrom(in);
+        } finally {
+            in.close();
+        }
+
+        long start = System.nanoTime();
+        long[] checksums = AquariumSimulation.replay(log);
+        long wallNanos = System.nanoTime() - start;
+
+        int exitCode = 0;
+        if (args.length == 2) {
+            int mismatch = AquariumSimulation.firstDivergence(read(new File(args[1])), checksums);
+            if (mismatch >= 0) {
+                System.err.println("Checksum mismatch at step " + mismatch);
+                exitCode = 1;
+            }
+        } else {
+            print(checksums, System.out);
+        }
+        double simulatedNanos = (double) checksums.length * log.getStepNanos();
+        System.err.println(String.format(Locale.US, "Replayed %d steps (%.2f s) in %.2f ms, %.1fx real time",
+                checksums.length, simulatedNanos / 1e9, wallNanos / 1e6, simulatedNanos / Math.max(1, wallNanos)));
+        System.exit(exitCode);
+    }
+
+    static void print(long[] checksums, PrintStream out) {
+        for (int i = 0; i < checksums.length; i++) {
+            out.println(i + " " + String.format(Locale.US, "%016x", checksums[i]));
+        }
+    }
+
+    /**
+     * 读取 {@link #print} 输出的文件，步数不连续时抛出 IOException
+     */
+    private static long[] read(File expected) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(expected));
+        try {
+            long[] checksums = new long[1024];
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.trim().split("\\s+");
+                if (Long.parseLong(fields[0]) != count) {
+                    throw new IOException("Expected step " + count + " but found " + fields[0]);
+                }
+                if (count == checksums.length) {
+                    checksums = Arrays.copyOf(checksums, count * 2);
+                }
+                checksums[count++] = Long.parseUnsignedLong(fields[1], 16);
+            }
+            return Arrays.copyOf(checksums, count);
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishKinematics;
+
+/**
+ * 引入三角函数表之前的骨架计算方式：每个点都用 double 精度的 Math.toRadians()、cos()、sin() 计算，
+ * 摆动量每帧重新计算。只用作基准测试的对照组，点的排列与 FishKinematics 相同。
+ */
+class MathPose {
+
+    final float[] points = new float[FishKinematics.POINT_COUNT * 2];
+
+    void compute(float middleX, float middleY, float fishMainAngle, float animatorValue,
+                 float frequency, float finsValue) {
+        float fishAngle = (float) (fishMainAngle + Math.sin(Math.toRadians(animatorValue)) * 10);
+        float segment1Angle = (float) (fishAngle + Math.cos(Math.toRadians(animatorValue * frequency * 1.5)) * 15);
+        float segment2Angle = (float) (fishAngle + Math.sin(Math.toRadians(animatorValue * frequency * 1.5)) * 25);
+        float edgeLength = (float) Math.abs(Math.sin(Math.toRadians(animatorValue * 1.5))
+                * FishKinematics.BIG_CIRCLE_RADIUS);
+
+        set(FishKinematics.HEAD, middleX, middleY, FishKinematics.BODY_LENGTH / 2, fishAngle);
+        fin(FishKinematics.LEFT_FIN_START, fishAngle, 110, 90, finsValue);
+        fin(FishKinematics.RIGHT_FIN_START, fishAngle, -110, -90, finsValue);
+
+        from(FishKinematics.BIG_CIRCLE, FishKinematics.HEAD, FishKinematics.BODY_LENGTH, fishAngle - 180);
+        segment(FishKinematics.BIG_CIRCLE, FishKinematics.SEGMENT1_UPPER_LEFT, FishKinematics.BIG_CIRCLE_RADIUS,
+                FishKinematics.MIDDLE_CIRCLE_RADIUS, FishKinematics.BIG_MIDDLE_CENTER_LENGTH, segment1Angle);
+        segment(FishKinematics.MIDDLE_CIRCLE, FishKinematics.SEGMENT2_UPPER_LEFT, FishKinematics.MIDDLE_CIRCLE_RADIUS,
+                FishKinematics.SMALL_CIRCLE_RADIUS, FishKinematics.MIDDLE_SMALL_CENTER_LENGTH, segment2Angle);
+
+        triangle(FishKinematics.BIG_TRIANGLE_LEFT, FishKinematics.FIND_TRIANGLE_LENGTH, edgeLength, segment2Angle);
+        triangle(FishKinematics.SMALL_TRIANGLE_LEFT, FishKinematics.FIND_TRIANGLE_LENGTH - 10, edgeLength - 20,
+                segment2Angle);
+
+        from(FishKinematics.BODY_UPPER_LEFT, FishKinematics.HEAD, FishKinematics.HEAD_RADIUS, fishAngle + 90);
+        from(FishKinematics.BODY_UPPER_RIGHT, FishKinematics.HEAD, FishKinematics.HEAD_RADIUS, fishAngle - 90);
+        from(FishKinematics.BODY_BOTTOM_LEFT, FishKinematics.BIG_CIRCLE, FishKinematics.BIG_CIRCLE_RADIUS, fishAngle + 90);
+        from(FishKinematics.BODY_BOTTOM_RIGHT, FishKinematics.BIG_CIRCLE, FishKinematics.BIG_CIRCLE_RADIUS, fishAngle - 90);
+        from(FishKinematics.BODY_CONTROL_LEFT, FishKinematics.HEAD, FishKinematics.BODY_LENGTH * 0.56f, fishAngle + 130);
+        from(FishKinematics.BODY_CONTROL_RIGHT, FishKinematics.HEAD, FishKinematics.BODY_LENGTH * 0.56f, fishAngle - 130);
+    }
+
+    private void fin(int start, float fishAngle, float startAngle, float controlAngle, float finsValue) {
+        from(start, FishKinematics.HEAD, FishKinematics.FIND_FINS_LENGTH, fishAngle + startAngle);
+        from(start + 2, start, FishKinematics.FINS_LENGTH, fishAngle - 180);
+        float crossLength = (float) (FishKinematics.FINS_LENGTH * 1.8f * Math.cos(Math.toRadians(70)));
+        from(start + 1, start, crossLength, fishAngle - 180);
+        float lineLength = (float) Math.abs(Math.tan(Math.toRadians(110)) * crossLength);
+        from(start + 1, start + 1, lineLength - finsValue, fishAngle + controlAngle);
+    }
+
+    private void segment(int big, int upperLeft, float bigRadius, float smallRadius, float centerLength, float angle) {
+        from(upperLeft + 4, big, centerLength, angle - 180);
+        from(upperLeft, big, bigRadius, angle + 90);
+        from(upperLeft + 1, big, bigRadius, angle - 90);
+        from(upperLeft + 2, upperLeft + 4, smallRadius, angle + 90);
+        from(upperLeft + 3, upperLeft + 4, smallRadius, angle - 90);
+    }
+
+    private void triangle(int left, float toEdgeMiddleLength, float edgeLength, float angle) {
+        from(left + 1, FishKinematics.MIDDLE_CIRCLE, toEdgeMiddleLength, angle - 180);
+        from(left, left + 1, edgeLength, angle + 90);
+        from(left + 1, left + 1, edgeLength, angle - 90);
+    }
+
+    private void from(int index, int start, float length, float angle) {
+        set(index, points[start * 2], points[start * 2 + 1], length, angle);
+    }
+
+    private void set(int index, float startX, float startY, float length, float angle) {
+        points[index * 2] = startX + (float) (Math.cos(Math.toRadians(angle)) * length);
+        points[index * 2 + 1] = startY + (float) (Math.sin(Math.toRadians(angle - 180)) * length);
+    }
+}
@@ -0,0 +1,89 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.ObstacleField;
+import com.frank.fish.PathPlanner;
+import com.frank.fish.SwimTrajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1080x1920 的鱼缸中随机摆放若干障碍物，一次重新规划的耗时，以及移动一个障碍物后增量重算距离场的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlannerBenchmark {
+
+    private static final float WIDTH = 1080;
+    private static final float HEIGHT = 1920;
+    private static final float CELL_SIZE = 32;
+    // 预先生成的起点、朝向和目标点的组数
+    private static final int QUERIES = 256;
+
+    @Param({"0", "8", "32"})
+    public int obstacleCount;
+
+    private ObstacleField field;
+    private PathPlanner planner;
+    private final SwimTrajectory trajectory = new SwimTrajectory();
+    // 每组依次为起点 x、y，朝向，目标点 x、y
+    private final float[] queries = new float[QUERIES * 5];
+    private int query;
+    private float moveX;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        field = new ObstacleField();
+        field.resize(WIDTH, HEIGHT, CELL_SIZE);
+        for (int i = 0; i < obstacleCount; i++) {
+            field.add(random.nextFloat() * WIDTH, random.nextFloat() * HEIGHT, 40 + random.nextFloat() * 80);
+        }
+        field.update();
+        planner = new PathPlanner(field);
+        // 起点只取离障碍物足够远的位置，与鱼实际所处的位置一致
+        for (int q = 0; q < QUERIES; ) {
+            float x = random.nextFloat() * WIDTH;
+            float y = random.nextFloat() * HEIGHT;
+            if (field.sample(x, y) < PathPlanner.CLEARANCE) {
+                continue;
+            }
+            int o = q * 5;
+            queries[o] = x;
+            queries[o + 1] = y;
+            queries[o + 2] = random.nextFloat() * 360;
+            queries[o + 3] = random.nextFloat() * WIDTH;
+            queries[o + 4] = random.nextFloat() * HEIGHT;
+            q++;
+        }
+    }
+
+    @Benchmark
+    public float plan() {
+        int o = query * 5;
+        query = (query + 1) % QUERIES;
+        planner.plan(queries[o], queries[o + 1], queries[o + 2], queries[o + 3], queries[o + 4], trajectory);
+        return trajectory.getLength();
+    }
+
+    @Benchmark
+    public float moveObstacle() {
+        if (obstacleCount == 0) {
+            return 0;
+        }
+        moveX = (moveX + CELL_SIZE) % WIDTH;
+        field.move(0, moveX, HEIGHT / 2);
+        field.update();
+        return field.getDistance(0, 0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishKinematics;
+import com.frank.fish.FishTrig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条鱼以及 1000 条鱼一批的骨架计算耗时，对照组为引入三角函数表之前的 Math 实现
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PoseBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final FishKinematics kinematics = new FishKinematics();
+    private final FishKinematics nearestKinematics = new FishKinematics(new FishTrig(4096, false));
+    private final MathPose mathPose = new MathPose();
+
+    private final float[] mainAngles = new float[BATCH_SIZE];
+    private final float[] animatorValues = new float[BATCH_SIZE];
+    private final float[] frequencies = new float[BATCH_SIZE];
+    private final float[] finsValues = new float[BATCH_SIZE];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mainAngles[i] = random.nextFloat() * 360 - 180;
+            animatorValues[i] = random.nextFloat() * 720;
+            frequencies[i] = random.nextBoolean() ? 1f : 3f;
+            finsValues[i] = random.nextFloat() * FishKinematics.HEAD_RADIUS * 2;
+        }
+    }
+
+    @Benchmark
+    public float singleFish() {
+        int i = next();
+        kinematics.compute(200, 200, mainAngles[i], animatorValues[i], frequencies[i], finsValues[i]);
+        return kinematics.points[0];
+    }
+
+    @Benchmark
+    public float singleFishNearestTable() {
+        int i = next();
+        nearestKinematics.compute(200, 200, mainAngles[i], animatorValues[i], frequencies[i], finsValues[i]);
+        return nearestKinematics.points[0];
+    }
+
+    @Benchmark
+    public float singleFishMath() {
+        int i = next();
+        mathPose.compute(200, 200, mainAngles[i], animatorValues[i], frequencies[i], finsValues[i]);
+        return mathPose.points[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public float batch1k() {
+        float sum = 0;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            kinematics.compute(200, 200, mainAngles[i], animatorValues[i], frequencies[i], finsValues[i]);
+            sum += kinematics.points[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public float batch1kMath() {
+        float sum = 0;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mathPose.compute(200, 200, mainAngles[i], animatorValues[i], frequencies[i], finsValues[i]);
+            sum += mathPose.points[0];
+        }
+        return sum;
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) % BATCH_SIZE;
+        return i;
+    }
+}
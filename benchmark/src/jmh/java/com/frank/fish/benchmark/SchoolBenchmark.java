@@ -0,0 +1,46 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishSchool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 鱼群单步模拟（含批量姿态角度计算）的耗时，鱼的密度保持不变，只改变数量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchoolBenchmark {
+
+    // 每条鱼平均占据的边长，单位 px
+    private static final float SPACING = 60f;
+
+    @Param({"100", "1000", "10000"})
+    public int fishCount;
+
+    private FishSchool school;
+
+    @Setup
+    public void setUp() {
+        school = new FishSchool();
+        float side = (float) Math.sqrt(fishCount) * SPACING;
+        school.setBounds(side, side);
+        school.spawn(fishCount, new Random(42));
+    }
+
+    @Benchmark
+    public float step() {
+        school.step(1 / 60f);
+        return school.getX(0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.SwimTrajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次游动（2 秒，60 帧每秒共 120 帧）中路径构建与逐帧采样位置、切线角度的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrajectoryBenchmark {
+
+    private static final int FRAMES_PER_SWIM = 120;
+    private static final int PATH_COUNT = 64;
+
+    // 每组 8 个数，依次为起点、两个控制点和终点
+    private final float[] curves = new float[PATH_COUNT * 8];
+    private final FlattenedPath flattenedPath = new FlattenedPath();
+    private final SwimTrajectory swimTrajectory = new SwimTrajectory();
+    private final float[] sample = new float[3];
+    private final float[] pos = new float[2];
+    private final float[] tan = new float[2];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < curves.length; i++) {
+            curves[i] = random.nextFloat() * 1080;
+        }
+        setFlattened(0);
+        setTrajectory(0);
+    }
+
+    /**
+     * 原先的做法：每帧先 getLength() 再 getPosTan()，并由 atan2 求出鱼头角度
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES_PER_SWIM)
+    public float flattenedSwim() {
+        setFlattened(nextCurve());
+        float sum = 0;
+        for (int frame = 1; frame <= FRAMES_PER_SWIM; frame++) {
+            float fraction = (float) frame / FRAMES_PER_SWIM;
+            flattenedPath.getPosTan(flattenedPath.getLength() * fraction, pos, tan);
+            sum += pos[0] + (float) Math.toDegrees(Math.atan2(-tan[1], tan[0]));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float flattenedSample() {
+        flattenedPath.getPosTan(flattenedPath.getLength() * 0.37f, pos, tan);
+        return pos[0] + (float) Math.toDegrees(Math.atan2(-tan[1], tan[0]));
+    }
+
+    /**
+     * 弧长参数化表：每次游动建一次表，之后每帧 O(1) 查表同时得到位置和角度
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES_PER_SWIM)
+    public float trajectorySwim() {
+        setTrajectory(nextCurve());
+        float sum = 0;
+        for (int frame = 1; frame <= FRAMES_PER_SWIM; frame++) {
+            swimTrajectory.sample((float) frame / FRAMES_PER_SWIM, sample);
+            sum += sample[0] + sample[2];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float trajectorySample() {
+        swimTrajectory.sample(0.37f, sample);
+        return sample[0] + sample[2];
+    }
+
+    private void setTrajectory(int curve) {
+        int o = curve * 8;
+        swimTrajectory.set(curves[o], curves[o + 1], curves[o + 2], curves[o + 3],
+                curves[o + 4], curves[o + 5], curves[o + 6], curves[o + 7]);
+    }
+
+    private void setFlattened(int curve) {
+        int o = curve * 8;
+        flattenedPath.set(curves[o], curves[o + 1], curves[o + 2], curves[o + 3],
+                curves[o + 4], curves[o + 5], curves[o + 6], curves[o + 7]);
+    }
+
+    private int nextCurve() {
+        int curve = cursor;
+        cursor = (curve + 1) % PATH_COUNT;
+        return curve;
+    }
+}
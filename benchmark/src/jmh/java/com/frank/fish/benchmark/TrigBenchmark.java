@@ -0,0 +1,65 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.FishTrig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 三角函数表与 Math.sin(Math.toRadians()) 的单次耗时对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrigBenchmark {
+
+    private static final int SAMPLE_COUNT = 1024;
+
+    @Param({"256", "4096", "65536"})
+    public int resolution;
+
+    @Param({"true", "false"})
+    public boolean interpolate;
+
+    private FishTrig trig;
+    private final float[] angles = new float[SAMPLE_COUNT];
+
+    @Setup
+    public void setUp() {
+        trig = new FishTrig(resolution, interpolate);
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            angles[i] = random.nextFloat() * 2160 - 1080;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public float table() {
+        float sum = 0;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            sum += trig.sin(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public float math() {
+        float sum = 0;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            sum += (float) Math.sin(Math.toRadians(angles[i]));
+        }
+        return sum;
+    }
+}
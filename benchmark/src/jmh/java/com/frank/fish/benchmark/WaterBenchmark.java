@@ -0,0 +1,64 @@
+package com.frank.fish.benchmark;
+
+import com.frank.fish.WaterSurface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 水面高度场单步推进和着色的耗时，网格依次对应 1080x1920 的屏幕上格子边长为 16、8、4、2 像素
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WaterBenchmark {
+
+    @Param({"68x120", "135x240", "270x480", "540x960"})
+    public String grid;
+
+    private WaterSurface surface;
+    private int[] pixels;
+
+    @Setup
+    public void setUp() {
+        int separator = grid.indexOf('x');
+        int columns = Integer.parseInt(grid.substring(0, separator));
+        int rows = Integer.parseInt(grid.substring(separator + 1));
+        surface = new WaterSurface(columns, rows);
+        pixels = new int[columns * rows];
+        disturb();
+    }
+
+    // 在网格中按下几处，让整个水面都有起伏
+    private void disturb() {
+        int columns = surface.getColumns();
+        int rows = surface.getRows();
+        float radius = Math.max(2, columns / 16f);
+        for (int i = 1; i <= 4; i++) {
+            surface.disturb(columns * i / 5f, rows * i / 5f, radius, 6f);
+        }
+    }
+
+    @Benchmark
+    public float step() {
+        if (surface.isCalm()) {
+            disturb();
+        }
+        surface.step();
+        return surface.getHeight(surface.getColumns() / 2, surface.getRows() / 2);
+    }
+
+    @Benchmark
+    public int shade() {
+        surface.shade(pixels);
+        return pixels[pixels.length / 2];
+    }
+}
@@ -0,0 +1,509 @@
+package com.frank.fish;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 渲染线程模式下的整个鱼缸：一条跟随触摸游动、绕开障碍物的鱼（或一个鱼群），触摸产生的波纹或水面，以及统计面板。
+ * <p>
+ * 与 FishLayout 的行为一致，但不依赖 View 和属性动画，所有状态都保存在 {@link AquariumSimulation} 中，
+ * 由渲染线程按帧推进并直接画到 Surface 的 Canvas 上。除了标明可以在任意线程调用的方法，其余方法都只能在
+ * 渲染线程中调用。Surface 销毁重建时本对象保留，鱼会从原来的位置和姿态继续游动。
+ * <p>
+ * 可以切换为固定步长推进，也可以把触摸输入录制成 {@link TouchLog}，之后用 {@link AquariumSimulation#replay(TouchLog)}
+ * 重放，命令行下用 benchmark 模块的 HeadlessReplay。障碍物的增删也会录制；水面只影响画面，不参与模拟，不录制。
+ */
+public class AquariumScene implements TouchQueue.Consumer {
+
+    private static final String TAG = "AquariumScene";
+
+    private final FishDrawable fishDrawable = new FishDrawable();
+    private final AquariumSimulation simulation;
+    private final Paint ripplePaint;
+    private final Paint obstaclePaint;
+    // 生成录制用的随机数种子
+    private final Random seedGenerator = new Random();
+    // 单条鱼游动时用来算鱼头位置，在那里留下尾迹
+    private final FishKinematics fishKinematics = new FishKinematics();
+
+    private final SchoolRenderer schoolRenderer = new SchoolRenderer();
+    // 渲染线程本身就不是主线程，鱼群的骨架点直接在这里算好
+    private final PoseSnapshot schoolPoses = new PoseSnapshot();
+    private final FishKinematics schoolKinematics = new FishKinematics();
+    // 由其它线程设置、渲染线程下一帧生效的鱼群数量
+    private volatile int requestedSchoolSize;
+    // 由其它线程设置、渲染线程下一帧生效的细节层级开关
+    private volatile boolean lodEnabled;
+    // 由其它线程设置、渲染线程下一帧生效的路径缓存容量和精灵缓存预算
+    private volatile int requestedDisplayListCapacity = SchoolRenderer.DEFAULT_DISPLAY_LIST_CAPACITY;
+    private volatile long requestedSpriteCacheBudget;
+    private long spriteCacheBudget;
+    // 由其它线程设置、渲染线程下一帧生效的固定步长，为 0 时按帧间隔推进
+    private volatile long requestedStepNanos;
+    // 由其它线程设置的录制文件，为 null 时不录制；渲染线程发现它变化时开始或结束录制
+    private volatile File requestedRecordingFile;
+    private File recordingFile;
+
+    // 其它线程增删障碍物的操作，类型为 TouchLog 中的障碍物事件，每个操作三个参数，渲染线程下一帧按顺序应用
+    private final Object obstacleLock = new Object();
+    private int[] obstacleOps = new int[8];
+    private float[] obstacleArgs = new float[8 * 3];
+    private int obstacleOpCount;
+
+    // 由其它线程设置、渲染线程下一帧生效的水面格子边长和颜色，格子边长为 0 时不创建水面，触摸仍然产生圆形波纹
+    private volatile float requestedWaterCellSize;
+    private volatile int waterColor = 0xff7ec8e3;
+    private WaterRenderer waterRenderer;
+    // 当前水面对应的格子边长、鱼缸大小和颜色
+    private float waterCellSize;
+    private int waterWidth;
+    private int waterHeight;
+    private int appliedWaterColor;
+
+    // 由其它线程设置、渲染线程下一帧生效的统计开关；统计对象只在渲染线程中写入
+    private volatile boolean requestedMetricsEnabled;
+    private volatile boolean requestedHudVisible;
+    private volatile float hudDensity = 1;
+    // 一帧的理想间隔，由主线程按屏幕刷新率设置，为 0 时使用默认值
+    private volatile long expectedFrameIntervalNanos;
+    private volatile FishMetrics metrics;
+    private MetricsHud metricsHud;
+
+    private int width;
+    private int height;
+
+    private volatile int backgroundColor = Color.WHITE;
+
+    public AquariumScene() {
+        this(new AquariumSimulation());
+    }
+
+    public AquariumScene(AquariumSimulation simulation) {
+        this.simulation = simulation;
+        ripplePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
+        ripplePaint.setStyle(Paint.Style.STROKE);
+        ripplePaint.setStrokeWidth(8);
+        obstaclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        obstaclePaint.setColor(0xff5d6b5a);
+    }
+
+    /**
+     * 可以在任意线程调用，下一帧生效
+     */
+    public void setSchoolSize(int size) {
+        requestedSchoolSize = Math.max(0, size);
+    }
+
+    /**
+     * 开启或关闭鱼群的自适应细节层级，可以在任意线程调用，下一帧生效
+     */
+    public void setLodEnabled(boolean enabled) {
+        lodEnabled = enabled;
+    }
+
+    /**
+     * 设置鱼群最多缓存多少条鱼的路径，为 0 时关闭。可以在任意线程调用，下一帧生效
+     */
+    public void setDisplayListCapacity(int capacity) {
+        requestedDisplayListCapacity = Math.max(0, capacity);
+    }
+
+    /**
+     * 设置鱼群精灵缓存的内存预算，为 0 时关闭。可以在任意线程调用，下一帧生效
+     */
+    public void setSpriteCacheBudget(long bytes) {
+        requestedSpriteCacheBudget = Math.max(0, bytes);
+    }
+
+    /**
+     * 鱼群精灵缓存，只用来读取命中次数等统计，计数在渲染线程中更新。未开启时为 null
+     */
+    @Nullable
+    public FishSpriteCache getSpriteCache() {
+        return schoolRenderer.getSpriteCache();
+    }
+
+    /**
+     * 设置固定步长，为 0 时按帧间隔推进。可以在任意线程调用，下一帧生效
+     */
+    public void setFixedStepNanos(long stepNanos) {
+        requestedStepNanos = Math.max(0, stepNanos);
+    }
+
+    /**
+     * 开始把触摸输入录制到 file，鱼缸会用新的随机数种子回到初始状态，没有设置固定步长时按 60Hz 推进。
+     * 可以在任意线程调用，下一帧生效
+     */
+    public void startRecording(File file) {
+        requestedRecordingFile = file;
+    }
+
+    /**
+     * 结束录制，渲染线程在下一帧把记录写入文件。可以在任意线程调用
+     */
+    public void stopRecording() {
+        requestedRecordingFile = null;
+    }
+
+    /**
+     * 增加一个圆形障碍物，下标按调用顺序分配，与 {@link ObstacleField#add} 相同。可以在任意线程调用，下一帧生效
+     */
+    public void addObstacle(float x, float y, float radius) {
+        enqueueObstacleOp(TouchLog.EVENT_OBSTACLE_ADD, x, y, radius);
+    }
+
+    /**
+     * 移除第 index 个障碍物，原来的最后一个障碍物改用 index 作为下标。可以在任意线程调用，下一帧生效
+     */
+    public void removeObstacle(int index) {
+        enqueueObstacleOp(TouchLog.EVENT_OBSTACLE_REMOVE, index, 0, 0);
+    }
+
+    /**
+     * 可以在任意线程调用，下一帧生效
+     */
+    public void clearObstacles() {
+        enqueueObstacleOp(TouchLog.EVENT_OBSTACLE_CLEAR, 0, 0, 0);
+    }
+
+    private void enqueueObstacleOp(int type, float first, float second, float third) {
+        synchronized (obstacleLock) {
+            if (obstacleOpCount == obstacleOps.length) {
+                obstacleOps = Arrays.copyOf(obstacleOps, obstacleOpCount * 2);
+                obstacleArgs = Arrays.copyOf(obstacleArgs, obstacleOpCount * 2 * 3);
+            }
+            obstacleOps[obstacleOpCount] = type;
+            obstacleArgs[obstacleOpCount * 3] = first;
+            obstacleArgs[obstacleOpCount * 3 + 1] = second;
+            obstacleArgs[obstacleOpCount * 3 + 2] = third;
+            obstacleOpCount++;
+        }
+    }
+
+    /**
+     * 障碍物的操作很少，持锁按顺序应用即可，录制时它们和触摸一样记在当前这一步之前
+     */
+    private void applyObstacleOps() {
+        synchronized (obstacleLock) {
+            for (int i = 0; i < obstacleOpCount; i++) {
+                int type = obstacleOps[i];
+                if (type == TouchLog.EVENT_OBSTACLE_ADD) {
+                    simulation.addObstacle(obstacleArgs[i * 3], obstacleArgs[i * 3 + 1], obstacleArgs[i * 3 + 2]);
+                } else if (type == TouchLog.EVENT_OBSTACLE_REMOVE) {
+                    simulation.removeObstacle((int) obstacleArgs[i * 3]);
+                } else {
+                    simulation.clearObstacles();
+                }
+            }
+            obstacleOpCount = 0;
+        }
+    }
+
+    /**
+     * 设置水面高度场每个格子的边长，大于 0 时开启，为 0 时关闭，触摸恢复为圆形波纹。可以在任意线程调用，下一帧生效
+     */
+    public void setWaterCellSize(float cellSize) {
+        requestedWaterCellSize = Math.max(0, cellSize);
+    }
+
+    /**
+     * 水面平静时的颜色，可以在任意线程调用，下一帧生效
+     */
+    public void setWaterColor(int color) {
+        waterColor = color;
+    }
+
+    /**
+     * 开启或关闭帧耗时统计，关闭时同时隐藏统计面板。可以在任意线程调用，下一帧生效
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (!enabled) {
+            requestedHudVisible = false;
+        }
+        requestedMetricsEnabled = enabled;
+    }
+
+    public boolean isMetricsEnabled() {
+        return requestedMetricsEnabled;
+    }
+
+    /**
+     * 显示或隐藏左上角的统计面板，显示时会自动开启统计。density 为屏幕密度，决定面板的文字大小。
+     * 可以在任意线程调用，下一帧生效
+     */
+    public void setMetricsHudVisible(boolean visible, float density) {
+        hudDensity = density;
+        if (visible) {
+            requestedMetricsEnabled = true;
+        }
+        requestedHudVisible = visible;
+    }
+
+    public boolean isMetricsHudVisible() {
+        return requestedHudVisible;
+    }
+
+    /**
+     * 设置一帧的理想间隔，用来判断掉帧，同时作为细节层级的帧预算。可以在任意线程调用，下一帧生效
+     */
+    public void setExpectedFrameIntervalNanos(long nanos) {
+        expectedFrameIntervalNanos = nanos;
+    }
+
+    /**
+     * 帧耗时统计，未开启时为 null。可以在任意线程读取，数值在渲染线程中更新，读到的可能不是同一帧的
+     */
+    @Nullable
+    public FishMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 把目前为止的统计结果写入文件，未开启统计时抛出 IllegalStateException。
+     * 只能在渲染线程中调用，或者在渲染线程没有运行时调用
+     */
+    public void dumpMetrics(File file) throws IOException {
+        FishMetrics metrics = this.metrics;
+        if (metrics == null) {
+            throw new IllegalStateException("Metrics are not enabled");
+        }
+        metrics.dump(file);
+    }
+
+    /**
+     * 可以在任意线程调用，下一帧生效
+     */
+    public void setBackgroundColor(int color) {
+        backgroundColor = color;
+    }
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        simulation.setSize(width, height);
+    }
+
+    @Override
+    public void onTouch(int action, float x, float y) {
+        // 开启水面时按下的位置激起水波，圆形波纹仍然参与模拟，只是不画出来
+        if (action == AquariumSimulation.ACTION_DOWN && waterRenderer != null) {
+            waterRenderer.touch(x, y);
+        }
+        simulation.onTouch(action, x, y);
+    }
+
+    /**
+     * 推进 deltaNanos 纳秒
+     */
+    public void step(long deltaNanos) {
+        updateMetrics();
+        FishMetrics metrics = this.metrics;
+        long start = 0;
+        if (metrics != null) {
+            metrics.recordFrameInterval(deltaNanos);
+            start = System.nanoTime();
+        }
+        simulation.setSchoolSize(requestedSchoolSize);
+        if (!simulation.isRecording()) {
+            long stepNanos = requestedStepNanos;
+            if (stepNanos != simulation.getStepNanos()) {
+                simulation.setStepNanos(stepNanos);
+            }
+        }
+        updateRecording();
+        applyObstacleOps();
+        updateSchoolRenderer(deltaNanos);
+        updateWater();
+        FishSchool school = simulation.getSchool();
+        if (school == null) {
+            simulation.advance(deltaNanos);
+        } else {
+            long schoolStart = metrics != null ? System.nanoTime() : 0;
+            simulation.advance(deltaNanos);
+            schoolPoses.fill(school.getSnapshot(), schoolKinematics);
+            if (metrics != null) {
+                metrics.recordStage(FishMetrics.STAGE_SCHOOL_STEP, System.nanoTime() - schoolStart);
+            }
+        }
+        if (waterRenderer != null) {
+            advanceWater(deltaNanos);
+        }
+        if (metrics != null) {
+            metrics.recordStage(FishMetrics.STAGE_TICK, System.nanoTime() - start);
+        }
+    }
+
+    private void updateRecording() {
+        File file = requestedRecordingFile;
+        if (file == recordingFile) {
+            return;
+        }
+        if (recordingFile != null) {
+            TouchLog log = simulation.stopRecording();
+            // 录制结束后恢复请求的步长
+            simulation.setStepNanos(requestedStepNanos);
+            save(log, recordingFile);
+        }
+        recordingFile = file;
+        if (file != null) {
+            simulation.startRecording(seedGenerator.nextLong());
+        }
+    }
+
+    /**
+     * 录制的数据很小，结束时在渲染线程中直接写入，只丢一帧
+     */
+    private static void save(TouchLog log, File file) {
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                log.writeTo(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save touch log to " + file, e);
+        }
+    }
+
+    private void updateSchoolRenderer(long deltaNanos) {
+        schoolRenderer.setDisplayListCapacity(requestedDisplayListCapacity);
+        long budget = requestedSpriteCacheBudget;
+        if (budget != spriteCacheBudget) {
+            spriteCacheBudget = budget;
+            schoolRenderer.setSpriteCacheBudget(budget);
+        }
+        LodController lod = schoolRenderer.getLodController();
+        if (lodEnabled != (lod != null)) {
+            lod = lodEnabled ? new LodController() : null;
+            schoolRenderer.setLodController(lod);
+        }
+        if (lod != null) {
+            long intervalNanos = expectedFrameIntervalNanos;
+            if (intervalNanos > 0) {
+                lod.setFrameBudgetNanos(intervalNanos);
+            }
+            lod.onFrame(deltaNanos);
+        }
+    }
+
+    /**
+     * 格子边长或鱼缸大小变化时重新创建水面
+     */
+    private void updateWater() {
+        float cellSize = requestedWaterCellSize;
+        if (cellSize != waterCellSize || width != waterWidth || height != waterHeight) {
+            waterCellSize = cellSize;
+            waterWidth = width;
+            waterHeight = height;
+            if (waterRenderer != null) {
+                waterRenderer.release();
+                waterRenderer = null;
+            }
+            if (cellSize > 0 && width > 0 && height > 0) {
+                waterRenderer = new WaterRenderer(width, height, cellSize);
+                appliedWaterColor = waterColor;
+                waterRenderer.setColor(appliedWaterColor);
+            }
+        }
+        if (waterRenderer != null && waterColor != appliedWaterColor) {
+            appliedWaterColor = waterColor;
+            waterRenderer.setColor(appliedWaterColor);
+        }
+    }
+
+    /**
+     * 单条鱼游动时在鱼头处留下尾迹，推进水面
+     */
+    private void advanceWater(long deltaNanos) {
+        if (simulation.getSchool() == null) {
+            SwimSimulation swim = simulation.getSwim();
+            fishKinematics.compute(swim.getX(), swim.getY(), swim.getHeading(), simulation.getAnimatorValue(),
+                    swim.getFrequency(), swim.getFinsValue());
+            waterRenderer.wake(fishKinematics.x(FishKinematics.HEAD), fishKinematics.y(FishKinematics.HEAD));
+        }
+        waterRenderer.advance(deltaNanos);
+    }
+
+    private void updateMetrics() {
+        boolean enabled = requestedMetricsEnabled;
+        boolean hudVisible = enabled && requestedHudVisible;
+        FishMetrics metrics = this.metrics;
+        if (enabled != (metrics != null)) {
+            metrics = enabled ? new FishMetrics() : null;
+            this.metrics = metrics;
+            fishDrawable.setMetrics(metrics);
+            metricsHud = null;
+        }
+        if (metrics != null && expectedFrameIntervalNanos > 0) {
+            metrics.setExpectedFrameIntervalNanos(expectedFrameIntervalNanos);
+        }
+        if (hudVisible != (metricsHud != null)) {
+            metricsHud = hudVisible ? new MetricsHud(metrics, hudDensity) : null;
+        }
+    }
+
+    public void draw(Canvas canvas) {
+        if (waterRenderer != null) {
+            waterRenderer.draw(canvas);
+        } else {
+            canvas.drawColor(backgroundColor);
+        }
+        ObstacleField obstacles = simulation.getObstacles();
+        for (int i = 0, count = obstacles.getCount(); i < count; i++) {
+            canvas.drawCircle(obstacles.getX(i), obstacles.getY(i), obstacles.getRadius(i), obstaclePaint);
+        }
+        if (waterRenderer == null) {
+            RipplePool ripplePool = simulation.getRipplePool();
+            for (int i = 0, count = ripplePool.getCount(); i < count; i++) {
+                ripplePaint.setAlpha(ripplePool.getAlpha(i));
+                canvas.drawCircle(ripplePool.getX(i), ripplePool.getY(i), ripplePool.getRadius(i), ripplePaint);
+            }
+        }
+        if (simulation.getSchool() != null) {
+            drawSchool(canvas);
+        } else {
+            drawFish(canvas);
+        }
+        // 统计面板画在最上面
+        if (metricsHud != null) {
+            metricsHud.draw(canvas);
+        }
+    }
+
+    private void drawSchool(Canvas canvas) {
+        FishMetrics metrics = this.metrics;
+        if (metrics == null) {
+            schoolRenderer.draw(canvas, schoolPoses);
+        } else {
+            long start = System.nanoTime();
+            schoolRenderer.draw(canvas, schoolPoses);
+            metrics.recordStage(FishMetrics.STAGE_SCHOOL_DRAW, System.nanoTime() - start);
+        }
+    }
+
+    private void drawFish(Canvas canvas) {
+        SwimSimulation swim = simulation.getSwim();
+        fishDrawable.setAnimatorValue(simulation.getAnimatorValue());
+        fishDrawable.setFishMainAngle(swim.getHeading());
+        fishDrawable.setFrequency(swim.getFrequency());
+        fishDrawable.setFinsValue(swim.getFinsValue());
+        PointF middlePoint = fishDrawable.getMiddlePoint();
+        int saveCount = canvas.save();
+        canvas.translate(swim.getX() - middlePoint.x, swim.getY() - middlePoint.y);
+        fishDrawable.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+}
@@ -0,0 +1,429 @@
+package com.frank.fish;
+
+import java.util.Random;
+
+/**
+ * 鱼缸的模拟部分：一条跟随触摸游动、绕开障碍物的鱼（或一个鱼群）以及触摸产生的波纹，纯 Java 实现。
+ * <p>
+ * AquariumScene 在渲染线程中用它推进并画出鱼缸，{@link #replay(TouchLog)} 在没有 Android 的机器上重放
+ * {@link TouchLog}（benchmark 模块的 HeadlessReplay 命令行工具就是调用它）。默认按调用方给出的时间间隔推进；设置了固定步长后，时间间隔先累加，再按步长整步推进，
+ * 触摸事件在下一步开始前生效。固定步长下模拟的结果只取决于随机数种子、初始条件以及每个事件在第几步之前发生，
+ * 与帧率和墙上时间无关，重放得到的每一步的 {@link #checksum()} 与录制时相同。
+ * <p>
+ * 所有方法都应在同一个线程中调用。
+ */
+public class AquariumSimulation implements TouchQueue.Consumer {
+
+    // 触摸事件的类型，与 MotionEvent 的取值相同，这里不依赖 Android
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+
+    // 录制时默认的固定步长，60Hz
+    public static final long DEFAULT_STEP_NANOS = 1000000000L / 60;
+
+    // 鱼群单步模拟的最长时间间隔，避免卡顿后一步跨得太远
+    private static final long MAX_SCHOOL_STEP_NANOS = 50 * 1000000L;
+    // 同时存在的波纹的最大数量
+    private static final int MAX_RIPPLES = 32;
+    // 固定步长下一次最多追赶的步数，卡顿太久时丢掉多出来的时间，避免越追越慢
+    private static final int MAX_CATCH_UP_STEPS = 8;
+    // 初始朝向，与 FishDrawable 一致
+    private static final float INITIAL_HEADING = 90;
+    // 障碍物距离场的格子边长，与 FishLayout 相同
+    private static final float OBSTACLE_CELL_SIZE = 32f;
+
+    // 64 位 FNV-1a 的初始值和乘数
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Random random;
+    private final SwimSimulation swim;
+    private final RipplePool ripplePool = new RipplePool(MAX_RIPPLES);
+    // 石头、荷叶等障碍物，单条鱼游动时绕开它们
+    private final ObstacleField obstacles = new ObstacleField();
+    private FishSchool fishSchool;
+    private int schoolSize;
+    // 计算校验和时用来算单条鱼的骨架点
+    private final FishKinematics kinematics = new FishKinematics();
+
+    private int width;
+    private int height;
+    // 累计运行的时间，用来换算属性动画值
+    private long elapsedNanos;
+    // 已经推进的步数
+    private long stepCount;
+
+    // 固定步长，为 0 时按调用方给出的时间间隔推进
+    private long stepNanos;
+    // 固定步长下还没有推进的时间
+    private long pendingNanos;
+
+    // 下一步开始时最新的目标点，每步最多重新规划一次
+    private boolean hasPendingTarget;
+    private float pendingX;
+    private float pendingY;
+
+    // 正在录制的输入，为 null 时不录制
+    private TouchLog recording;
+
+    public AquariumSimulation() {
+        this(new Random());
+    }
+
+    public AquariumSimulation(Random random) {
+        this.random = random;
+        swim = new SwimSimulation(random);
+        swim.setPathPlanner(new PathPlanner(obstacles));
+    }
+
+    /**
+     * 按记录的初始条件创建一个模拟，之后用 {@link #applyEvent(TouchLog, int)} 和 {@link #step(long)} 重放
+     */
+    public static AquariumSimulation forReplay(TouchLog log) {
+        AquariumSimulation simulation = new AquariumSimulation();
+        simulation.setStepNanos(log.getStepNanos());
+        simulation.setSize(log.getWidth(), log.getHeight());
+        simulation.setSchoolSize(log.getSchoolSize());
+        simulation.restart(log.getSeed());
+        return simulation;
+    }
+
+    /**
+     * 从头重放记录，返回每一步推进后的校验和，与录制时每一步之后的 {@link #checksum()} 相同
+     */
+    public static long[] replay(TouchLog log) {
+        AquariumSimulation simulation = forReplay(log);
+        long[] checksums = new long[(int) log.getEndStep()];
+        int event = 0;
+        for (int step = 0; step < checksums.length; step++) {
+            // 录制时在第 step 步之前收到的事件
+            while (event < log.getCount() && log.getStep(event) == step) {
+                simulation.applyEvent(log, event++);
+            }
+            simulation.step(log.getStepNanos());
+            checksums[step] = simulation.checksum();
+        }
+        return checksums;
+    }
+
+    /**
+     * 逐步比较两组校验和，返回第一个不一致的步数；一组比另一组长时返回较短一组的长度，完全一致时返回 -1
+     */
+    public static int firstDivergence(long[] expected, long[] actual) {
+        int steps = Math.min(expected.length, actual.length);
+        for (int step = 0; step < steps; step++) {
+            if (expected[step] != actual[step]) {
+                return step;
+            }
+        }
+        return expected.length == actual.length ? -1 : steps;
+    }
+
+    /**
+     * 用新的随机数种子回到初始状态：鱼停在中间，清除波纹和鱼群的目标点，重新生成鱼群，时间和步数归零，障碍物保留。
+     * 手指按住时开始录制也从没有目标点的状态开始，重放时才能得到同样的结果
+     */
+    public void restart(long seed) {
+        random.setSeed(seed);
+        swim.reset(width / 2f, height / 2f, INITIAL_HEADING);
+        ripplePool.clear();
+        elapsedNanos = 0;
+        stepCount = 0;
+        pendingNanos = 0;
+        hasPendingTarget = false;
+        if (fishSchool != null) {
+            fishSchool.clearTarget();
+            spawnSchool();
+        }
+    }
+
+    /**
+     * 设置固定步长，为 0 时恢复按调用方给出的时间间隔推进
+     */
+    public void setStepNanos(long stepNanos) {
+        this.stepNanos = stepNanos;
+        pendingNanos = 0;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public void setSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        if (recording != null) {
+            recording.record(stepCount, TouchLog.EVENT_RESIZE, width, height);
+        }
+        boolean first = this.width == 0 || this.height == 0;
+        this.width = width;
+        this.height = height;
+        obstacles.resize(width, height, OBSTACLE_CELL_SIZE);
+        if (first) {
+            // 第一次知道大小时把鱼放在中间
+            swim.reset(width / 2f, height / 2f, swim.getHeading());
+        }
+        if (fishSchool != null) {
+            fishSchool.setBounds(width, height);
+        } else if (schoolSize > 0) {
+            spawnSchool();
+        }
+    }
+
+    /**
+     * 设置鱼群中鱼的数量，大于 0 时切换为鱼群模式；为 0 时恢复单条鱼。鱼缸大小未知时等到知道大小后再生成
+     */
+    public void setSchoolSize(int size) {
+        size = Math.max(0, size);
+        if (size == schoolSize) {
+            return;
+        }
+        if (recording != null) {
+            recording.record(stepCount, TouchLog.EVENT_SCHOOL_SIZE, size, 0);
+        }
+        schoolSize = size;
+        if (size == 0) {
+            fishSchool = null;
+        } else if (width > 0 && height > 0) {
+            spawnSchool();
+        }
+    }
+
+    /**
+     * 在 (x, y) 处放一个半径为 radius 的圆形障碍物，单条鱼游动时会绕开它
+     *
+     * @return 障碍物的下标，用于 {@link #removeObstacle(int)}
+     */
+    public int addObstacle(float x, float y, float radius) {
+        if (recording != null) {
+            recording.record(stepCount, TouchLog.EVENT_OBSTACLE_ADD, x, y, radius);
+        }
+        return obstacles.add(x, y, radius);
+    }
+
+    /**
+     * 移除第 index 个障碍物，原来的最后一个障碍物改用 index 作为下标
+     */
+    public void removeObstacle(int index) {
+        if (recording != null) {
+            recording.record(stepCount, TouchLog.EVENT_OBSTACLE_REMOVE, index, 0);
+        }
+        obstacles.remove(index);
+    }
+
+    public void clearObstacles() {
+        if (recording != null) {
+            recording.record(stepCount, TouchLog.EVENT_OBSTACLE_CLEAR, 0, 0);
+        }
+        obstacles.clear();
+    }
+
+    private void spawnSchool() {
+        if (fishSchool == null) {
+            fishSchool = new FishSchool();
+        }
+        fishSchool.setBounds(width, height);
+        fishSchool.spawn(schoolSize, random);
+    }
+
+    @Override
+    public void onTouch(int action, float x, float y) {
+        if (recording != null) {
+            recording.record(stepCount, action, x, y);
+        }
+        // 每次按下产生一个波纹
+        if (action == ACTION_DOWN) {
+            ripplePool.spawn(x, y);
+        }
+        if (fishSchool != null) {
+            // 鱼群模式下手指按住的位置会吸引鱼群，抬起后恢复自由游动
+            if (action == ACTION_UP || action == ACTION_CANCEL) {
+                fishSchool.clearTarget();
+            } else {
+                fishSchool.setTarget(x, y);
+            }
+            return;
+        }
+        pendingX = x;
+        pendingY = y;
+        hasPendingTarget = true;
+    }
+
+    /**
+     * 重放记录中的第 index 个事件
+     */
+    public void applyEvent(TouchLog log, int index) {
+        int type = log.getType(index);
+        if (type == TouchLog.EVENT_RESIZE) {
+            setSize((int) log.getFirst(index), (int) log.getSecond(index));
+        } else if (type == TouchLog.EVENT_SCHOOL_SIZE) {
+            setSchoolSize((int) log.getFirst(index));
+        } else if (type == TouchLog.EVENT_OBSTACLE_ADD) {
+            addObstacle(log.getFirst(index), log.getSecond(index), log.getThird(index));
+        } else if (type == TouchLog.EVENT_OBSTACLE_REMOVE) {
+            removeObstacle((int) log.getFirst(index));
+        } else if (type == TouchLog.EVENT_OBSTACLE_CLEAR) {
+            clearObstacles();
+        } else {
+            onTouch(type, log.getFirst(index), log.getSecond(index));
+        }
+    }
+
+    /**
+     * 推进 deltaNanos 纳秒。设置了固定步长时按步长整步推进，不足一步的时间留到下次
+     *
+     * @return 实际推进的步数
+     */
+    public int advance(long deltaNanos) {
+        if (stepNanos <= 0) {
+            step(deltaNanos);
+            return 1;
+        }
+        pendingNanos += deltaNanos;
+        int steps = 0;
+        while (pendingNanos >= stepNanos) {
+            if (steps == MAX_CATCH_UP_STEPS) {
+                pendingNanos = 0;
+                break;
+            }
+            step(stepNanos);
+            pendingNanos -= stepNanos;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * 推进一步
+     */
+    public void step(long deltaNanos) {
+        elapsedNanos += deltaNanos;
+        if (hasPendingTarget) {
+            hasPendingTarget = false;
+            swim.retarget(pendingX, pendingY);
+        }
+        swim.step(deltaNanos);
+        ripplePool.advance(deltaNanos / 1e9f);
+        if (fishSchool != null) {
+            fishSchool.step(Math.min(deltaNanos, MAX_SCHOOL_STEP_NANOS) / 1e9f);
+        }
+        stepCount++;
+    }
+
+    /**
+     * 从当前状态开始录制：用新的种子回到初始状态，没有设置固定步长时改用 {@link #DEFAULT_STEP_NANOS}。
+     * 已有的障碍物记成第 0 步之前增加的，重放时按原来的顺序放回，下标也相同
+     */
+    public TouchLog startRecording(long seed) {
+        if (stepNanos <= 0) {
+            setStepNanos(DEFAULT_STEP_NANOS);
+        }
+        restart(seed);
+        recording = new TouchLog(seed, stepNanos, width, height, schoolSize);
+        for (int i = 0, count = obstacles.getCount(); i < count; i++) {
+            recording.record(0, TouchLog.EVENT_OBSTACLE_ADD, obstacles.getX(i), obstacles.getY(i),
+                    obstacles.getRadius(i));
+        }
+        return recording;
+    }
+
+    /**
+     * 结束录制，返回录好的记录，没有在录制时返回 null
+     */
+    public TouchLog stopRecording() {
+        TouchLog log = recording;
+        if (log != null) {
+            log.finish(stepCount);
+            recording = null;
+        }
+        return log;
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * 当前所有鱼的骨架和波纹的校验和，用来比较两次运行在同一步的状态是否完全相同
+     */
+    public long checksum() {
+        long hash = mix(FNV_OFFSET_BASIS, stepCount);
+        if (fishSchool != null) {
+            SchoolSnapshot school = fishSchool.getSnapshot();
+            hash = mix(hash, (long) school.count);
+            for (int i = 0; i < school.count; i++) {
+                hash = mix(hash, school.xs[i]);
+                hash = mix(hash, school.ys[i]);
+                hash = mix(hash, school.fishAngles[i]);
+                hash = mix(hash, school.segment1Angles[i]);
+                hash = mix(hash, school.segment2Angles[i]);
+                hash = mix(hash, school.tailEdgeLengths[i]);
+                hash = mix(hash, school.finsValues[i]);
+            }
+        } else {
+            kinematics.compute(swim.getX(), swim.getY(), swim.getHeading(), getAnimatorValue(),
+                    swim.getFrequency(), swim.getFinsValue());
+            float[] points = kinematics.points;
+            for (int i = 0; i < points.length; i++) {
+                hash = mix(hash, points[i]);
+            }
+        }
+        for (int i = 0, count = ripplePool.getCount(); i < count; i++) {
+            hash = mix(hash, ripplePool.getX(i));
+            hash = mix(hash, ripplePool.getY(i));
+            hash = mix(hash, ripplePool.getRadius(i));
+        }
+        return hash;
+    }
+
+    // 按 32 位而不是按字节做 FNV-1a，够用且快
+    private static long mix(long hash, float value) {
+        return (hash ^ Float.floatToIntBits(value)) * FNV_PRIME;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ (value & 0xffffffffL)) * FNV_PRIME;
+        return (hash ^ (value >>> 32)) * FNV_PRIME;
+    }
+
+    public SwimSimulation getSwim() {
+        return swim;
+    }
+
+    public RipplePool getRipplePool() {
+        return ripplePool;
+    }
+
+    public ObstacleField getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * 鱼群，单条鱼模式下为 null
+     */
+    public FishSchool getSchool() {
+        return fishSchool;
+    }
+
+    public int getSchoolSize() {
+        return schoolSize;
+    }
+
+    /**
+     * 单条鱼当前的属性动画值
+     */
+    public float getAnimatorValue() {
+        return FishKinematics.animatorValueOf(elapsedNanos);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+}
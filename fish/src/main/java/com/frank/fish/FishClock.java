@@ -0,0 +1,185 @@
+package com.frank.fish;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 所有鱼共用的动画时钟，由 FishLayout 持有。
+ * <p>
+ * 借助 Choreographer 在每个 vsync 回调一次，统一更新所有鱼的属性动画值并让每条鱼各刷新一次，
+ * 取代原先每个 FishDrawable 各自启动一个无限循环 ValueAnimator 的做法。每条鱼有自己的相位偏移，
+ * 这样多条鱼同屏时尾巴不会整齐划一地摆动。
+ * <p>
+ * 不可见的鱼（{@link FishDrawable#isVisible()} 为 false，例如所在的 View 被隐藏或移出窗口）不更新也不刷新，
+ * 并且它的相位随时钟一起后退，再次可见时从隐藏时的姿态继续摆动。
+ */
+public class FishClock implements Choreographer.FrameCallback {
+
+    public static final float MAX_ANIMATOR_VALUE = FishKinematics.MAX_ANIMATOR_VALUE;
+
+    // 黄金分割比，用来给新加入的鱼分配尽量错开的相位
+    private static final float GOLDEN_RATIO = 0.618034f;
+
+    /**
+     * 每帧回调，除鱼以外需要跟随时钟刷新的对象（如波纹）通过它接入
+     */
+    public interface OnTickListener {
+        /**
+         * @param frameTimeNanos 本帧的 vsync 时间
+         * @param deltaNanos     与上一帧的时间间隔，时钟刚启动或恢复的第一帧为 0
+         */
+        void onTick(long frameTimeNanos, long deltaNanos);
+    }
+
+    private final ArrayList<FishDrawable> fishes = new ArrayList<>();
+    private float[] phaseOffsets = new float[4];
+    private final ArrayList<OnTickListener> listeners = new ArrayList<>();
+
+    // 时钟累计运行的时间，暂停期间不增长，因此恢复后鱼会从暂停时的姿态继续游动
+    private long elapsedNanos;
+    private long lastFrameTimeNanos;
+    private boolean running;
+
+    // 帧间隔与每帧回调耗时的统计，为 null 时不统计
+    private FishMetrics metrics;
+
+    /**
+     * 加入一条鱼，相位按黄金分割自动错开
+     */
+    public void addFish(FishDrawable fish) {
+        addFish(fish, phaseOffsetOf(fishes.size()));
+    }
+
+    /**
+     * 第 index 条鱼的默认相位偏移，按黄金分割错开，鱼群模式下也用它给每条鱼分配相位
+     */
+    public static float phaseOffsetOf(int index) {
+        return (index * GOLDEN_RATIO) % 1f * MAX_ANIMATOR_VALUE;
+    }
+
+    /**
+     * @param phaseOffset 加在属性动画值上的相位偏移，范围 [0, 720)
+     */
+    public void addFish(FishDrawable fish, float phaseOffset) {
+        int index = fishes.size();
+        if (index == phaseOffsets.length) {
+            phaseOffsets = Arrays.copyOf(phaseOffsets, index * 2);
+        }
+        fishes.add(fish);
+        phaseOffsets[index] = phaseOffset;
+        fish.setAnimatorValue(animatorValueAt(index));
+    }
+
+    public void removeFish(FishDrawable fish) {
+        int index = fishes.indexOf(fish);
+        if (index < 0) {
+            return;
+        }
+        fishes.remove(index);
+        System.arraycopy(phaseOffsets, index + 1, phaseOffsets, index, fishes.size() - index);
+    }
+
+    public int getFishCount() {
+        return fishes.size();
+    }
+
+    public void addOnTickListener(OnTickListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnTickListener(OnTickListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void pause() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        long deltaNanos = lastFrameTimeNanos == 0 ? 0 : frameTimeNanos - lastFrameTimeNanos;
+        lastFrameTimeNanos = frameTimeNanos;
+        elapsedNanos += deltaNanos;
+
+        FishMetrics metrics = this.metrics;
+        if (metrics == null) {
+            dispatchTick(frameTimeNanos, deltaNanos);
+        } else {
+            metrics.recordFrameInterval(deltaNanos);
+            long start = System.nanoTime();
+            dispatchTick(frameTimeNanos, deltaNanos);
+            metrics.recordStage(FishMetrics.STAGE_TICK, System.nanoTime() - start);
+        }
+        // 每条鱼每个 vsync 只刷新一次，并且只刷新实际变化的区域
+        float deltaValue = animatorValueOf(deltaNanos);
+        for (int i = 0, size = fishes.size(); i < size; i++) {
+            FishDrawable fish = fishes.get(i);
+            if (!fish.isVisible()) {
+                // 抵消时钟走过的时间，保持动画值不变
+                phaseOffsets[i] = (phaseOffsets[i] - deltaValue + MAX_ANIMATOR_VALUE) % MAX_ANIMATOR_VALUE;
+                continue;
+            }
+            fish.setAnimatorValue(animatorValueAt(i));
+            fish.invalidatePose();
+        }
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void dispatchTick(long frameTimeNanos, long deltaNanos) {
+        for (int i = 0, size = listeners.size(); i < size; i++) {
+            listeners.get(i).onTick(frameTimeNanos, deltaNanos);
+        }
+    }
+
+    /**
+     * 设置帧间隔和每帧回调耗时的统计，传 null 关闭统计
+     */
+    public void setMetrics(FishMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public FishMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 时钟当前的属性动画值（不含相位偏移），范围 [0, 720)
+     */
+    public float getAnimatorValue() {
+        return animatorValueOf(elapsedNanos);
+    }
+
+    /**
+     * 累计运行 elapsedNanos 纳秒后的属性动画值（不含相位偏移），不在主线程驱动鱼时也用它换算
+     */
+    public static float animatorValueOf(long elapsedNanos) {
+        return FishKinematics.animatorValueOf(elapsedNanos);
+    }
+
+    private float animatorValueAt(int index) {
+        return (getAnimatorValue() + phaseOffsets[index]) % MAX_ANIMATOR_VALUE;
+    }
+}
@@ -0,0 +1,207 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+
+/**
+ * 一条鱼某个姿态的绘制命令，按顺序保存在一个 float 数组中，纯 Java 实现。
+ * <p>
+ * 每条命令先写操作码，再写参数：moveTo、lineTo 各 2 个坐标，quadTo 4 个，close 没有参数，
+ * circle 为圆心和半径，layer 为之后各条轮廓所在的层（见 {@link FishOutline}），透明度由层决定。
+ * 一条完整细节的鱼只有 117 个 float。
+ * <p>
+ * 录制时同时记下骨架点和细节层级，姿态没有变化时 {@link #matches} 返回 true，可以继续使用上一次录下的结果。
+ * 命令只描述几何和所在的层，可以重放到任意 {@link FishOutline.Sink}：{@link FishPathCache} 按层把它构建成 Path 缓存起来，
+ * 压力测试直接统计命令数并比较两次的内容。
+ */
+public class FishDisplayList implements FishOutline.Sink {
+
+    // 操作码
+    public static final int OP_MOVE_TO = 0;
+    public static final int OP_LINE_TO = 1;
+    public static final int OP_QUAD_TO = 2;
+    public static final int OP_CLOSE = 3;
+    public static final int OP_CIRCLE = 4;
+    public static final int OP_LAYER = 5;
+
+    private float[] buffer = new float[128];
+    private int size;
+    private int commandCount;
+
+    // 录制时的骨架点和细节层级，keyLod 为 -1 表示还没有录制过
+    private final float[] keyPoints = new float[FishKinematics.POINT_COUNT * 2];
+    private int keyLod = -1;
+
+    /**
+     * 按 kinematics 中的骨架点录制一条鱼：完整细节时先是鱼头、鱼鳍、节肢和尾巴，再是透明度更高的身体；
+     * 剪影只有身体、节肢1和大尾巴。精灵层级不画轮廓，按剪影录制。骨架点同时记下来，作为判断姿态是否变化的依据
+     */
+    public void record(FishKinematics kinematics, int lod) {
+        reset();
+        if (lod == LodController.LOD_FULL) {
+            FishOutline.addParts(kinematics, this);
+            FishOutline.addBody(kinematics, this);
+        } else {
+            FishOutline.addSilhouette(kinematics, this);
+        }
+        setKey(kinematics.points, 0, lod);
+    }
+
+    /**
+     * 记下这些命令对应的骨架点和细节层级。分段录制时先 {@link #reset()}，逐段写完命令后再调用
+     */
+    public void setKey(float[] points, int offset, int lod) {
+        System.arraycopy(points, offset, keyPoints, 0, keyPoints.length);
+        keyLod = lod;
+    }
+
+    /**
+     * 录下的命令是否就是这个姿态和细节层级的
+     */
+    public boolean matches(float[] points, int offset, int lod) {
+        if (lod != keyLod) {
+            return false;
+        }
+        for (int i = 0; i < keyPoints.length; i++) {
+            if (keyPoints[i] != points[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 清空所有命令，之后 {@link #matches} 总是返回 false
+     */
+    public void reset() {
+        size = 0;
+        commandCount = 0;
+        keyLod = -1;
+    }
+
+    @Override
+    public void layer(int layer) {
+        ensureCapacity(2);
+        buffer[size++] = OP_LAYER;
+        buffer[size++] = layer;
+        commandCount++;
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        ensureCapacity(3);
+        buffer[size++] = OP_MOVE_TO;
+        buffer[size++] = x;
+        buffer[size++] = y;
+        commandCount++;
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        ensureCapacity(3);
+        buffer[size++] = OP_LINE_TO;
+        buffer[size++] = x;
+        buffer[size++] = y;
+        commandCount++;
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        ensureCapacity(5);
+        buffer[size++] = OP_QUAD_TO;
+        buffer[size++] = x1;
+        buffer[size++] = y1;
+        buffer[size++] = x2;
+        buffer[size++] = y2;
+        commandCount++;
+    }
+
+    @Override
+    public void close() {
+        ensureCapacity(1);
+        buffer[size++] = OP_CLOSE;
+        commandCount++;
+    }
+
+    @Override
+    public void circle(float x, float y, float radius) {
+        ensureCapacity(4);
+        buffer[size++] = OP_CIRCLE;
+        buffer[size++] = x;
+        buffer[size++] = y;
+        buffer[size++] = radius;
+        commandCount++;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * 按录制的顺序把所有命令交给 receiver
+     */
+    public void replay(FishOutline.Sink receiver) {
+        float[] b = buffer;
+        int i = 0;
+        while (i < size) {
+            switch ((int) b[i]) {
+                case OP_MOVE_TO:
+                    receiver.moveTo(b[i + 1], b[i + 2]);
+                    i += 3;
+                    break;
+                case OP_LINE_TO:
+                    receiver.lineTo(b[i + 1], b[i + 2]);
+                    i += 3;
+                    break;
+                case OP_QUAD_TO:
+                    receiver.quadTo(b[i + 1], b[i + 2], b[i + 3], b[i + 4]);
+                    i += 5;
+                    break;
+                case OP_CLOSE:
+                    receiver.close();
+                    i += 1;
+                    break;
+                case OP_CIRCLE:
+                    receiver.circle(b[i + 1], b[i + 2], b[i + 3]);
+                    i += 4;
+                    break;
+                case OP_LAYER:
+                    receiver.layer((int) b[i + 1]);
+                    i += 2;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown op " + b[i] + " at " + i);
+            }
+        }
+    }
+
+    /**
+     * 两个列表中的命令是否完全相同
+     */
+    public boolean contentEquals(FishDisplayList other) {
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(buffer[i]) != Float.floatToIntBits(other.buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 命令的条数，包括 layer
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * 命令占用的 float 数
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -1,15 +1,15 @@
 package com.frank.fish;
 
-import android.animation.ValueAnimator;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.PixelFormat;
 import android.graphics.PointF;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.util.Log;
-import android.view.animation.LinearInterpolator;
+import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -20,44 +20,34 @@ public class FishDrawable extends Drawable {
      * 绘制鱼时用到的常量
      */
     // 鱼头半径
-    public static final int HEAD_RADIUS = 50;
+    public static final int HEAD_RADIUS = FishKinematics.HEAD_RADIUS;
 
     // 默认的 Drawable 大小是鱼头半径 x 倍
     private static final float SIZE_MULTIPLE_NUMBER = 8.38f;
 
-    // 鱼身长度
-    private static final float BODY_LENGTH = 3.2f * HEAD_RADIUS;
-
-    // 鱼鳍起点与鱼头圆心连线长度
-    private static final float FIND_FINS_LENGTH = 0.9f * HEAD_RADIUS;
-
-    // 鱼鳍长度
-    private static final float FINS_LENGTH = 1.3f * HEAD_RADIUS;
-
-    // 节肢大圆半径
-    private static final float BIG_CIRCLE_RADIUS = 0.7f * HEAD_RADIUS;
-
-    // 节肢中圆半径
-    private static final float MIDDLE_CIRCLE_RADIUS = 0.6f * BIG_CIRCLE_RADIUS;
-
-    // 节肢小圆半径
-    private static final float SMALL_CIRCLE_RADIUS = 0.4f * MIDDLE_CIRCLE_RADIUS;
-
-    // 大圆与中圆圆心距离
-    private static final float BigMiddleCenterLength = BIG_CIRCLE_RADIUS + MIDDLE_CIRCLE_RADIUS;
-
-    // 中圆到大三角形底边中点的距离
-    private static final float FIND_TRIANGLE_LENGTH = MIDDLE_CIRCLE_RADIUS * 2.7f;
+    /**
+     * 透明度，各部分绘制时由所在的层决定，见 {@link FishOutline}
+     */
+    private static final int OTHER_ALPHA = FishOutline.OTHER_ALPHA;
 
-    // 中圆与小圆圆心距离
-    private static final float MiddleSmallCenterLength =  MIDDLE_CIRCLE_RADIUS * (0.4f + 2.7f);
+    // 抗锯齿边缘向外扩展的像素数
+    private static final int ANTI_ALIAS_MARGIN = 2;
 
     /**
-     * 透明度
+     * 细节层级，由 {@link LodController} 按鱼在屏幕上的大小和帧耗时选择
      */
-    // 身体透明值比其它部分大一些
-    private static final int BODY_ALPHA = 160;
-    private static final int OTHER_ALPHA = 110;
+    // 完整的鱼：鱼头、两片鱼鳍、两节节肢、双尾和身体
+    public static final int LOD_FULL = LodController.LOD_FULL;
+    // 只有身体、节肢1和大尾巴的剪影，一条路径一次画完
+    public static final int LOD_SILHOUETTE = LodController.LOD_SILHOUETTE;
+    // 按朝向旋转的一张静态位图
+    public static final int LOD_SPRITE = LodController.LOD_SPRITE;
+
+    // 精灵位图中鱼从尾尖到鱼头的像素长度，只在鱼很小或者帧耗时超出预算时使用，不需要太大
+    private static final float SPRITE_LENGTH = 48f;
+    private static final float SPRITE_SCALE = SPRITE_LENGTH / FishKinematics.FISH_LENGTH;
+    // 精灵四周留出的像素，给抗锯齿和双线性过滤用
+    private static final int SPRITE_PADDING = 2;
 
     // 鱼的朝向与x轴正方向的夹角
     private float fishMainAngle = 90;
@@ -68,11 +58,21 @@ public class FishDrawable extends Drawable {
     // 鱼头圆心
     private PointF headPoint;
 
-    // 画图相关
-    private Path mPath;
+    // 骨架计算，所有点都保存在它预分配的数组里
+    private FishKinematics kinematics;
+
+    // 姿态属性变化后置为 true，下次用到骨架点时重新计算
+    private boolean poseDirty = true;
+
+    // 上一次刷新时的包围盒，以及上一次与本次包围盒的并集，即需要重绘的区域
+    private final RectF lastPoseBounds = new RectF();
+    private final Rect dirtyBounds = new Rect();
+
+    // 画图相关，按层合并好的路径缓存在 paths 里，骨架点和细节层级都没变时直接复用
+    private final FishPathCache paths = new FishPathCache();
     private Paint mPaint;
 
-    // 属性动画值
+    // 属性动画值，由 FishClock 每帧统一更新
     private float currentAnimatorValue;
 
     // 鱼尾摆动的频率控制（鱼尾在开始游动时摆的快一点）
@@ -81,194 +81,258 @@ public class FishDrawable extends Drawable {
     // 鱼鳍摆动控制
     private float finsValue;
 
+    // 分阶段耗时统计，为 null 时不统计
+    private FishMetrics metrics;
+
+    // 当前的细节层级
+    private int lod = LOD_FULL;
+    // LOD_SPRITE 用到的位图，第一次用到时以朝向 0° 画出
+    private Bitmap sprite;
+    private Paint spritePaint;
+
     public FishDrawable() {
-        mPath = new Path();
         mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
         mPaint.setStyle(Paint.Style.FILL);
         mPaint.setARGB(OTHER_ALPHA, 244, 92, 71);
 
         // 鱼的重心点位于整个 Drawable 的中心
         middlePoint = new PointF(SIZE_MULTIPLE_NUMBER / 2 * HEAD_RADIUS, SIZE_MULTIPLE_NUMBER / 2 * HEAD_RADIUS);
-
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(0, 720f);
-        valueAnimator.setRepeatCount(ValueAnimator.INFINITE);
-        valueAnimator.setRepeatMode(ValueAnimator.RESTART);
-        valueAnimator.setInterpolator(new LinearInterpolator());
-        valueAnimator.setDuration(2000);
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                currentAnimatorValue = (float) animation.getAnimatedValue();
-                invalidateSelf();
-            }
-        });
-        valueAnimator.start();
+        headPoint = new PointF();
+        kinematics = new FishKinematics();
     }
 
     @Override
     public void draw(@NonNull Canvas canvas) {
-        // float fishAngle = fishMainAngle + currentAnimatorValue * 10;
-        float fishAngle = (float) (fishMainAngle + Math.sin(Math.toRadians(currentAnimatorValue)) * 10);
-
-        // 1.先画鱼头，就是一个圆，圆心与重心距离为鱼身长一半，1.6R
-        headPoint = calculatePoint(middlePoint, BODY_LENGTH / 2, fishAngle);
-        canvas.drawCircle(headPoint.x, headPoint.y, HEAD_RADIUS, mPaint);
-
-        // 2.画鱼鳍，身体两侧各一个。鱼鳍是一个二阶贝塞尔曲线，其起点与鱼头圆心的距离为0.9R，
-        // 两点连线与x轴正方向的角度为110°
-        PointF leftFinPoint = calculatePoint(headPoint, FIND_FINS_LENGTH, fishAngle + 110);
-        PointF rightFinPoint = calculatePoint(headPoint, FIND_FINS_LENGTH, fishAngle - 110);
-        makeFin(canvas, leftFinPoint, fishAngle, true);
-        makeFin(canvas, rightFinPoint, fishAngle, false);
-
-        // 3.画节肢，节肢1是两个圆相切，并且还有个以两个圆的直径为上下底的梯形，
-        // 节肢2是一个梯形加一个小圆。
-        PointF bigCircleCenterPoint = calculatePoint(headPoint, BODY_LENGTH, fishAngle - 180);
-        // 计算两个圆中较小圆心的工作要交给 makeSegment，因为节肢摆动的角度与鱼身摆动角度不同，
-        // 不能直接用 fishAngle 计算圆心，否则圆心点计算就不准了。
-        // PointF middleCircleCenterPoint1 = calculatePoint(bigCircleCenterPoint, BigMiddleCenterLength, fishAngle - 180);
-        PointF middleCircleCenterPoint = makeSegment(canvas, bigCircleCenterPoint, BIG_CIRCLE_RADIUS, MIDDLE_CIRCLE_RADIUS,
-                BigMiddleCenterLength, fishAngle, true);
-        makeSegment(canvas, middleCircleCenterPoint, MIDDLE_CIRCLE_RADIUS, SMALL_CIRCLE_RADIUS,
-                MiddleSmallCenterLength, fishAngle, false);
-
-        // 4.画尾巴，是两个等腰三角形，一个顶点在中圆圆心，该顶点到大三角形底边中点距离为中圆半径的2.7倍
-        float findEdgeLength = (float) Math.abs(Math.sin(Math.toRadians(currentAnimatorValue * 1.5)) * BIG_CIRCLE_RADIUS);
-        makeTriangle(canvas, middleCircleCenterPoint, FIND_TRIANGLE_LENGTH, findEdgeLength, fishAngle);
-        makeTriangle(canvas, middleCircleCenterPoint, FIND_TRIANGLE_LENGTH - 10, findEdgeLength - 20, fishAngle);
-        Log.d("Frank", "draw: " + findEdgeLength);
-
-        // 5.画身体，身体两侧的线条也是二阶贝塞尔曲线
-        makeBody(canvas, headPoint, bigCircleCenterPoint, fishAngle);
-    }
-
-    private void makeBody(Canvas canvas, PointF headPoint, PointF bigCircleCenterPoint, float fishAngle) {
-
-        // 先求头部圆和大圆直径上的四个点
-        PointF upperLeftPoint = calculatePoint(headPoint, HEAD_RADIUS, fishAngle + 90);
-        PointF upperRightPoint = calculatePoint(headPoint, HEAD_RADIUS, fishAngle - 90);
-        PointF bottomLeftPoint = calculatePoint(bigCircleCenterPoint, BIG_CIRCLE_RADIUS, fishAngle + 90);
-        PointF bottomRightPoint = calculatePoint(bigCircleCenterPoint, BIG_CIRCLE_RADIUS, fishAngle - 90);
-
-        // 两侧的控制点，长度和角度是在画图调整后测量出来的
-        PointF controlLeft = calculatePoint(headPoint, BODY_LENGTH * 0.56f,
-                fishAngle + 130);
-        PointF controlRight = calculatePoint(headPoint, BODY_LENGTH * 0.56f,
-                fishAngle - 130);
-
-        // 绘制
-        mPath.reset();
-        mPath.moveTo(upperLeftPoint.x, upperLeftPoint.y);
-        mPath.quadTo(controlLeft.x, controlLeft.y, bottomLeftPoint.x, bottomLeftPoint.y);
-        mPath.lineTo(bottomRightPoint.x, bottomRightPoint.y);
-        mPath.quadTo(controlRight.x, controlRight.y, upperRightPoint.x, upperRightPoint.y);
-        mPaint.setAlpha(BODY_ALPHA);
-        canvas.drawPath(mPath, mPaint);
+        if (metrics != null) {
+            drawTimed(canvas, metrics);
+            return;
+        }
+        updatePose();
+        drawSkeleton(canvas);
     }
 
     /**
-     * @param startPoint         与中圆圆心重合的那个顶点
-     * @param toEdgeMiddleLength startPoint 到对边中点的距离
-     * @param edgeLength         startPoint 对边长度
+     * 姿态属性变化后重新计算骨架点，所有点一次性写入 kinematics 预分配的数组中，不创建 PointF
      */
-    private void makeTriangle(Canvas canvas, PointF startPoint, float toEdgeMiddleLength, float edgeLength, float fishAngle) {
+    private void updatePose() {
+        if (!poseDirty) {
+            return;
+        }
+        poseDirty = false;
+        kinematics.compute(middlePoint.x, middlePoint.y, fishMainAngle, currentAnimatorValue, frequency, finsValue);
+        headPoint.set(kinematics.x(FishKinematics.HEAD), kinematics.y(FishKinematics.HEAD));
+    }
 
-        //        float triangleAngle = fishAngle + currentAnimatorValue * 10;
-        float triangleAngle = (float) (fishAngle + Math.sin(Math.toRadians(currentAnimatorValue * frequency * 1.5)) * 25);
+    /**
+     * 由 FishClock 每帧调用：算出新姿态的包围盒，只重绘上一帧与这一帧包围盒的并集。
+     * 宿主是 View（如 ImageView）时直接按区域刷新，否则退化为 invalidateSelf()。
+     */
+    public void invalidatePose() {
+        updatePose();
+        float[] bounds = kinematics.bounds;
+        float left = bounds[FishKinematics.LEFT];
+        float top = bounds[FishKinematics.TOP];
+        float right = bounds[FishKinematics.RIGHT];
+        float bottom = bounds[FishKinematics.BOTTOM];
+        if (lastPoseBounds.isEmpty()) {
+            dirtyBounds.set((int) Math.floor(left), (int) Math.floor(top), (int) Math.ceil(right), (int) Math.ceil(bottom));
+        } else {
+            dirtyBounds.set((int) Math.floor(Math.min(left, lastPoseBounds.left)),
+                    (int) Math.floor(Math.min(top, lastPoseBounds.top)),
+                    (int) Math.ceil(Math.max(right, lastPoseBounds.right)),
+                    (int) Math.ceil(Math.max(bottom, lastPoseBounds.bottom)));
+        }
+        lastPoseBounds.set(left, top, right, bottom);
+        // 抗锯齿会向外多画一个像素
+        dirtyBounds.inset(-ANTI_ALIAS_MARGIN, -ANTI_ALIAS_MARGIN);
+
+        Callback callback = getCallback();
+        if (callback instanceof View) {
+            View view = (View) callback;
+            view.invalidate(dirtyBounds.left + view.getPaddingLeft(), dirtyBounds.top + view.getPaddingTop(),
+                    dirtyBounds.right + view.getPaddingLeft(), dirtyBounds.bottom + view.getPaddingTop());
+        } else {
+            invalidateSelf();
+        }
+    }
 
-        // 对边中点
-        PointF edgeMiddlePoint = calculatePoint(startPoint, toEdgeMiddleLength, triangleAngle - 180);
+    /**
+     * 上一帧与当前帧实际绘制内容的包围盒的并集，坐标相对于 Drawable
+     */
+    @NonNull
+    @Override
+    public Rect getDirtyBounds() {
+        return dirtyBounds;
+    }
 
-        // 三角形另外两个顶点
-        PointF leftPoint = calculatePoint(edgeMiddlePoint, edgeLength, triangleAngle + 90);
-        PointF rightPoint = calculatePoint(edgeMiddlePoint, edgeLength, triangleAngle - 90);
+    /**
+     * 当前姿态实际绘制内容的包围盒，坐标相对于 Drawable
+     */
+    public void getPoseBounds(RectF out) {
+        updatePose();
+        float[] bounds = kinematics.bounds;
+        out.set(bounds[FishKinematics.LEFT], bounds[FishKinematics.TOP],
+                bounds[FishKinematics.RIGHT], bounds[FishKinematics.BOTTOM]);
+    }
 
-        // 开始绘制
-        mPath.reset();
-        mPath.moveTo(startPoint.x, startPoint.y);
-        mPath.lineTo(leftPoint.x, leftPoint.y);
-        mPath.lineTo(rightPoint.x, rightPoint.y);
-        canvas.drawPath(mPath, mPaint);
+    /**
+     * 鱼群模式下各部分的朝向已经批量算好，直接据此绘制，不修改当前 Drawable 的姿态属性
+     */
+    public void drawPose(Canvas canvas, float fishAngle, float segment1Angle, float segment2Angle,
+                         float tailEdgeLength, float finsValue) {
+        kinematics.computePoints(middlePoint.x, middlePoint.y, fishAngle, segment1Angle, segment2Angle,
+                tailEdgeLength, finsValue);
+        // kinematics 里现在是别的姿态，下次按自己的属性绘制时要重新计算
+        poseDirty = true;
+        drawSkeleton(canvas);
     }
 
     /**
-     * 绘制节肢部分的大圆和小圆，以及两个圆之间的梯形，
-     * 同时返回两个圆中较小圆的圆心
+     * 用已经算好的骨架点绘制，例如 PoseWorker 在后台线程算好的结果，绘制时只剩画布调用
      *
-     * @param bigCircleCenterPoint 大圆圆心
-     * @param bigCircleRadius      大圆半径
-     * @param smallCircleRadius    小圆半径
-     * @param circleCenterLength   两个圆心之间的距离
-     * @param fishAngle            鱼头方向与x轴夹角
-     * @param hasBigCircle         是否绘制大圆，节肢1要画大圆和小圆，而节肢2只需要画一个小圆
+     * @param points 骨架点坐标，直接按画布当前的坐标系绘制，格式见 {@link FishKinematics#points}
+     * @param offset 第一个点的 x 坐标在 points 中的下标
      */
-    private PointF makeSegment(Canvas canvas, PointF bigCircleCenterPoint, float bigCircleRadius, float smallCircleRadius,
-                               float circleCenterLength, float fishAngle, boolean hasBigCircle) {
-        // float segmentAngle = fishAngle + currentAnimatorValue * 10;
-        float segmentAngle;
-        if (hasBigCircle) {
-            // 节肢1
-            segmentAngle = (float) (fishAngle + Math.cos(Math.toRadians(currentAnimatorValue * frequency * 1.5)) * 15);
-        } else {
-            // 节肢2
-            segmentAngle = (float) (fishAngle + Math.sin(Math.toRadians(currentAnimatorValue * frequency * 1.5)) * 25);
-        }
-
-        // 先计算两个圆中较小圆的圆心
-        PointF smallCircleCenterPoint = calculatePoint(bigCircleCenterPoint, circleCenterLength, segmentAngle - 180);
+    public void drawPoints(Canvas canvas, float[] points, int offset) {
+        kinematics.setPoints(points, offset);
+        // kinematics 里现在是别的姿态，下次按自己的属性绘制时要重新计算
+        poseDirty = true;
+        drawSkeleton(canvas);
+    }
 
-        // 再计算梯形四个角的点，给点命名时，靠近鱼头方向的直径称为 upper，在鱼身左侧的称为 left
-        PointF upperLeftPoint = calculatePoint(bigCircleCenterPoint, bigCircleRadius, segmentAngle + 90);
-        PointF upperRightPoint = calculatePoint(bigCircleCenterPoint, bigCircleRadius, segmentAngle - 90);
-        PointF bottomLeftPoint = calculatePoint(smallCircleCenterPoint, smallCircleRadius, segmentAngle + 90);
-        PointF bottomRightPoint = calculatePoint(smallCircleCenterPoint, smallCircleRadius, segmentAngle - 90);
+    /**
+     * 与 {@link #drawPoints(Canvas, float[], int)} 相同，只是路径缓存在调用方为这条鱼保留的 cache 中：
+     * 骨架点和细节层级与上一次相同时直接画缓存的路径，否则重新录制。精灵层级不使用缓存
+     */
+    public void drawPoints(Canvas canvas, float[] points, int offset, FishPathCache cache) {
+        if (lod == LOD_SPRITE) {
+            drawPoints(canvas, points, offset);
+            return;
+        }
+        if (!cache.matches(points, offset, lod)) {
+            kinematics.setPoints(points, offset);
+            poseDirty = true;
+            cache.record(kinematics, lod);
+        }
+        cache.draw(canvas, mPaint);
+    }
 
-        // 先画大圆（如果需要）和小圆y
-        if (hasBigCircle) {
-            canvas.drawCircle(bigCircleCenterPoint.x, bigCircleCenterPoint.y, bigCircleRadius, mPaint);
+    /**
+     * 按 kinematics 中已经算好的骨架点绘制整条鱼。同一层中互不相接的部分合并在一条路径里，
+     * 完整细节时每条鱼六次 drawPath，重叠的半透明部分仍然分开画，与逐个绘制的效果相同；剪影只有一条路径。
+     * 骨架点和细节层级没有变化时直接复用上一次的路径
+     */
+    private void drawSkeleton(Canvas canvas) {
+        if (lod == LOD_SPRITE) {
+            drawSprite(canvas);
+            return;
+        }
+        if (!paths.matches(kinematics.points, 0, lod)) {
+            paths.record(kinematics, lod);
         }
-        canvas.drawCircle(smallCircleCenterPoint.x, smallCircleCenterPoint.y, smallCircleRadius, mPaint);
+        paths.draw(canvas, mPaint);
+    }
 
-        // 再画梯形
-        mPath.reset();
-        mPath.moveTo(upperLeftPoint.x, upperLeftPoint.y);
-        mPath.lineTo(upperRightPoint.x, upperRightPoint.y);
-        mPath.lineTo(bottomRightPoint.x, bottomRightPoint.y);
-        mPath.lineTo(bottomLeftPoint.x, bottomLeftPoint.y);
-        // 因为 mPaint 的类型是 FILL，所以划线时不闭合也会自动将首尾相连
-//        mPath.lineTo(upperLeftPoint.x,upperLeftPoint.y);
-        canvas.drawPath(mPath, mPaint);
+    /**
+     * 用鱼头圆心和节肢大圆圆心确定重心和朝向，把静态的精灵旋转后贴上去，不再构建任何路径
+     */
+    private void drawSprite(Canvas canvas) {
+        FishKinematics k = kinematics;
+        float headX = k.x(FishKinematics.HEAD);
+        float headY = k.y(FishKinematics.HEAD);
+        float tailX = k.x(FishKinematics.BIG_CIRCLE);
+        float tailY = k.y(FishKinematics.BIG_CIRCLE);
+        // 屏幕坐标系下的角度，顺时针为正，正好是 canvas.rotate() 需要的方向
+        float degrees = (float) Math.toDegrees(Math.atan2(headY - tailY, headX - tailX));
+        if (sprite == null) {
+            // 画精灵会覆盖 kinematics 里的骨架点，上面已经取完需要的值
+            createSprite();
+        }
+        int saveCount = canvas.save();
+        canvas.translate((headX + tailX) / 2, (headY + tailY) / 2);
+        canvas.rotate(degrees);
+        canvas.scale(1 / SPRITE_SCALE, 1 / SPRITE_SCALE);
+        canvas.drawBitmap(sprite, FishKinematics.MAX_EXTENT_LEFT * SPRITE_SCALE - SPRITE_PADDING,
+                -sprite.getHeight() / 2f, spritePaint);
+        canvas.restoreToCount(saveCount);
+    }
 
-        return smallCircleCenterPoint;
+    /**
+     * 以朝向 0°、尾巴和鱼鳍都不摆动的姿态画出完整的鱼，作为 LOD_SPRITE 的位图
+     */
+    private void createSprite() {
+        int width = (int) Math.ceil(SPRITE_LENGTH) + SPRITE_PADDING * 2;
+        int height = (int) Math.ceil(FishKinematics.MAX_HALF_HEIGHT * 2 * SPRITE_SCALE) + SPRITE_PADDING * 2;
+        sprite = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        spritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        spritePaint.setColorFilter(mPaint.getColorFilter());
+
+        Canvas canvas = new Canvas(sprite);
+        canvas.translate(SPRITE_PADDING - FishKinematics.MAX_EXTENT_LEFT * SPRITE_SCALE, height / 2f);
+        canvas.scale(SPRITE_SCALE, SPRITE_SCALE);
+        kinematics.computePoints(0, 0, 0, 0, 0, FishKinematics.tailEdgeLength(0), 0);
+        paths.record(kinematics, LOD_FULL);
+        paths.draw(canvas, mPaint);
+        // kinematics 和路径里现在是精灵的姿态，下次绘制时重新计算
+        poseDirty = true;
     }
 
     /**
-     * 鱼鳍其实用二阶贝塞尔曲线画出来的，鱼鳍长度是已知的，我们设置 FINS_LENGTH 为 1.3R，
-     * 另外控制点与起点的距离，以及这二点连线与x轴的夹角，也是根据效果图测量后按比例给出的。
+     * 与 updatePose() + drawSkeleton() 的步骤完全相同，只是分段录制绘制命令，每一步前后记录耗时。单独成一个方法，
+     * 这样不统计时的绘制路径上连判空都没有。复用上一帧的路径时各部分的录制耗时不记录，
+     * 由命令构建路径的耗时计入 draw 阶段。开启硬件加速时 Canvas 只是录制绘制命令，记录的是录制的耗时。
      */
-    private void makeFin(Canvas canvas, PointF startPoint, float fishAngle, boolean isLeftFin) {
-        // 鱼鳍的二阶贝塞尔曲线，控制点与起点连线长度是鱼鳍长度的1.8倍，夹角为115°
-        float controlPointAngle = 110;
-        // 计算鱼鳍终点坐标，起始点与结束点方向刚好与鱼头方向相反，因此要-180
-        PointF endPoint = calculatePoint(startPoint, FINS_LENGTH, fishAngle - 180);
-        // 鱼鳍不动时的控制点，以鱼头方向为准，左侧鱼鳍增加 controlPointAngle，右侧则减。
-//        PointF controlPoint = calculatePoint(startPoint, FINS_LENGTH * 1.8f,
-//                isLeftFin ? fishAngle + controlPointAngle : fishAngle - controlPointAngle);
-
-        // 开始计算鱼鳍摆动时的控制点
-        float controlFishCrossLength = (float) (FINS_LENGTH * 1.8f * Math.cos(Math.toRadians(70)));
-        PointF controlFishCrossPoint = calculatePoint(startPoint, controlFishCrossLength, fishAngle - 180);
-        // 最远的控制点到 controlFishCrossPoint 的距离，当然 controlFishCrossLength 也可以换成 HEAD_RADIUS
-        float lineLength = (float) Math.abs(Math.tan(Math.toRadians(controlPointAngle)) * controlFishCrossLength);
-        float line = lineLength - finsValue;
-        PointF controlPoint = calculatePoint(controlFishCrossPoint, line,
-                isLeftFin ? fishAngle + 90 : fishAngle - 90);
-
-        // 开始绘制
-        mPath.reset();
-        mPath.moveTo(startPoint.x, startPoint.y);
-        mPath.quadTo(controlPoint.x, controlPoint.y, endPoint.x, endPoint.y);
-        canvas.drawPath(mPath, mPaint);
+    private void drawTimed(Canvas canvas, FishMetrics metrics) {
+        long start = System.nanoTime();
+        updatePose();
+        long time = System.nanoTime();
+        metrics.recordStage(FishMetrics.STAGE_POSE, time - start);
+
+        if (lod != LOD_FULL) {
+            // 低细节层级没有分部分构建的步骤，构建和绘制一起记在 draw 阶段
+            start = time;
+            drawSkeleton(canvas);
+            metrics.recordStage(FishMetrics.STAGE_DRAW, System.nanoTime() - start);
+            return;
+        }
+        boolean rebuild = !paths.matches(kinematics.points, 0, LOD_FULL);
+        if (rebuild) {
+            // 与 FishDisplayList.record() 录下的命令相同
+            FishDisplayList list = paths.getDisplayList();
+            start = time;
+            list.reset();
+            FishOutline.addHead(kinematics, list);
+            time = System.nanoTime();
+            metrics.recordStage(FishMetrics.STAGE_HEAD, time - start);
+
+            start = time;
+            FishOutline.addFins(kinematics, list);
+            time = System.nanoTime();
+            metrics.recordStage(FishMetrics.STAGE_FINS, time - start);
+
+            start = time;
+            FishOutline.addSegments(kinematics, list);
+            time = System.nanoTime();
+            metrics.recordStage(FishMetrics.STAGE_SEGMENTS, time - start);
+
+            start = time;
+            FishOutline.addTails(kinematics, list);
+            time = System.nanoTime();
+            metrics.recordStage(FishMetrics.STAGE_TRIANGLES, time - start);
+
+            start = time;
+            FishOutline.addBody(kinematics, list);
+            list.setKey(kinematics.points, 0, LOD_FULL);
+            time = System.nanoTime();
+            metrics.recordStage(FishMetrics.STAGE_BODY, time - start);
+        }
+
+        start = time;
+        if (rebuild) {
+            paths.build();
+        }
+        paths.draw(canvas, mPaint);
+        metrics.recordStage(FishMetrics.STAGE_DRAW, System.nanoTime() - start);
     }
 
     /**
@@ -294,6 +358,9 @@ public class FishDrawable extends Drawable {
     @Override
     public void setColorFilter(@Nullable ColorFilter colorFilter) {
         mPaint.setColorFilter(colorFilter);
+        if (spritePaint != null) {
+            spritePaint.setColorFilter(colorFilter);
+        }
     }
 
     @Override
@@ -311,20 +378,59 @@ public class FishDrawable extends Drawable {
         return (int) (SIZE_MULTIPLE_NUMBER * HEAD_RADIUS);
     }
 
+    /**
+     * 设置分阶段耗时统计，传 null 关闭统计
+     */
+    public void setMetrics(@Nullable FishMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    public FishMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置细节层级，取值为 {@link #LOD_FULL}、{@link #LOD_SILHOUETTE} 或 {@link #LOD_SPRITE}
+     */
+    public void setLod(int lod) {
+        this.lod = lod;
+    }
+
+    public int getLod() {
+        return lod;
+    }
+
     public PointF getMiddlePoint() {
         return middlePoint;
     }
 
     public PointF getHeadPoint() {
+        updatePose();
         return headPoint;
     }
 
+    public float getAnimatorValue() {
+        return currentAnimatorValue;
+    }
+
+    public void setAnimatorValue(float animatorValue) {
+        this.currentAnimatorValue = animatorValue;
+        poseDirty = true;
+    }
+
     public void setFrequency(float frequency) {
         this.frequency = frequency;
+        poseDirty = true;
+    }
+
+    public float getFishMainAngle() {
+        return fishMainAngle;
     }
 
     public void setFishMainAngle(float fishMainAngle) {
         this.fishMainAngle = fishMainAngle;
+        poseDirty = true;
     }
 
     public float getFinsValue() {
@@ -333,5 +439,6 @@ public class FishDrawable extends Drawable {
 
     public void setFinsValue(float finsValue) {
         this.finsValue = finsValue;
+        poseDirty = true;
     }
 }
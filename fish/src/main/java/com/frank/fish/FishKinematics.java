@@ -0,0 +1,367 @@
+package com.frank.fish;
+
+/**
+ * 鱼的骨架计算，纯 Java 实现，不依赖任何 Android 类。
+ * <p>
+ * 绘制一帧鱼需要的所有点都写入预先分配好的 float 数组 {@link #points} 中，第 i 个点的
+ * x、y 坐标分别保存在下标 2i、2i+1 处，因此稳态下每帧计算不会创建任何对象。
+ * <p>
+ * 三角函数通过 {@link FishTrig} 查表计算，鱼身、节肢和尾巴的摆动量来自 {@link OscillationCurves}。
+ */
+public class FishKinematics {
+
+    /**
+     * 鱼的尺寸常量，含义与 FishDrawable 中原先的定义一致
+     */
+    // 鱼头半径
+    public static final int HEAD_RADIUS = 50;
+
+    // 鱼身长度
+    public static final float BODY_LENGTH = 3.2f * HEAD_RADIUS;
+
+    // 鱼鳍起点与鱼头圆心连线长度
+    public static final float FIND_FINS_LENGTH = 0.9f * HEAD_RADIUS;
+
+    // 鱼鳍长度
+    public static final float FINS_LENGTH = 1.3f * HEAD_RADIUS;
+
+    // 节肢大圆半径
+    public static final float BIG_CIRCLE_RADIUS = 0.7f * HEAD_RADIUS;
+
+    // 节肢中圆半径
+    public static final float MIDDLE_CIRCLE_RADIUS = 0.6f * BIG_CIRCLE_RADIUS;
+
+    // 节肢小圆半径
+    public static final float SMALL_CIRCLE_RADIUS = 0.4f * MIDDLE_CIRCLE_RADIUS;
+
+    // 大圆与中圆圆心距离
+    public static final float BIG_MIDDLE_CENTER_LENGTH = BIG_CIRCLE_RADIUS + MIDDLE_CIRCLE_RADIUS;
+
+    // 中圆到大三角形底边中点的距离
+    public static final float FIND_TRIANGLE_LENGTH = MIDDLE_CIRCLE_RADIUS * 2.7f;
+
+    // 中圆与小圆圆心距离
+    public static final float MIDDLE_SMALL_CENTER_LENGTH = MIDDLE_CIRCLE_RADIUS * (0.4f + 2.7f);
+
+    // 属性动画值的上限，动画值在 [0, 720) 之间循环
+    public static final float MAX_ANIMATOR_VALUE = 720f;
+
+    // 属性动画值从 0 变化到 720 所用的时间
+    public static final long ANIMATOR_PERIOD_NANOS = 2000 * 1000000L;
+
+    // 朝向 0° 时任意姿态下鱼相对重心的最大范围：鱼头在右侧，最远到 2.6R；尾巴在左侧，摆动时最远约 4.2R；上下各约 3.1R
+    public static final float MAX_EXTENT_LEFT = -4.2f * HEAD_RADIUS;
+    public static final float MAX_EXTENT_RIGHT = 2.6f * HEAD_RADIUS;
+    public static final float MAX_HALF_HEIGHT = 3.1f * HEAD_RADIUS;
+
+    // 鱼从尾尖到鱼头的最大长度，用来估算鱼在屏幕上的大小
+    public static final float FISH_LENGTH = MAX_EXTENT_RIGHT - MAX_EXTENT_LEFT;
+
+    // 鱼鳍控制点与起点连线和鱼头方向的夹角
+    private static final float FINS_CONTROL_ANGLE = 110;
+
+    // 鱼鳍控制点在鱼身方向上的投影长度，以及最远控制点到投影点的距离，都只与常量有关，提前算好
+    private static final float FINS_CONTROL_CROSS_LENGTH =
+            (float) (FINS_LENGTH * 1.8f * Math.cos(Math.toRadians(70)));
+    private static final float FINS_CONTROL_LINE_LENGTH =
+            (float) Math.abs(Math.tan(Math.toRadians(FINS_CONTROL_ANGLE)) * FINS_CONTROL_CROSS_LENGTH);
+
+    /**
+     * 骨架点的下标
+     */
+    // 鱼头圆心
+    public static final int HEAD = 0;
+    // 左右鱼鳍的起点、控制点和终点
+    public static final int LEFT_FIN_START = 1;
+    public static final int LEFT_FIN_CONTROL = 2;
+    public static final int LEFT_FIN_END = 3;
+    public static final int RIGHT_FIN_START = 4;
+    public static final int RIGHT_FIN_CONTROL = 5;
+    public static final int RIGHT_FIN_END = 6;
+    // 节肢1：大圆圆心、梯形四个角和中圆圆心
+    public static final int BIG_CIRCLE = 7;
+    public static final int SEGMENT1_UPPER_LEFT = 8;
+    public static final int SEGMENT1_UPPER_RIGHT = 9;
+    public static final int SEGMENT1_BOTTOM_LEFT = 10;
+    public static final int SEGMENT1_BOTTOM_RIGHT = 11;
+    public static final int MIDDLE_CIRCLE = 12;
+    // 节肢2：梯形四个角和小圆圆心
+    public static final int SEGMENT2_UPPER_LEFT = 13;
+    public static final int SEGMENT2_UPPER_RIGHT = 14;
+    public static final int SEGMENT2_BOTTOM_LEFT = 15;
+    public static final int SEGMENT2_BOTTOM_RIGHT = 16;
+    public static final int SMALL_CIRCLE = 17;
+    // 尾巴两个三角形除中圆圆心以外的顶点
+    public static final int BIG_TRIANGLE_LEFT = 18;
+    public static final int BIG_TRIANGLE_RIGHT = 19;
+    public static final int SMALL_TRIANGLE_LEFT = 20;
+    public static final int SMALL_TRIANGLE_RIGHT = 21;
+    // 身体两侧贝塞尔曲线的起止点和控制点
+    public static final int BODY_UPPER_LEFT = 22;
+    public static final int BODY_UPPER_RIGHT = 23;
+    public static final int BODY_BOTTOM_LEFT = 24;
+    public static final int BODY_BOTTOM_RIGHT = 25;
+    public static final int BODY_CONTROL_LEFT = 26;
+    public static final int BODY_CONTROL_RIGHT = 27;
+
+    public static final int POINT_COUNT = 28;
+
+    // 所有骨架点，第 i 个点保存在 [2i, 2i+1]
+    public final float[] points = new float[POINT_COUNT * 2];
+
+    // 包围盒的下标
+    public static final int LEFT = 0;
+    public static final int TOP = 1;
+    public static final int RIGHT = 2;
+    public static final int BOTTOM = 3;
+
+    // 当前姿态实际绘制内容的包围盒，依次为 left、top、right、bottom
+    public final float[] bounds = new float[4];
+
+    private final FishTrig trig;
+
+    // 鱼身摆动后的实际朝向
+    private float fishAngle;
+
+    // 节肢1、节肢2（同时也是尾巴）的朝向
+    private float segment1Angle;
+    private float segment2Angle;
+
+    public FishKinematics() {
+        this(FishTrig.DEFAULT);
+    }
+
+    /**
+     * @param trig 计算骨架点时使用的三角函数表，可以按需要的精度配置
+     */
+    public FishKinematics(FishTrig trig) {
+        this.trig = trig;
+    }
+
+    /**
+     * 根据姿态参数计算出一帧所需的全部骨架点
+     *
+     * @param middleX       鱼的重心 x 坐标
+     * @param middleY       鱼的重心 y 坐标
+     * @param fishMainAngle 鱼的朝向与x轴正方向的夹角
+     * @param animatorValue 属性动画值，范围 [0, 720)
+     * @param frequency     鱼尾摆动的频率
+     * @param finsValue     鱼鳍摆动控制
+     */
+    public void compute(float middleX, float middleY, float fishMainAngle, float animatorValue,
+                        float frequency, float finsValue) {
+        float fishAngle = fishAngle(fishMainAngle, animatorValue);
+        computePoints(middleX, middleY, fishAngle, segment1Angle(fishAngle, animatorValue, frequency),
+                segment2Angle(fishAngle, animatorValue, frequency), tailEdgeLength(animatorValue), finsValue);
+    }
+
+    /**
+     * 累计运行 elapsedNanos 纳秒后的属性动画值，范围 [0, 720)
+     */
+    public static float animatorValueOf(long elapsedNanos) {
+        return (float) (elapsedNanos % ANIMATOR_PERIOD_NANOS) / ANIMATOR_PERIOD_NANOS * MAX_ANIMATOR_VALUE;
+    }
+
+    /**
+     * 鱼身摆动后的实际朝向
+     */
+    public static float fishAngle(float fishMainAngle, float animatorValue) {
+        return fishMainAngle + OscillationCurves.bodySwing(animatorValue);
+    }
+
+    /**
+     * 节肢1的朝向
+     */
+    public static float segment1Angle(float fishAngle, float animatorValue, float frequency) {
+        return fishAngle + OscillationCurves.segment1Swing(animatorValue, frequency);
+    }
+
+    /**
+     * 节肢2的朝向，尾巴与节肢2朝向相同
+     */
+    public static float segment2Angle(float fishAngle, float animatorValue, float frequency) {
+        return fishAngle + OscillationCurves.segment2Swing(animatorValue, frequency);
+    }
+
+    /**
+     * 大三角形对边长度的一半
+     */
+    public static float tailEdgeLength(float animatorValue) {
+        return OscillationCurves.tailEdgeLength(animatorValue);
+    }
+
+    /**
+     * 各部分朝向已经算好（例如鱼群批量计算）时，直接据此计算全部骨架点
+     */
+    public void computePoints(float middleX, float middleY, float fishAngle, float segment1Angle,
+                              float segment2Angle, float findEdgeLength, float finsValue) {
+        this.fishAngle = fishAngle;
+        this.segment1Angle = segment1Angle;
+        this.segment2Angle = segment2Angle;
+
+        // 1.鱼头圆心与重心距离为鱼身长一半
+        setPoint(HEAD, middleX, middleY, BODY_LENGTH / 2, fishAngle);
+        float headX = x(HEAD);
+        float headY = y(HEAD);
+
+        // 2.鱼鳍
+        computeFin(LEFT_FIN_START, headX, headY, true, finsValue);
+        computeFin(RIGHT_FIN_START, headX, headY, false, finsValue);
+
+        // 3.节肢
+        setPoint(BIG_CIRCLE, headX, headY, BODY_LENGTH, fishAngle - 180);
+        computeSegment(BIG_CIRCLE, SEGMENT1_UPPER_LEFT, BIG_CIRCLE_RADIUS, MIDDLE_CIRCLE_RADIUS,
+                BIG_MIDDLE_CENTER_LENGTH, segment1Angle);
+        computeSegment(MIDDLE_CIRCLE, SEGMENT2_UPPER_LEFT, MIDDLE_CIRCLE_RADIUS, SMALL_CIRCLE_RADIUS,
+                MIDDLE_SMALL_CENTER_LENGTH, segment2Angle);
+
+        // 4.尾巴，两个三角形共用中圆圆心这个顶点，朝向与节肢2相同
+        computeTriangle(BIG_TRIANGLE_LEFT, FIND_TRIANGLE_LENGTH, findEdgeLength);
+        computeTriangle(SMALL_TRIANGLE_LEFT, FIND_TRIANGLE_LENGTH - 10, findEdgeLength - 20);
+
+        // 5.身体
+        float bigX = x(BIG_CIRCLE);
+        float bigY = y(BIG_CIRCLE);
+        setPoint(BODY_UPPER_LEFT, headX, headY, HEAD_RADIUS, fishAngle + 90);
+        setPoint(BODY_UPPER_RIGHT, headX, headY, HEAD_RADIUS, fishAngle - 90);
+        setPoint(BODY_BOTTOM_LEFT, bigX, bigY, BIG_CIRCLE_RADIUS, fishAngle + 90);
+        setPoint(BODY_BOTTOM_RIGHT, bigX, bigY, BIG_CIRCLE_RADIUS, fishAngle - 90);
+        setPoint(BODY_CONTROL_LEFT, headX, headY, BODY_LENGTH * 0.56f, fishAngle + 130);
+        setPoint(BODY_CONTROL_RIGHT, headX, headY, BODY_LENGTH * 0.56f, fishAngle - 130);
+
+        computeBounds();
+    }
+
+    /**
+     * 计算包围盒。鱼鳍和身体的二阶贝塞尔曲线一定落在起点、控制点、终点构成的三角形内，
+     * 梯形和尾巴三角形由顶点决定，所以所有骨架点的范围再加上四个圆各自的半径就能包住整条鱼。
+     */
+    private void computeBounds() {
+        float left = points[0];
+        float top = points[1];
+        float right = left;
+        float bottom = top;
+        for (int i = 2; i < POINT_COUNT * 2; i += 2) {
+            float x = points[i];
+            float y = points[i + 1];
+            if (x < left) {
+                left = x;
+            } else if (x > right) {
+                right = x;
+            }
+            if (y < top) {
+                top = y;
+            } else if (y > bottom) {
+                bottom = y;
+            }
+        }
+        bounds[LEFT] = left;
+        bounds[TOP] = top;
+        bounds[RIGHT] = right;
+        bounds[BOTTOM] = bottom;
+        includeCircle(HEAD, HEAD_RADIUS);
+        includeCircle(BIG_CIRCLE, BIG_CIRCLE_RADIUS);
+        includeCircle(MIDDLE_CIRCLE, MIDDLE_CIRCLE_RADIUS);
+        includeCircle(SMALL_CIRCLE, SMALL_CIRCLE_RADIUS);
+    }
+
+    private void includeCircle(int index, float radius) {
+        float x = x(index);
+        float y = y(index);
+        bounds[LEFT] = Math.min(bounds[LEFT], x - radius);
+        bounds[TOP] = Math.min(bounds[TOP], y - radius);
+        bounds[RIGHT] = Math.max(bounds[RIGHT], x + radius);
+        bounds[BOTTOM] = Math.max(bounds[BOTTOM], y + radius);
+    }
+
+    /**
+     * 计算鱼鳍的起点、控制点和终点，三个点的下标是连续的
+     */
+    private void computeFin(int startIndex, float headX, float headY, boolean isLeftFin, float finsValue) {
+        setPoint(startIndex, headX, headY, FIND_FINS_LENGTH,
+                isLeftFin ? fishAngle + FINS_CONTROL_ANGLE : fishAngle - FINS_CONTROL_ANGLE);
+        float startX = x(startIndex);
+        float startY = y(startIndex);
+        // 终点方向与鱼头方向相反
+        setPoint(startIndex + 2, startX, startY, FINS_LENGTH, fishAngle - 180);
+        // 控制点先借用自己的位置保存 controlFishCrossPoint，再以它为起点求出真正的控制点
+        int control = startIndex + 1;
+        setPoint(control, startX, startY, FINS_CONTROL_CROSS_LENGTH, fishAngle - 180);
+        setPoint(control, x(control), y(control), FINS_CONTROL_LINE_LENGTH - finsValue,
+                isLeftFin ? fishAngle + 90 : fishAngle - 90);
+    }
+
+    /**
+     * 计算节肢梯形的四个角以及较小圆的圆心，梯形四个角的下标从 upperLeftIndex 开始连续排列，
+     * 较小圆圆心紧随其后
+     */
+    private void computeSegment(int bigCircleIndex, int upperLeftIndex, float bigCircleRadius,
+                                float smallCircleRadius, float circleCenterLength, float segmentAngle) {
+        float bigX = x(bigCircleIndex);
+        float bigY = y(bigCircleIndex);
+        int smallCircleIndex = upperLeftIndex + 4;
+        setPoint(smallCircleIndex, bigX, bigY, circleCenterLength, segmentAngle - 180);
+        float smallX = x(smallCircleIndex);
+        float smallY = y(smallCircleIndex);
+        setPoint(upperLeftIndex, bigX, bigY, bigCircleRadius, segmentAngle + 90);
+        setPoint(upperLeftIndex + 1, bigX, bigY, bigCircleRadius, segmentAngle - 90);
+        setPoint(upperLeftIndex + 2, smallX, smallY, smallCircleRadius, segmentAngle + 90);
+        setPoint(upperLeftIndex + 3, smallX, smallY, smallCircleRadius, segmentAngle - 90);
+    }
+
+    /**
+     * 计算尾巴三角形除中圆圆心外的两个顶点，下标连续排列
+     *
+     * @param toEdgeMiddleLength 中圆圆心到对边中点的距离
+     * @param edgeLength         对边长度
+     */
+    private void computeTriangle(int leftIndex, float toEdgeMiddleLength, float edgeLength) {
+        // 先求对边中点，暂存在右侧顶点的位置上
+        int rightIndex = leftIndex + 1;
+        setPoint(rightIndex, x(MIDDLE_CIRCLE), y(MIDDLE_CIRCLE), toEdgeMiddleLength, segment2Angle - 180);
+        float edgeMiddleX = x(rightIndex);
+        float edgeMiddleY = y(rightIndex);
+        setPoint(leftIndex, edgeMiddleX, edgeMiddleY, edgeLength, segment2Angle + 90);
+        setPoint(rightIndex, edgeMiddleX, edgeMiddleY, edgeLength, segment2Angle - 90);
+    }
+
+    /**
+     * 利用三角函数，通过两点形成的线长以及该线与x轴形成的夹角求出待求点坐标，
+     * 结果写入第 index 个点。
+     */
+    private void setPoint(int index, float startX, float startY, float length, float angle) {
+        points[index * 2] = startX + trig.cos(angle) * length;
+        // 屏幕坐标系Y轴向下，与数学坐标系相反
+        points[index * 2 + 1] = startY - trig.sin(angle) * length;
+    }
+
+    /**
+     * 直接使用别处（例如 PoseWorker）算好的骨架点，不重新计算包围盒和各部分朝向
+     *
+     * @param source 保存骨架点的数组
+     * @param offset 第一个点的 x 坐标在 source 中的下标
+     */
+    public void setPoints(float[] source, int offset) {
+        System.arraycopy(source, offset, points, 0, POINT_COUNT * 2);
+    }
+
+    public float x(int index) {
+        return points[index * 2];
+    }
+
+    public float y(int index) {
+        return points[index * 2 + 1];
+    }
+
+    public float getFishAngle() {
+        return fishAngle;
+    }
+
+    public float getSegment1Angle() {
+        return segment1Angle;
+    }
+
+    public float getSegment2Angle() {
+        return segment2Angle;
+    }
+}
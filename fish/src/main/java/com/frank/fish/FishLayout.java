@@ -1,31 +1,79 @@
 package com.frank.fish;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PathMeasure;
 import android.graphics.PointF;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.MotionEvent;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
+/**
+ * 鱼缸：一条跟随触摸游动的鱼（或一个鱼群）、障碍物、触摸产生的波纹或水面，以及统计面板。
+ * <p>
+ * 默认在主线程中用属性动画和 {@link FishClock} 推进，在 onDraw 中绘制。
+ * {@link #setRenderThreadEnabled(boolean)} 切换为渲染线程模式，改由铺满整个布局的 {@link FishSurfaceView}
+ * 在独立线程中推进和绘制，本类的设置方法都转交给它，Activity 仍然只需要调用 onPause() 和 onResume()。
+ */
 public class FishLayout extends RelativeLayout {
 
+    // 同时存在的波纹的最大数量
+    private static final int MAX_RIPPLES = 32;
+    // 障碍物距离场的格子边长
+    private static final float OBSTACLE_CELL_SIZE = 32f;
+
     private Paint mPaint;
     private ImageView ivFish;
     private FishDrawable fishDrawable;
-    private float touchX, touchY;
-    private float ripple;
-    private int alpha;
+    // 控制单条鱼游向触摸点
+    private SwimController swimController;
+
+    // 所有鱼共用的动画时钟
+    private FishClock fishClock;
+
+    // 鱼群模式，鱼群在 schoolWorker 的后台线程中推进并算好骨架点，主线程只用 schoolRenderer 画出
+    private PoseWorker schoolWorker;
+    // 上一次画出的骨架点快照的序号
+    private long drawnPoseSequence;
+    private int schoolSize;
+    private final SchoolRenderer schoolRenderer = new SchoolRenderer();
+    // 所有波纹的状态，由时钟统一推进，在 onDraw 中一次画完
+    private final RipplePool ripplePool = new RipplePool(MAX_RIPPLES);
+    // 推进前后波纹的包围盒，两者的并集就是本帧需要重绘的区域
+    private final float[] rippleBounds = new float[4];
+    private final float[] lastRippleBounds = new float[4];
+
+    // 所在的 Activity 是否处于暂停状态
+    private boolean paused;
+
+    // 石头、荷叶等障碍物，单条鱼游动时绕开它们
+    private final ObstacleField obstacles = new ObstacleField();
+    private Paint obstaclePaint;
+
+    // 水面高度场，格子边长为 0 时不创建，触摸仍然产生圆形波纹
+    private float waterCellSize;
+    private WaterRenderer waterRenderer;
+    private int waterColor = 0xff7ec8e3;
+
+    // 帧耗时统计与屏幕上的统计面板，默认都不创建
+    private FishMetrics metrics;
+    private MetricsHud metricsHud;
+
+    // 鱼群精灵缓存的内存预算，渲染线程模式下交给 surfaceView，本类不创建图集
+    private long spriteCacheBudget;
+
+    // 渲染线程模式下铺满布局、负责推进和绘制整个鱼缸，为 null 时在主线程中推进和绘制
+    private FishSurfaceView surfaceView;
 
     public FishLayout(Context context) {
         this(context, null);
@@ -60,161 +108,587 @@ public class FishLayout extends RelativeLayout {
         fishDrawable = new FishDrawable();
         ivFish.setImageDrawable(fishDrawable);
         addView(ivFish);
-    }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        touchX = event.getX();
-        touchY = event.getY();
-        makeRippleAnimation();
-        makeMovingPath();
-        return super.onTouchEvent(event);
-    }
-
-    private void makeRippleAnimation() {
-        // 波纹画笔初始透明度，随着动画变浅
-        mPaint.setAlpha(100);
-        // 可以没有 ripple 这个属性，但是一定要有 getRipple() 和 setRipple() 方法，反射时要用到
-        ObjectAnimator rippleAnimator = ObjectAnimator.ofFloat(this, "ripple", 0, 1f)
-                .setDuration(1000);
-        rippleAnimator.start();
-    }
-
-    /**
-     * 绘制鱼游动的三阶贝塞尔曲线
-     */
-    private void makeMovingPath() {
-        /**
-         * 1、先求出图中重心点、控制点1和结束点（即点击点）在当前ViewGroup中的绝对坐标备用
-         */
-        // 鱼的重心在 FishDrawable 中的坐标
-        PointF fishRelativeMiddlePoint = fishDrawable.getMiddlePoint();
-        // 鱼的重心在当前 ViewGroup 中的绝对坐标——起始点O
-        PointF fishMiddlePoint = new PointF(ivFish.getX() + fishRelativeMiddlePoint.x,
-                ivFish.getY() + fishRelativeMiddlePoint.y);
-        // 鱼头圆心的相对坐标和绝对坐标——控制点1 A
-        PointF fishRelativeHeadPoint = fishDrawable.getHeadPoint();
-        PointF fishHeadPoint = new PointF(ivFish.getX() + fishRelativeHeadPoint.x,
-                ivFish.getY() + fishRelativeHeadPoint.y);
-        // 点击坐标——结束点B
-        PointF endPoint = new PointF(touchX, touchY);
-
-        /**
-         * 2、求控制点2——C的坐标。先求OC与x轴的夹角，已知∠AOC是∠AOB的一半，那么所求夹角就是∠AOC-∠AOX，
-         * 因为在 calculateAngle() 中已经对角度正负做了处理，因此带入时用 angleAOC + angleAOX。
-         * todo
-         */
-        float angleAOC = calculateAngle(fishMiddlePoint, fishHeadPoint, endPoint) / 2;
-        float angleAOX = calculateAngle(fishHeadPoint, fishHeadPoint, new PointF(fishMiddlePoint.x + 1, fishMiddlePoint.y));
-        PointF controlPointC = fishDrawable.calculatePoint(fishMiddlePoint,
-                FishDrawable.HEAD_RADIUS * 1.6f, angleAOC + angleAOX);
-
-        /**
-         * 3、绘制曲线，注意属性动画只是将 ivFish 这个 ImageView 的 x，y 平移了，并没有实现鱼头
-         * 角度的转动，并且平移时为了保证是鱼的重心平移到被点击的点，path 中的坐标都要减去鱼的重心
-         * 相对 ImageView 的坐标（否则平移的点以 ImageView 的左上角为准）。
-         */
-        Path path = new Path();
-        path.moveTo(fishMiddlePoint.x - fishRelativeMiddlePoint.x, fishMiddlePoint.y - fishRelativeMiddlePoint.y);
-        path.cubicTo(fishHeadPoint.x - fishRelativeMiddlePoint.x, fishHeadPoint.y - fishRelativeMiddlePoint.y,
-                controlPointC.x - fishRelativeMiddlePoint.x, controlPointC.y - fishRelativeMiddlePoint.y,
-                endPoint.x - fishRelativeMiddlePoint.x, endPoint.y - fishRelativeMiddlePoint.y);
-        ObjectAnimator objectAnimator = ObjectAnimator.ofFloat(ivFish, "x", "y", path);
-        objectAnimator.setDuration(2000);
-        objectAnimator.addListener(new AnimatorListenerAdapter() {
-            // 鱼开始游动时，摆尾频率更快一些。
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                fishDrawable.setFrequency(1f);
-            }
+        swimController = new SwimController(ivFish, fishDrawable);
+        swimController.setPathPlanner(new PathPlanner(obstacles));
+
+        obstaclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        obstaclePaint.setColor(0xff5d6b5a);
 
+        fishClock = new FishClock();
+        fishClock.addFish(fishDrawable, 0);
+        fishClock.addOnTickListener(swimController);
+        fishClock.addOnTickListener(new FishClock.OnTickListener() {
             @Override
-            public void onAnimationStart(Animator animation) {
-                super.onAnimationStart(animation);
-                fishDrawable.setFrequency(3f);
-
-                // 鱼鳍摆动动画，动画时间和重复次数具有随机性
-                ObjectAnimator finsAnimator = ObjectAnimator.ofFloat(fishDrawable, "finsValue",
-                        0, FishDrawable.HEAD_RADIUS * 2, 0);
-                finsAnimator.setDuration((new Random().nextInt(1) + 1) * 500);
-                finsAnimator.setRepeatCount(new Random().nextInt(4));
-                finsAnimator.start();
+            public void onTick(long frameTimeNanos, long deltaNanos) {
+                invalidateRipples(deltaNanos);
+                if (waterRenderer != null) {
+                    advanceWater(deltaNanos);
+                }
+                if (schoolWorker != null) {
+                    schoolWorker.requestFrame(deltaNanos);
+                    LodController lod = schoolRenderer.getLodController();
+                    if (lod != null) {
+                        lod.onFrame(deltaNanos);
+                    }
+                    invalidate();
+                }
+                if (metricsHud != null) {
+                    invalidate(metricsHud.getBounds());
+                }
             }
         });
+    }
 
-        /**
-         * 4、鱼头方向与贝塞尔曲线的切线方向保持一致，从而实现鱼的调头
-         */
-        final float[] tan = new float[2];
-        final PathMeasure pathMeasure = new PathMeasure(path, false);
-        objectAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                // 获取到动画当前执行的百分比
-                float fraction = animation.getAnimatedFraction();
-                // 把动画执行的百分比转换成已经走过的路径，再借助 PathMeasure 计算
-                // 出当前所处的点的位置（用不到传了null）和正切tan值
-                pathMeasure.getPosTan(pathMeasure.getLength() * fraction, null, tan);
-                // 利用正切值计算出的角度正是曲线上当前点的切线角度，注意
-                // 表示纵坐标的tan[1]取了反还是因为数学与屏幕坐标系Y轴相反的缘故。
-                float angle = (float) Math.toDegrees(Math.atan2(-tan[1], tan[0]));
-                // 让鱼头方向转向切线方向
-                fishDrawable.setFishMainAngle(angle);
+    /**
+     * 推进所有波纹，只刷新推进前后波纹所在区域的并集，而不是整个 View
+     */
+    private void invalidateRipples(long deltaNanos) {
+        float strokeWidth = mPaint.getStrokeWidth();
+        // 推进前的包围盒覆盖了上一帧画出的波纹以及之后新按下的波纹
+        if (!ripplePool.computeBounds(strokeWidth, lastRippleBounds)) {
+            return;
+        }
+        ripplePool.advance(deltaNanos / 1e9f);
+        float left = lastRippleBounds[0];
+        float top = lastRippleBounds[1];
+        float right = lastRippleBounds[2];
+        float bottom = lastRippleBounds[3];
+        if (ripplePool.computeBounds(strokeWidth, rippleBounds)) {
+            left = Math.min(left, rippleBounds[0]);
+            top = Math.min(top, rippleBounds[1]);
+            right = Math.max(right, rippleBounds[2]);
+            bottom = Math.max(bottom, rippleBounds[3]);
+        }
+        // 多留一个像素给抗锯齿
+        invalidate((int) Math.floor(left) - 1, (int) Math.floor(top) - 1,
+                (int) Math.ceil(right) + 1, (int) Math.ceil(bottom) + 1);
+    }
+
+    /**
+     * 单条鱼游动时在鱼头处留下尾迹，推进水面，有变化时整个重绘
+     */
+    private void advanceWater(long deltaNanos) {
+        if (schoolWorker == null) {
+            PointF headPoint = fishDrawable.getHeadPoint();
+            waterRenderer.wake(ivFish.getX() + headPoint.x, ivFish.getY() + headPoint.y);
+        }
+        if (waterRenderer.advance(deltaNanos)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 在 (x, y) 处放一个半径为 radius 的圆形障碍物，单条鱼游动时会绕开它
+     *
+     * @return 障碍物的下标，用于 {@link #removeObstacle(int)}
+     */
+    public int addObstacle(float x, float y, float radius) {
+        int index = obstacles.add(x, y, radius);
+        if (surfaceView != null) {
+            surfaceView.addObstacle(x, y, radius);
+        }
+        invalidate();
+        return index;
+    }
+
+    /**
+     * 移除第 index 个障碍物，原来的最后一个障碍物改用 index 作为下标
+     */
+    public void removeObstacle(int index) {
+        obstacles.remove(index);
+        if (surfaceView != null) {
+            surfaceView.removeObstacle(index);
+        }
+        invalidate();
+    }
+
+    public void clearObstacles() {
+        obstacles.clear();
+        if (surfaceView != null) {
+            surfaceView.clearObstacles();
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置水面高度场每个格子的边长，大于 0 时开启：触摸和单条鱼游动都会激起水波，在多个核心上并行模拟。
+     * 格子越小越精细，开销随格子数线性增长。为 0 时关闭，触摸恢复为圆形波纹
+     */
+    public void setWaterCellSize(float cellSize) {
+        waterCellSize = Math.max(0, cellSize);
+        if (surfaceView != null) {
+            surfaceView.setWaterCellSize(waterCellSize);
+        }
+        createWater();
+    }
+
+    public float getWaterCellSize() {
+        return waterCellSize;
+    }
+
+    /**
+     * 水面平静时的颜色
+     */
+    public void setWaterColor(int color) {
+        waterColor = color;
+        if (surfaceView != null) {
+            surfaceView.setWaterColor(color);
+        }
+        if (waterRenderer != null) {
+            waterRenderer.setColor(color);
+            invalidate();
+        }
+    }
+
+    private void createWater() {
+        if (waterRenderer != null) {
+            waterRenderer.release();
+            waterRenderer = null;
+        }
+        // 渲染线程模式下水面由 surfaceView 创建
+        if (surfaceView == null && waterCellSize > 0 && getWidth() > 0 && getHeight() > 0) {
+            waterRenderer = new WaterRenderer(getWidth(), getHeight(), waterCellSize);
+            waterRenderer.setColor(waterColor);
+        }
+        invalidate();
+    }
+
+    /**
+     * 开启或关闭帧耗时统计。关闭后统计对象被丢弃，绘制和每帧回调都回到不统计的路径上
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (surfaceView != null) {
+            surfaceView.setMetricsEnabled(enabled);
+            return;
+        }
+        if (enabled == (metrics != null)) {
+            return;
+        }
+        if (enabled) {
+            metrics = new FishMetrics();
+            updateExpectedFrameInterval();
+        } else {
+            metrics = null;
+            setMetricsHudVisible(false);
+        }
+        fishClock.setMetrics(metrics);
+        fishDrawable.setMetrics(metrics);
+    }
+
+    public boolean isMetricsEnabled() {
+        return surfaceView != null ? surfaceView.isMetricsEnabled() : metrics != null;
+    }
+
+    /**
+     * 显示或隐藏左上角的统计面板，显示时会自动开启统计
+     */
+    public void setMetricsHudVisible(boolean visible) {
+        if (surfaceView != null) {
+            surfaceView.setMetricsHudVisible(visible);
+            return;
+        }
+        if (visible) {
+            setMetricsEnabled(true);
+            if (metricsHud == null) {
+                metricsHud = new MetricsHud(metrics, getResources().getDisplayMetrics().density);
+                invalidate(metricsHud.getBounds());
             }
-        });
+        } else if (metricsHud != null) {
+            invalidate(metricsHud.getBounds());
+            metricsHud = null;
+        }
+    }
 
-        objectAnimator.start();
+    public boolean isMetricsHudVisible() {
+        return surfaceView != null ? surfaceView.isMetricsHudVisible() : metricsHud != null;
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        mPaint.setAlpha(alpha);
-        canvas.drawCircle(touchX, touchY, ripple * 100, mPaint);
+    /**
+     * 帧耗时统计，未开启时为 null。渲染线程模式下数值在渲染线程中更新
+     */
+    @Nullable
+    public FishMetrics getMetrics() {
+        return surfaceView != null ? surfaceView.getMetrics() : metrics;
     }
 
-    public float getRipple() {
-        return ripple;
+    /**
+     * 把目前为止的统计结果写入文件，未开启统计时抛出 IllegalStateException
+     */
+    public void dumpMetrics(File file) throws IOException {
+        if (surfaceView != null) {
+            surfaceView.dumpMetrics(file);
+            return;
+        }
+        if (metrics == null) {
+            throw new IllegalStateException("Metrics are not enabled");
+        }
+        metrics.dump(file);
+    }
+
+    /**
+     * 按当前屏幕的刷新率设置一帧的理想间隔，用来判断掉帧，同时作为细节层级的帧预算
+     */
+    private void updateExpectedFrameInterval() {
+        Display display = getDisplay();
+        if (display == null || display.getRefreshRate() <= 0) {
+            return;
+        }
+        long intervalNanos = (long) (1e9 / display.getRefreshRate());
+        if (metrics != null) {
+            metrics.setExpectedFrameIntervalNanos(intervalNanos);
+        }
+        LodController lod = schoolRenderer.getLodController();
+        if (lod != null) {
+            lod.setFrameBudgetNanos(intervalNanos);
+        }
     }
 
-    public void setRipple(float ripple) {
-        this.ripple = ripple;
-        alpha = (int) (100 * (1 - ripple));
+    /**
+     * 开启或关闭鱼群的自适应细节层级：鱼在屏幕上较小或者帧耗时超出预算时，
+     * 部分鱼改画剪影甚至只贴一张精灵，帧耗时回到预算内后逐步恢复
+     */
+    public void setSchoolLodEnabled(boolean enabled) {
+        if (enabled == (schoolRenderer.getLodController() != null)) {
+            return;
+        }
+        schoolRenderer.setLodController(enabled ? new LodController() : null);
+        if (surfaceView != null) {
+            surfaceView.setSchoolLodEnabled(enabled);
+        }
+        updateExpectedFrameInterval();
         invalidate();
     }
 
+    public boolean isSchoolLodEnabled() {
+        return schoolRenderer.getLodController() != null;
+    }
+
     /**
-     * 通过这个公式 cosAOB = (OA*OB)/(|OA|*|OB|) 计算出∠AOB的余弦值，
-     * 再通过反三角函数求得∠AOB的大小。
+     * 鱼群中最近画过的鱼各缓存一份绘制命令和据此构建好的路径，姿态没有变化的重绘（例如只有波纹或水面在动、
+     * 后台线程还没有算好新一帧）直接画缓存的路径。默认开启，最多缓存
+     * {@link SchoolRenderer#DEFAULT_DISPLAY_LIST_CAPACITY} 条鱼，每份约 900 字节以及六条 Path
      */
-    public float calculateAngle(PointF O, PointF A, PointF B) {
-        float vectorProduct = (A.x - O.x) * (B.x - O.x) + (A.y - O.y) * (B.y - O.y);
-        float lengthOA = (float) Math.sqrt((A.x - O.x) * (A.x - O.x) + (A.y - O.y) * (A.y - O.y));
-        float lengthOB = (float) Math.sqrt((B.x - O.x) * (B.x - O.x) + (B.y - O.y) * (B.y - O.y));
-        float cosAOB = vectorProduct / (lengthOA * lengthOB);
-        float angleAOB = (float) Math.toDegrees(Math.acos(cosAOB));
-
-        // 使用向量叉乘计算方向，先求出向量OA(Xo-Xa,Yo-Ya)、OB(Xo-Xb,Yo-Yb)，
-        // OA x OB = (Xo-Xa)*(Yo-Yb) - (Yo-Ya)*(Xo-Xb)，若结果小于0，则OA在OB的逆时针方向
-        float direction = (O.x - A.x) * (O.y - B.y) - (O.y - A.y) * (O.x - B.x);
-        // 另一种计算方式，通过AB和OB与x轴夹角大小判断
-        // float direction = (A.y - B.y) / (A.x - B.x) - (O.y - B.y) / (O.x - B.x);
-
-        if (direction == 0) {
-            // A、O、B 在同一条直线上的情况，可能同向，也可能反向，
-            // 要看向量积的正负进一步决定决定鱼的掉头方向。
-            if (vectorProduct >= 0) {
-                return 0;
+    public void setSchoolDisplayListsEnabled(boolean enabled) {
+        schoolRenderer.setDisplayListsEnabled(enabled);
+        if (surfaceView != null) {
+            surfaceView.setSchoolDisplayListCapacity(schoolRenderer.getDisplayListCapacity());
+        }
+        invalidate();
+    }
+
+    public boolean isSchoolDisplayListsEnabled() {
+        return schoolRenderer.isDisplayListsEnabled();
+    }
+
+    /**
+     * 设置最多缓存多少条鱼的路径，鱼数超过容量时最久没画过的鱼让出缓存；为 0 时关闭
+     */
+    public void setSchoolDisplayListCapacity(int capacity) {
+        schoolRenderer.setDisplayListCapacity(capacity);
+        if (surfaceView != null) {
+            surfaceView.setSchoolDisplayListCapacity(capacity);
+        }
+        invalidate();
+    }
+
+    public int getSchoolDisplayListCapacity() {
+        return schoolRenderer.getDisplayListCapacity();
+    }
+
+    /**
+     * 设置鱼群中鱼的数量，大于 0 时切换为鱼群模式，隐藏单条鱼；为 0 时恢复单条鱼
+     */
+    public void setSchoolSize(int size) {
+        schoolSize = size;
+        if (surfaceView != null) {
+            surfaceView.setSchoolSize(size);
+            return;
+        }
+        if (size <= 0) {
+            if (schoolWorker != null) {
+                schoolWorker.stop();
+                schoolWorker = null;
+            }
+            ivFish.setVisibility(VISIBLE);
+            invalidate();
+            return;
+        }
+        if (schoolWorker == null) {
+            schoolWorker = new PoseWorker(new FishSchool());
+        }
+        ivFish.setVisibility(GONE);
+        spawnSchool();
+        updateClockState();
+    }
+
+    /**
+     * 设置鱼群精灵缓存的内存预算，大于 0 时鱼群改为按量化后的姿态贴图绘制，为 0 时关闭并回收图集
+     */
+    public void setSchoolSpriteCacheBudget(long bytes) {
+        spriteCacheBudget = Math.max(0, bytes);
+        if (surfaceView != null) {
+            surfaceView.setSchoolSpriteCacheBudget(spriteCacheBudget);
+            return;
+        }
+        schoolRenderer.setSpriteCacheBudget(spriteCacheBudget);
+        invalidate();
+    }
+
+    /**
+     * 鱼群精灵缓存，可以读取命中、未命中次数，未开启时为 null
+     */
+    @Nullable
+    public FishSpriteCache getSchoolSpriteCache() {
+        return surfaceView != null ? surfaceView.getSchoolSpriteCache() : schoolRenderer.getSpriteCache();
+    }
+
+    public int getSchoolSize() {
+        return schoolSize;
+    }
+
+    private void spawnSchool() {
+        if (schoolWorker == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        // 工作线程运行时鱼群只能由它访问，先停下来再重新生成
+        boolean running = schoolWorker.isRunning();
+        schoolWorker.stop();
+        FishSchool school = schoolWorker.getSchool();
+        school.setBounds(getWidth(), getHeight());
+        school.spawn(schoolSize, new Random());
+        schoolWorker.refresh();
+        if (running) {
+            schoolWorker.start();
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        obstacles.resize(w, h, OBSTACLE_CELL_SIZE);
+        spawnSchool();
+        createWater();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateExpectedFrameInterval();
+        updateClockState();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        updateClockState();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateClockState();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateClockState();
+    }
+
+    /**
+     * 由 Activity 的 onPause() 调用，暂停所有鱼、波纹和鱼群的动画，恢复后从暂停时的姿态继续
+     */
+    public void onPause() {
+        paused = true;
+        if (surfaceView != null) {
+            surfaceView.onPause();
+        }
+        updateClockState();
+    }
+
+    /**
+     * 由 Activity 的 onResume() 调用
+     */
+    public void onResume() {
+        paused = false;
+        if (surfaceView != null) {
+            surfaceView.onResume();
+        }
+        updateClockState();
+    }
+
+    /**
+     * 只有 Activity 没有暂停、当前 View 已添加到窗口并且可见时才让时钟运行，否则暂停，不再消耗 CPU。
+     * 时钟暂停期间属性动画值、波纹和鱼群都不推进，单条鱼的游动和鱼鳍动画也一起暂停。
+     * 渲染线程模式下时钟一直暂停，surfaceView 的渲染线程随 Surface 的创建和销毁启停
+     */
+    private void updateClockState() {
+        // onVisibilityChanged() 可能在构造方法执行完之前就被回调
+        if (fishClock == null) {
+            return;
+        }
+        boolean running = surfaceView == null && !paused && isAttachedToWindow() && getWindowVisibility() == VISIBLE && isShown();
+        if (running) {
+            fishClock.start();
+            swimController.resume();
+        } else {
+            fishClock.pause();
+            swimController.pause();
+        }
+        // 鱼群的工作线程跟随时钟启停
+        if (schoolWorker != null) {
+            if (running) {
+                schoolWorker.start();
             } else {
-                return 180;
+                schoolWorker.stop();
             }
+        }
+    }
+
+    public FishClock getFishClock() {
+        return fishClock;
+    }
+
+    /**
+     * 开启时改由铺满布局的 {@link FishSurfaceView} 在独立的渲染线程中推进和绘制整个鱼缸，主线程卡顿时鱼照常游动；
+     * 关闭时回到主线程中推进和绘制。切换时把鱼群数量、障碍物、水面、细节层级、缓存和统计的设置都带过去，
+     * 鱼和鱼群的位置各自保留，不会从另一种模式接着游
+     */
+    public void setRenderThreadEnabled(boolean enabled) {
+        if (enabled == (surfaceView != null)) {
+            return;
+        }
+        if (enabled) {
+            boolean metricsEnabled = metrics != null;
+            boolean hudVisible = metricsHud != null;
+            // 主线程中的鱼群、水面、统计和精灵图集都不再需要
+            setMetricsEnabled(false);
+            if (schoolWorker != null) {
+                schoolWorker.stop();
+                schoolWorker = null;
+            }
+            schoolRenderer.setSpriteCacheBudget(0);
+            ripplePool.clear();
+
+            surfaceView = new FishSurfaceView(getContext());
+            surfaceView.setSchoolSize(schoolSize);
+            surfaceView.setSchoolLodEnabled(isSchoolLodEnabled());
+            surfaceView.setSchoolDisplayListCapacity(schoolRenderer.getDisplayListCapacity());
+            surfaceView.setSchoolSpriteCacheBudget(spriteCacheBudget);
+            surfaceView.setWaterCellSize(waterCellSize);
+            surfaceView.setWaterColor(waterColor);
+            for (int i = 0, count = obstacles.getCount(); i < count; i++) {
+                surfaceView.addObstacle(obstacles.getX(i), obstacles.getY(i), obstacles.getRadius(i));
+            }
+            surfaceView.setMetricsEnabled(metricsEnabled);
+            surfaceView.setMetricsHudVisible(hudVisible);
+            if (paused) {
+                surfaceView.onPause();
+            }
+            // 先设置好再添加，Surface 创建时渲染线程的第一帧就是完整的设置
+            surfaceView.setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT));
+            addView(surfaceView);
+            ivFish.setVisibility(GONE);
+            createWater();
+            updateClockState();
         } else {
-            if (direction > 0) {
-                // B在A的顺时针方向，为负
-                return -angleAOB;
+            boolean metricsEnabled = surfaceView.isMetricsEnabled();
+            boolean hudVisible = surfaceView.isMetricsHudVisible();
+            // 移除后 Surface 销毁，渲染线程随之结束
+            removeView(surfaceView);
+            surfaceView = null;
+            schoolRenderer.setSpriteCacheBudget(spriteCacheBudget);
+            setSchoolSize(schoolSize);
+            createWater();
+            setMetricsEnabled(metricsEnabled);
+            setMetricsHudVisible(hudVisible);
+            updateClockState();
+        }
+        invalidate();
+    }
+
+    public boolean isRenderThreadEnabled() {
+        return surfaceView != null;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        float touchX = event.getX();
+        float touchY = event.getY();
+        // 每次按下产生一个波纹
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            if (waterRenderer != null) {
+                waterRenderer.touch(touchX, touchY);
+            } else {
+                // 新波纹半径为 0，下一帧推进时才会画出来并刷新所在区域
+                ripplePool.spawn(touchX, touchY);
+            }
+        }
+        if (schoolWorker != null) {
+            // 鱼群模式下手指按住的位置会吸引鱼群，抬起后恢复自由游动
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                schoolWorker.clearTarget();
+            } else {
+                schoolWorker.setTarget(touchX, touchY);
+            }
+            return true;
+        }
+        // 拖动时也要持续收到事件，这里返回 true；每帧最多重新规划一次游动路线
+        swimController.requestTarget(touchX, touchY);
+        return true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        // 渲染线程模式下整个鱼缸都画在铺满布局的 surfaceView 上
+        if (surfaceView != null) {
+            return;
+        }
+        if (waterRenderer != null) {
+            waterRenderer.draw(canvas);
+        }
+        for (int i = 0, count = obstacles.getCount(); i < count; i++) {
+            canvas.drawCircle(obstacles.getX(i), obstacles.getY(i), obstacles.getRadius(i), obstaclePaint);
+        }
+        for (int i = 0, count = ripplePool.getCount(); i < count; i++) {
+            mPaint.setAlpha(ripplePool.getAlpha(i));
+            canvas.drawCircle(ripplePool.getX(i), ripplePool.getY(i), ripplePool.getRadius(i), mPaint);
+        }
+        if (schoolWorker != null) {
+            // 取工作线程最近发布的骨架点，这里只剩画布调用
+            PoseSnapshot poses = schoolWorker.acquire();
+            FishMetrics metrics = this.metrics;
+            if (metrics == null) {
+                schoolRenderer.draw(canvas, poses);
             } else {
-                return angleAOB;
+                if (poses.sequence != drawnPoseSequence && poses.computeNanos > 0) {
+                    metrics.recordStage(FishMetrics.STAGE_SCHOOL_STEP, poses.computeNanos);
+                }
+                long start = System.nanoTime();
+                schoolRenderer.draw(canvas, poses);
+                metrics.recordStage(FishMetrics.STAGE_SCHOOL_DRAW, System.nanoTime() - start);
             }
+            drawnPoseSequence = poses.sequence;
         }
     }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        // 统计面板画在所有子 View 之上
+        if (metricsHud != null) {
+            metricsHud.draw(canvas);
+        }
+    }
+
+    /**
+     * 计算∠AOB的大小，B在A的顺时针方向时为负，具体见 {@link FishMath#calculateAngle}
+     */
+    public float calculateAngle(PointF O, PointF A, PointF B) {
+        return FishMath.calculateAngle(O.x, O.y, A.x, A.y, B.x, B.y);
+    }
 }
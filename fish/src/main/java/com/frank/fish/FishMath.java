@@ -0,0 +1,72 @@
+package com.frank.fish;
+
+/**
+ * 鱼游动路径相关的数学计算，纯 Java 实现，不依赖 Android 类，便于在 JVM 上单独测试和做基准测试。
+ */
+public class FishMath {
+
+    private FishMath() {
+    }
+
+    /**
+     * 通过这个公式 cosAOB = (OA*OB)/(|OA|*|OB|) 计算出∠AOB的余弦值，
+     * 再通过反三角函数求得∠AOB的大小。B在A的顺时针方向时结果为负。
+     */
+    public static float calculateAngle(float ox, float oy, float ax, float ay, float bx, float by) {
+        float vectorProduct = (ax - ox) * (bx - ox) + (ay - oy) * (by - oy);
+        float lengthOA = (float) Math.sqrt((ax - ox) * (ax - ox) + (ay - oy) * (ay - oy));
+        float lengthOB = (float) Math.sqrt((bx - ox) * (bx - ox) + (by - oy) * (by - oy));
+        float cosAOB = vectorProduct / (lengthOA * lengthOB);
+        float angleAOB = (float) Math.toDegrees(Math.acos(cosAOB));
+
+        // 使用向量叉乘计算方向，先求出向量OA(Xo-Xa,Yo-Ya)、OB(Xo-Xb,Yo-Yb)，
+        // OA x OB = (Xo-Xa)*(Yo-Yb) - (Yo-Ya)*(Xo-Xb)，若结果小于0，则OA在OB的逆时针方向
+        float direction = (ox - ax) * (oy - by) - (oy - ay) * (ox - bx);
+        // 另一种计算方式，通过AB和OB与x轴夹角大小判断
+        // float direction = (A.y - B.y) / (A.x - B.x) - (O.y - B.y) / (O.x - B.x);
+
+        if (direction == 0) {
+            // A、O、B 在同一条直线上的情况，可能同向，也可能反向，
+            // 要看向量积的正负进一步决定决定鱼的掉头方向。
+            if (vectorProduct >= 0) {
+                return 0;
+            } else {
+                return 180;
+            }
+        } else {
+            if (direction > 0) {
+                // B在A的顺时针方向，为负
+                return -angleAOB;
+            } else {
+                return angleAOB;
+            }
+        }
+    }
+
+    /**
+     * 三阶贝塞尔曲线在参数 t 处的坐标，结果写入 out[offset] 和 out[offset + 1]
+     */
+    public static void cubicPoint(float x0, float y0, float x1, float y1, float x2, float y2,
+                                  float x3, float y3, float t, float[] out, int offset) {
+        float u = 1 - t;
+        float b0 = u * u * u;
+        float b1 = 3 * u * u * t;
+        float b2 = 3 * u * t * t;
+        float b3 = t * t * t;
+        out[offset] = b0 * x0 + b1 * x1 + b2 * x2 + b3 * x3;
+        out[offset + 1] = b0 * y0 + b1 * y1 + b2 * y2 + b3 * y3;
+    }
+
+    /**
+     * 三阶贝塞尔曲线在参数 t 处的切线方向（未归一化），结果写入 out[offset] 和 out[offset + 1]
+     */
+    public static void cubicTangent(float x0, float y0, float x1, float y1, float x2, float y2,
+                                    float x3, float y3, float t, float[] out, int offset) {
+        float u = 1 - t;
+        float b0 = 3 * u * u;
+        float b1 = 6 * u * t;
+        float b2 = 3 * t * t;
+        out[offset] = b0 * (x1 - x0) + b1 * (x2 - x1) + b2 * (x3 - x2);
+        out[offset + 1] = b0 * (y1 - y0) + b1 * (y2 - y1) + b2 * (y3 - y2);
+    }
+}
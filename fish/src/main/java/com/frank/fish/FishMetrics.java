@@ -0,0 +1,163 @@
+package com.frank.fish;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 帧耗时统计，纯 Java 实现。
+ * <p>
+ * 按阶段记录绘制和每帧更新的纳秒耗时，并记录相邻两帧的间隔，用来统计掉帧。所有直方图都在创建时分配好，
+ * 记录时不创建对象。默认不创建本对象，FishDrawable、FishClock 持有的引用为 null 时走的是与未接入统计时
+ * 完全相同的代码，不调用 System.nanoTime()。记录和读取都应在主线程进行。
+ */
+public class FishMetrics {
+
+    /**
+     * 统计的阶段
+     */
+    // FishClock 每帧回调所有 OnTickListener 的耗时，包括游动规划、波纹和鱼群模拟；
+    // 渲染线程模式下为 AquariumScene 每帧推进的耗时
+    public static final int STAGE_TICK = 0;
+    // 鱼群模拟一步并算出所有骨架点的耗时，在 PoseWorker 的后台线程中测量，渲染线程模式下在渲染线程中测量
+    public static final int STAGE_SCHOOL_STEP = 1;
+    // 骨架点计算
+    public static final int STAGE_POSE = 2;
+    // FishDrawable 把各个部分加入合并路径的耗时，复用上一帧的路径时不记录
+    public static final int STAGE_HEAD = 3;
+    public static final int STAGE_FINS = 4;
+    public static final int STAGE_SEGMENTS = 5;
+    public static final int STAGE_TRIANGLES = 6;
+    public static final int STAGE_BODY = 7;
+    // FishDrawable 画出合并后路径的耗时
+    public static final int STAGE_DRAW = 8;
+    // 鱼群模式下一次画完所有鱼的耗时
+    public static final int STAGE_SCHOOL_DRAW = 9;
+    public static final int STAGE_COUNT = 10;
+
+    private static final String[] STAGE_NAMES = {
+            "tick", "school_step", "pose", "head", "fins", "segments", "triangles", "body", "draw", "school_draw"
+    };
+
+    // 默认按 60Hz 计算一帧的理想间隔
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_COUNT];
+    private final LatencyHistogram frameIntervals = new LatencyHistogram();
+
+    private long expectedFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    // 间隔超过理想间隔 1.5 倍的帧数，以及按间隔估算出的错过的 vsync 总数
+    private long jankFrames;
+    private long droppedFrames;
+
+    public FishMetrics() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 设置屏幕刷新一次的理想间隔，一般取 1e9 / Display.getRefreshRate()
+     */
+    public void setExpectedFrameIntervalNanos(long nanos) {
+        if (nanos > 0) {
+            expectedFrameIntervalNanos = nanos;
+        }
+    }
+
+    public long getExpectedFrameIntervalNanos() {
+        return expectedFrameIntervalNanos;
+    }
+
+    public void recordStage(int stage, long nanos) {
+        stages[stage].record(nanos);
+    }
+
+    /**
+     * 记录相邻两帧 vsync 的间隔，时钟刚启动或恢复时的第一帧间隔为 0，不计入
+     */
+    public void recordFrameInterval(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        frameIntervals.record(nanos);
+        if (nanos * 2 > expectedFrameIntervalNanos * 3) {
+            jankFrames++;
+            droppedFrames += (nanos + expectedFrameIntervalNanos / 2) / expectedFrameIntervalNanos - 1;
+        }
+    }
+
+    public LatencyHistogram getStage(int stage) {
+        return stages[stage];
+    }
+
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public LatencyHistogram getFrameIntervals() {
+        return frameIntervals;
+    }
+
+    public long getFrameCount() {
+        return frameIntervals.getCount();
+    }
+
+    public long getJankFrames() {
+        return jankFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            stages[i].reset();
+        }
+        frameIntervals.reset();
+        jankFrames = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * 以纯文本表格输出所有统计结果，时间单位为微秒
+     */
+    public void dump(Writer writer) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        out.printf(Locale.US, "frames=%d jank=%d dropped=%d expected_interval_us=%.1f%n",
+                getFrameCount(), jankFrames, droppedFrames, expectedFrameIntervalNanos / 1000.0);
+        out.printf(Locale.US, "%-12s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean_us", "p50_us", "p90_us", "p99_us", "max_us");
+        dumpRow(out, "interval", frameIntervals);
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            dumpRow(out, STAGE_NAMES[i], stages[i]);
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Failed to dump metrics");
+        }
+    }
+
+    /**
+     * 把统计结果写入文件，文件已存在时覆盖
+     */
+    public void dump(File file) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            dump(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void dumpRow(PrintWriter out, String name, LatencyHistogram histogram) {
+        out.printf(Locale.US, "%-12s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, histogram.getCount(),
+                histogram.getMean() / 1000.0, histogram.getPercentile(50) / 1000.0,
+                histogram.getPercentile(90) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+}
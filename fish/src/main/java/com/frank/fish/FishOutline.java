@@ -0,0 +1,245 @@
+package com.frank.fish;
+
+/**
+ * 按 {@link FishKinematics} 中算好的骨架点描出鱼各部分的轮廓，纯 Java 实现。
+ * <p>
+ * 轮廓只通过 {@link Sink} 输出，不依赖 Android：FishDrawable 把它写进 Path，
+ * 无界面的压力测试用计数的 Sink 统计每条鱼的绘制命令数。
+ * <p>
+ * 各部分都是半透明的，重叠处每画一次颜色就加深一次，所以每个部分开始前先用 {@link Sink#layer} 说明它属于哪一层。
+ * 会重叠的部分放在不同的层；同一层的部分在任何姿态下都互不相接（完整大小时至少相隔 21px），
+ * 合并成一条路径画一次与逐个绘制的效果完全相同。颜色相同时叠加的结果与先后顺序无关，各层按下标顺序绘制即可。
+ * 所有轮廓都按顺时针方向输出，剪影把重叠的部分合并在同一条路径里时重叠处的环绕数不会相互抵消而留下空洞。
+ */
+public class FishOutline {
+
+    /**
+     * 接收轮廓的路径命令，坐标与骨架点相同
+     */
+    public interface Sink {
+        /**
+         * 之后的轮廓属于第 layer 层，同一层的轮廓合并在一条路径里绘制
+         */
+        void layer(int layer);
+
+        void moveTo(float x, float y);
+
+        void lineTo(float x, float y);
+
+        void quadTo(float x1, float y1, float x2, float y2);
+
+        /**
+         * 闭合当前轮廓
+         */
+        void close();
+
+        /**
+         * 一个顺时针的整圆
+         */
+        void circle(float x, float y, float radius);
+    }
+
+    /**
+     * 透明度
+     */
+    // 身体透明值比其它部分大一些
+    public static final int BODY_ALPHA = 160;
+    public static final int OTHER_ALPHA = 110;
+
+    /**
+     * 绘制层。中圆、两个节肢的梯形和两个三角形两两重叠或相接，至少要分成 5 层，
+     * 鱼头、鱼鳍和其余的圆放进与同层部分都不相接的层里。身体单独一层，透明度不同
+     */
+    private static final int HEAD_LAYER = 0;
+    private static final int MIDDLE_CIRCLE_LAYER = 0;
+    private static final int SMALL_CIRCLE_LAYER = 0;
+    private static final int FINS_LAYER = 1;
+    private static final int SEGMENT1_TRAPEZOID_LAYER = 1;
+    private static final int BIG_CIRCLE_LAYER = 2;
+    private static final int BIG_TRIANGLE_LAYER = 2;
+    private static final int SEGMENT2_TRAPEZOID_LAYER = 3;
+    private static final int SMALL_TRIANGLE_LAYER = 4;
+    public static final int BODY_LAYER = 5;
+    public static final int LAYER_COUNT = 6;
+
+    // 节肢梯形和尾巴三角形各个角的下标，按轮廓顺序排列
+    private static final int[] SEGMENT1_TRAPEZOID = {FishKinematics.SEGMENT1_UPPER_LEFT,
+            FishKinematics.SEGMENT1_UPPER_RIGHT, FishKinematics.SEGMENT1_BOTTOM_RIGHT,
+            FishKinematics.SEGMENT1_BOTTOM_LEFT};
+    private static final int[] SEGMENT2_TRAPEZOID = {FishKinematics.SEGMENT2_UPPER_LEFT,
+            FishKinematics.SEGMENT2_UPPER_RIGHT, FishKinematics.SEGMENT2_BOTTOM_RIGHT,
+            FishKinematics.SEGMENT2_BOTTOM_LEFT};
+    private static final int[] BIG_TRIANGLE = {FishKinematics.MIDDLE_CIRCLE,
+            FishKinematics.BIG_TRIANGLE_LEFT, FishKinematics.BIG_TRIANGLE_RIGHT};
+    private static final int[] SMALL_TRIANGLE = {FishKinematics.MIDDLE_CIRCLE,
+            FishKinematics.SMALL_TRIANGLE_LEFT, FishKinematics.SMALL_TRIANGLE_RIGHT};
+    // 身体轮廓，控制点按曲线顺序插在两端之间，用来判断方向
+    private static final int[] BODY = {FishKinematics.BODY_UPPER_LEFT, FishKinematics.BODY_CONTROL_LEFT,
+            FishKinematics.BODY_BOTTOM_LEFT, FishKinematics.BODY_BOTTOM_RIGHT,
+            FishKinematics.BODY_CONTROL_RIGHT, FishKinematics.BODY_UPPER_RIGHT};
+
+    private FishOutline() {
+    }
+
+    /**
+     * 第 layer 层的透明度
+     */
+    public static int layerAlpha(int layer) {
+        return layer == BODY_LAYER ? BODY_ALPHA : OTHER_ALPHA;
+    }
+
+    /**
+     * 除身体以外的所有部分，透明度相同，按原来的绘制顺序输出，各自标明所在的层
+     */
+    public static void addParts(FishKinematics k, Sink sink) {
+        addHead(k, sink);
+        addFins(k, sink);
+        addSegments(k, sink);
+        addTails(k, sink);
+    }
+
+    /**
+     * 剪影只保留身体、节肢1的梯形和大尾巴。身体止于大圆直径，大尾巴的顶点在中圆圆心，
+     * 节肢1的梯形正好连接两者，少了它尾巴会与身体分开。剪影是低细节层级另外设计的样子，
+     * 各部分都是顺时针，全部合并在身体那一层里一次画完
+     */
+    public static void addSilhouette(FishKinematics k, Sink sink) {
+        addBody(k, sink);
+        addPolygon(k, sink, SEGMENT1_TRAPEZOID);
+        addPolygon(k, sink, BIG_TRIANGLE);
+    }
+
+    /**
+     * 1.鱼头就是一个圆，圆心与重心距离为鱼身长一半，1.6R
+     */
+    public static void addHead(FishKinematics k, Sink sink) {
+        sink.layer(HEAD_LAYER);
+        sink.circle(k.x(FishKinematics.HEAD), k.y(FishKinematics.HEAD), FishKinematics.HEAD_RADIUS);
+    }
+
+    /**
+     * 2.鱼鳍，身体两侧各一个
+     */
+    public static void addFins(FishKinematics k, Sink sink) {
+        sink.layer(FINS_LAYER);
+        addFin(k, sink, FishKinematics.LEFT_FIN_START);
+        addFin(k, sink, FishKinematics.RIGHT_FIN_START);
+    }
+
+    /**
+     * 鱼鳍是一个二阶贝塞尔曲线，其起点与鱼头圆心的距离为0.9R，两点连线与x轴正方向的角度为110°。
+     * 起点、控制点、终点的下标依次为 startIndex 到 startIndex + 2，具体计算见 {@link FishKinematics}。
+     */
+    private static void addFin(FishKinematics k, Sink sink, int startIndex) {
+        int from = startIndex;
+        int to = startIndex + 2;
+        if (signedArea(k, startIndex, startIndex + 1, startIndex + 2) < 0) {
+            from = startIndex + 2;
+            to = startIndex;
+        }
+        sink.moveTo(k.x(from), k.y(from));
+        sink.quadTo(k.x(startIndex + 1), k.y(startIndex + 1), k.x(to), k.y(to));
+        sink.close();
+    }
+
+    /**
+     * 3.节肢，节肢1是两个圆相切，并且还有个以两个圆的直径为上下底的梯形，节肢2是一个梯形加一个小圆
+     */
+    public static void addSegments(FishKinematics k, Sink sink) {
+        addSegment(k, sink, FishKinematics.BIG_CIRCLE, SEGMENT1_TRAPEZOID, FishKinematics.BIG_CIRCLE_RADIUS,
+                FishKinematics.MIDDLE_CIRCLE_RADIUS, true, MIDDLE_CIRCLE_LAYER, SEGMENT1_TRAPEZOID_LAYER);
+        addSegment(k, sink, FishKinematics.MIDDLE_CIRCLE, SEGMENT2_TRAPEZOID, FishKinematics.MIDDLE_CIRCLE_RADIUS,
+                FishKinematics.SMALL_CIRCLE_RADIUS, false, SMALL_CIRCLE_LAYER, SEGMENT2_TRAPEZOID_LAYER);
+    }
+
+    /**
+     * @param bigCircleIndex    大圆圆心的下标
+     * @param trapezoid         梯形四个角的下标，较小圆的圆心排在梯形左上角之后第 4 个
+     * @param bigCircleRadius   大圆半径
+     * @param smallCircleRadius 小圆半径
+     * @param hasBigCircle      是否绘制大圆，节肢1要画大圆和小圆，而节肢2只需要画一个小圆
+     * @param smallCircleLayer  小圆所在的层
+     * @param trapezoidLayer    梯形所在的层
+     */
+    private static void addSegment(FishKinematics k, Sink sink, int bigCircleIndex, int[] trapezoid,
+                                   float bigCircleRadius, float smallCircleRadius, boolean hasBigCircle,
+                                   int smallCircleLayer, int trapezoidLayer) {
+        int smallCircleIndex = trapezoid[0] + 4;
+        if (hasBigCircle) {
+            sink.layer(BIG_CIRCLE_LAYER);
+            sink.circle(k.x(bigCircleIndex), k.y(bigCircleIndex), bigCircleRadius);
+        }
+        sink.layer(smallCircleLayer);
+        sink.circle(k.x(smallCircleIndex), k.y(smallCircleIndex), smallCircleRadius);
+        sink.layer(trapezoidLayer);
+        addPolygon(k, sink, trapezoid);
+    }
+
+    /**
+     * 4.尾巴是两个等腰三角形，一个顶点在中圆圆心，该顶点到大三角形底边中点距离为中圆半径的2.7倍
+     */
+    public static void addTails(FishKinematics k, Sink sink) {
+        sink.layer(BIG_TRIANGLE_LAYER);
+        addPolygon(k, sink, BIG_TRIANGLE);
+        sink.layer(SMALL_TRIANGLE_LAYER);
+        addPolygon(k, sink, SMALL_TRIANGLE);
+    }
+
+    /**
+     * 5.身体，身体两侧的线条也是二阶贝塞尔曲线
+     */
+    public static void addBody(FishKinematics k, Sink sink) {
+        int upperLeft = FishKinematics.BODY_UPPER_LEFT;
+        int controlLeft = FishKinematics.BODY_CONTROL_LEFT;
+        int bottomLeft = FishKinematics.BODY_BOTTOM_LEFT;
+        int bottomRight = FishKinematics.BODY_BOTTOM_RIGHT;
+        int controlRight = FishKinematics.BODY_CONTROL_RIGHT;
+        int upperRight = FishKinematics.BODY_UPPER_RIGHT;
+        if (signedArea(k, BODY) < 0) {
+            // 逆时针时左右对调，从右侧开始反向描边
+            upperLeft = FishKinematics.BODY_UPPER_RIGHT;
+            controlLeft = FishKinematics.BODY_CONTROL_RIGHT;
+            bottomLeft = FishKinematics.BODY_BOTTOM_RIGHT;
+            bottomRight = FishKinematics.BODY_BOTTOM_LEFT;
+            controlRight = FishKinematics.BODY_CONTROL_LEFT;
+            upperRight = FishKinematics.BODY_UPPER_LEFT;
+        }
+        sink.layer(BODY_LAYER);
+        sink.moveTo(k.x(upperLeft), k.y(upperLeft));
+        sink.quadTo(k.x(controlLeft), k.y(controlLeft), k.x(bottomLeft), k.y(bottomLeft));
+        sink.lineTo(k.x(bottomRight), k.y(bottomRight));
+        sink.quadTo(k.x(controlRight), k.y(controlRight), k.x(upperRight), k.y(upperRight));
+        sink.close();
+    }
+
+    /**
+     * 按顺时针方向输出一个多边形
+     */
+    private static void addPolygon(FishKinematics k, Sink sink, int[] polygon) {
+        int count = polygon.length;
+        boolean clockwise = signedArea(k, polygon) >= 0;
+        sink.moveTo(k.x(polygon[0]), k.y(polygon[0]));
+        for (int i = 1; i < count; i++) {
+            int index = polygon[clockwise ? i : count - i];
+            sink.lineTo(k.x(index), k.y(index));
+        }
+        sink.close();
+    }
+
+    /**
+     * 多边形有向面积的两倍，屏幕坐标系Y轴向下，顺时针时为正
+     */
+    private static float signedArea(FishKinematics k, int[] polygon) {
+        float area = 0;
+        for (int i = 0, count = polygon.length; i < count; i++) {
+            int from = polygon[i];
+            int to = polygon[(i + 1) % count];
+            area += k.x(from) * k.y(to) - k.x(to) * k.y(from);
+        }
+        return area;
+    }
+
+    private static float signedArea(FishKinematics k, int a, int b, int c) {
+        return (k.x(b) - k.x(a)) * (k.y(c) - k.y(a)) - (k.y(b) - k.y(a)) * (k.x(c) - k.x(a));
+    }
+}
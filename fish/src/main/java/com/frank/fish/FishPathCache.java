@@ -0,0 +1,107 @@
+package com.frank.fish;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * 一条鱼录好的 {@link FishDisplayList} 以及据此构建好的路径。
+ * <p>
+ * 录制时把绘制命令按 {@link FishOutline} 的层重放进各自的 Path，之后只要骨架点和细节层级没有变化（{@link #matches} 返回 true），
+ * 每次绘制就只剩每层一次 drawPath，不再计算轮廓，也不再重建 Path。FishDrawable 用一份缓存画自己的姿态，
+ * SchoolRenderer 给鱼群中的每条鱼各保留一份。
+ */
+public class FishPathCache {
+
+    private final FishDisplayList displayList = new FishDisplayList();
+    private final PathBuilder builder = new PathBuilder();
+
+    // 每层一条路径，用到时才创建，完整细节的鱼六层，剪影只有身体一层
+    private final Path[] paths = new Path[FishOutline.LAYER_COUNT];
+    // 这次录制用到的层，第 i 位对应第 i 层
+    private int usedLayers;
+
+    /**
+     * 缓存的路径是否就是这组骨架点和细节层级的
+     */
+    public boolean matches(float[] points, int offset, int lod) {
+        return displayList.matches(points, offset, lod);
+    }
+
+    /**
+     * 按 kinematics 中的骨架点录制绘制命令并重建路径
+     */
+    public void record(FishKinematics kinematics, int lod) {
+        displayList.record(kinematics, lod);
+        build();
+    }
+
+    /**
+     * 按 {@link #getDisplayList()} 中的命令重建路径，分段录制（例如统计各部分耗时）时在录完后调用
+     */
+    public void build() {
+        usedLayers = 0;
+        builder.path = null;
+        displayList.replay(builder);
+    }
+
+    /**
+     * 依次以各层的透明度画出缓存的路径，paint 的其它属性（颜色、颜色过滤器等）保持不变
+     */
+    public void draw(Canvas canvas, Paint paint) {
+        for (int i = 0; i < FishOutline.LAYER_COUNT; i++) {
+            if ((usedLayers & 1 << i) != 0) {
+                paint.setAlpha(FishOutline.layerAlpha(i));
+                canvas.drawPath(paths[i], paint);
+            }
+        }
+    }
+
+    public FishDisplayList getDisplayList() {
+        return displayList;
+    }
+
+    /**
+     * 把重放的命令写进当前层的路径，遇到 layer 时换到那一层，一层在这次录制中第一次用到时才清空，路径对象一直复用
+     */
+    private class PathBuilder implements FishOutline.Sink {
+        private Path path;
+
+        @Override
+        public void layer(int layer) {
+            if (paths[layer] == null) {
+                paths[layer] = new Path();
+            }
+            path = paths[layer];
+            if ((usedLayers & 1 << layer) == 0) {
+                path.rewind();
+                usedLayers |= 1 << layer;
+            }
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            path.quadTo(x1, y1, x2, y2);
+        }
+
+        @Override
+        public void close() {
+            path.close();
+        }
+
+        @Override
+        public void circle(float x, float y, float radius) {
+            path.addCircle(x, y, radius, Path.Direction.CW);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.frank.fish;
+
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+/**
+ * FishSurfaceView 的渲染线程。
+ * <p>
+ * 线程带有自己的 Looper，因此 Choreographer.getInstance() 拿到的是本线程的实例，
+ * 每个 vsync 在本线程回调一次：先取出主线程写入 TouchQueue 的触摸事件，再推进 AquariumScene，
+ * 最后锁定 Surface 的 Canvas 画出整个鱼缸。主线程的布局、触摸处理再慢也不会卡住鱼的游动。
+ */
+public class FishRenderThread extends HandlerThread implements Choreographer.FrameCallback {
+
+    private final SurfaceHolder holder;
+    private final AquariumScene scene;
+    private final TouchQueue touchQueue;
+
+    private Handler handler;
+    // 只在渲染线程中读写
+    private boolean running;
+    private long lastFrameTimeNanos;
+    private int appliedWidth;
+    private int appliedHeight;
+
+    // 由主线程写入，为 true 时不再请求帧回调，场景停在暂停时的状态
+    private volatile boolean paused;
+
+    // Surface 的大小由主线程写入，高 32 位为宽、低 32 位为高，一次写入保证两者一致
+    private volatile long surfaceSize;
+
+    public FishRenderThread(SurfaceHolder holder, AquariumScene scene, TouchQueue touchQueue) {
+        super("FishRenderThread", Process.THREAD_PRIORITY_DISPLAY);
+        this.holder = holder;
+        this.scene = scene;
+        this.touchQueue = touchQueue;
+    }
+
+    @Override
+    protected void onLooperPrepared() {
+        running = true;
+        lastFrameTimeNanos = 0;
+        if (!paused) {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 由主线程调用，暂停或恢复渲染。恢复后的第一帧时间间隔为 0，暂停的时间不计入场景
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        Handler handler = renderHandler();
+        if (handler != null) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    applyPaused();
+                }
+            });
+        }
+    }
+
+    private void applyPaused() {
+        if (!running) {
+            return;
+        }
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(this);
+        if (!paused) {
+            lastFrameTimeNanos = 0;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 由主线程调用，在渲染线程中执行 runnable，暂停时也会执行
+     *
+     * @return 线程已经结束、不会再执行时返回 false
+     */
+    public boolean runOnRenderThread(Runnable runnable) {
+        Handler handler = renderHandler();
+        return handler != null && handler.post(runnable);
+    }
+
+    /**
+     * 由主线程在 surfaceChanged 中调用
+     */
+    public void setSurfaceSize(int width, int height) {
+        surfaceSize = ((long) width << 32) | (height & 0xffffffffL);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running || paused) {
+            return;
+        }
+        long deltaNanos = lastFrameTimeNanos == 0 ? 0 : frameTimeNanos - lastFrameTimeNanos;
+        lastFrameTimeNanos = frameTimeNanos;
+
+        long size = surfaceSize;
+        int width = (int) (size >>> 32);
+        int height = (int) size;
+        if (width != appliedWidth || height != appliedHeight) {
+            appliedWidth = width;
+            appliedHeight = height;
+            scene.setSize(width, height);
+        }
+
+        touchQueue.drain(scene);
+        scene.step(deltaNanos);
+        render();
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void render() {
+        Surface surface = holder.getSurface();
+        if (surface == null || !surface.isValid()) {
+            return;
+        }
+        // API 26 起可以直接拿到硬件加速的 Canvas
+        boolean hardware = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+        Canvas canvas = hardware ? surface.lockHardwareCanvas() : holder.lockCanvas();
+        if (canvas == null) {
+            return;
+        }
+        try {
+            scene.draw(canvas);
+        } finally {
+            if (hardware) {
+                surface.unlockCanvasAndPost(canvas);
+            } else {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+
+    /**
+     * 由主线程在 surfaceDestroyed 中调用，停止渲染并等待线程结束，返回后不会再访问 Surface
+     */
+    public void quitAndWait() {
+        Handler handler = renderHandler();
+        if (handler != null) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    running = false;
+                    Choreographer.getInstance().removeFrameCallback(FishRenderThread.this);
+                }
+            });
+        }
+        quitSafely();
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Handler renderHandler() {
+        if (handler == null && getLooper() != null) {
+            handler = new Handler(getLooper());
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,485 @@
+package com.frank.fish;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 鱼群模拟，纯 Java 实现。
+ * <p>
+ * 每条鱼按分离、对齐、聚集三条规则调整速度，按下屏幕时还会被触摸点吸引。邻居查找借助
+ * {@link SpatialGrid}，每次更新的开销随鱼的数量近似线性增长。鱼群很密时只取最近的
+ * {@link #MAX_NEIGHBORS} 个邻居，与网格的扫描顺序无关。
+ * <p>
+ * 所有状态保存在两份 {@link SchoolSnapshot} 中：每一步只读当前快照、只写另一份快照，写完后交换，
+ * 因此更新顺序不影响结果，可以把鱼分块交给 ForkJoinPool 在多个核心上并行计算。每一块在更新位置
+ * 的同时批量算好该鱼的节肢、尾巴朝向，渲染时直接使用 {@link #getSnapshot()} 返回的已完成快照。
+ * <p>
+ * 快照是双缓冲的，step() 写入的是两步之前发布的那一份，所以读取方不能在持有快照期间跨过两次 step()。
+ */
+public class FishSchool {
+
+    // 邻居查找半径，同时也是网格边长
+    private static final float NEIGHBOR_RADIUS = 90f;
+    // 小于这个距离就要相互远离
+    private static final float SEPARATION_RADIUS = 40f;
+    // 每条鱼最多考虑的邻居数，鱼群很密时只取最近的这么多个，避免转向被远处的鱼主导
+    static final int MAX_NEIGHBORS = 24;
+
+    // 速度范围，单位 px/s
+    private static final float MIN_SPEED = 40f;
+    private static final float MAX_SPEED = 160f;
+    // 单次转向的最大加速度，单位 px/s²
+    private static final float MAX_FORCE = 240f;
+
+    // 各规则的权重
+    private static final float SEPARATION_WEIGHT = 1.6f;
+    private static final float ALIGNMENT_WEIGHT = 1.0f;
+    private static final float COHESION_WEIGHT = 0.8f;
+    private static final float TARGET_WEIGHT = 1.4f;
+    private static final float WALL_WEIGHT = 2.0f;
+
+    // 离边界小于这个距离时开始往回转
+    private static final float WALL_MARGIN = 60f;
+
+    // 鱼尾摆动频率范围，与单条鱼游动和静止时的频率一致
+    private static final float MIN_FREQUENCY = 1f;
+    private static final float MAX_FREQUENCY = 3f;
+
+    // 属性动画值每秒增加的量，与 FishClock 一致（2 秒从 0 到 720）
+    private static final float ANIMATOR_VALUE_PER_SECOND = 360f;
+    private static final float MAX_ANIMATOR_VALUE = FishKinematics.MAX_ANIMATOR_VALUE;
+
+    // 转弯时鱼鳍摆动的幅度系数以及最大值，鱼鳍在转弯结束后逐渐收回
+    private static final float FINS_PER_TURN_DEGREE = 0.5f;
+    private static final float MAX_FINS_VALUE = FishKinematics.HEAD_RADIUS * 2;
+    private static final float FINS_DECAY_PER_SECOND = 3f;
+
+    // 每个并行块包含的鱼的数量，鱼的数量不超过两块时直接在当前线程计算
+    private static final int CHUNK_SIZE = 256;
+
+    private final SpatialGrid grid = new SpatialGrid();
+    private final ForkJoinPool pool;
+
+    private int count;
+    private float width;
+    private float height;
+
+    // 当前快照（已完成，可供渲染读取）和下一步要写入的快照
+    private volatile SchoolSnapshot current = new SchoolSnapshot();
+    private SchoolSnapshot next = new SchoolSnapshot();
+
+    // 并行计算的任务，预先创建好每一步复用
+    private final StepAction stepAction = new StepAction();
+    private ChunkAction[] chunks = new ChunkAction[0];
+    private float stepDt;
+    // 不并行时使用的临时数组
+    private final float[] acceleration = new float[2];
+    private final Neighbors neighbors = new Neighbors();
+
+    // 触摸吸引点
+    private boolean hasTarget;
+    private float targetX;
+    private float targetY;
+
+    public FishSchool() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool 并行更新使用的线程池
+     */
+    public FishSchool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 设置鱼群活动范围
+     */
+    public void setBounds(float width, float height) {
+        this.width = width;
+        this.height = height;
+        grid.resize(width, height, NEIGHBOR_RADIUS);
+    }
+
+    /**
+     * 在活动范围内随机生成 count 条鱼
+     */
+    public void spawn(int count, Random random) {
+        current.ensureCapacity(count);
+        next.ensureCapacity(count);
+        this.count = count;
+        SchoolSnapshot state = current;
+        state.count = count;
+        for (int i = 0; i < count; i++) {
+            state.xs[i] = random.nextFloat() * width;
+            state.ys[i] = random.nextFloat() * height;
+            double angle = random.nextDouble() * Math.PI * 2;
+            float speed = MIN_SPEED + random.nextFloat() * (MAX_SPEED - MIN_SPEED);
+            state.vxs[i] = (float) Math.cos(angle) * speed;
+            state.vys[i] = (float) Math.sin(angle) * speed;
+            state.animatorValues[i] = random.nextFloat() * MAX_ANIMATOR_VALUE;
+            state.finsValues[i] = 0;
+            updatePose(state, i);
+        }
+        int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks.length < chunkCount) {
+            ChunkAction[] newChunks = new ChunkAction[chunkCount];
+            System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+            for (int c = chunks.length; c < chunkCount; c++) {
+                newChunks[c] = new ChunkAction();
+            }
+            chunks = newChunks;
+        }
+    }
+
+    public void setTarget(float x, float y) {
+        hasTarget = true;
+        targetX = x;
+        targetY = y;
+    }
+
+    public void clearTarget() {
+        hasTarget = false;
+    }
+
+    /**
+     * 推进一步模拟，返回时新的快照已经发布
+     *
+     * @param dt 时间间隔，单位秒
+     */
+    public void step(float dt) {
+        SchoolSnapshot read = current;
+        grid.rebuild(read.xs, read.ys, count);
+        next.count = count;
+        stepDt = dt;
+        if (count <= CHUNK_SIZE * 2) {
+            stepRange(0, count, acceleration, neighbors);
+        } else {
+            stepAction.reinitialize();
+            pool.invoke(stepAction);
+        }
+        // 交换两份快照，新写好的一份对渲染可见
+        SchoolSnapshot written = next;
+        next = read;
+        current = written;
+    }
+
+    /**
+     * 依次更新 [from, to) 范围内的鱼
+     */
+    private void stepRange(int from, int to, float[] acceleration, Neighbors neighbors) {
+        SchoolSnapshot read = current;
+        SchoolSnapshot write = next;
+        float dt = stepDt;
+        for (int i = from; i < to; i++) {
+            steer(read, write, i, dt, acceleration, neighbors);
+            animate(read, write, i, dt);
+            updatePose(write, i);
+        }
+    }
+
+    /**
+     * 把所有块一次性交给线程池
+     */
+    private class StepAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            for (int c = 0; c < chunkCount; c++) {
+                ChunkAction chunk = chunks[c];
+                chunk.reinitialize();
+                chunk.from = c * CHUNK_SIZE;
+                chunk.to = Math.min(count, chunk.from + CHUNK_SIZE);
+            }
+            // 第一块在当前线程计算，其余的分给其它线程
+            for (int c = 1; c < chunkCount; c++) {
+                chunks[c].fork();
+            }
+            chunks[0].compute();
+            for (int c = chunkCount - 1; c > 0; c--) {
+                chunks[c].join();
+            }
+        }
+    }
+
+    private class ChunkAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // 每块有自己的临时数组，避免线程之间相互覆盖
+        final float[] acceleration = new float[2];
+        final Neighbors neighbors = new Neighbors();
+        int from;
+        int to;
+
+        @Override
+        protected void compute() {
+            stepRange(from, to, acceleration, neighbors);
+        }
+    }
+
+    /**
+     * 查找过程中离当前这条鱼最近的至多 MAX_NEIGHBORS 个邻居，按距离平方组成大顶堆，堆顶是其中最远的一个，
+     * 有更近的候选时替换堆顶。每个线程一份，反复使用
+     */
+    private static class Neighbors {
+        final int[] items = new int[MAX_NEIGHBORS];
+        final float[] distanceSquares = new float[MAX_NEIGHBORS];
+        int count;
+
+        void offer(int item, float distanceSquare) {
+            int k;
+            if (count < MAX_NEIGHBORS) {
+                // 放到末尾再上浮
+                k = count++;
+                while (k > 0) {
+                    int parent = (k - 1) / 2;
+                    if (distanceSquares[parent] >= distanceSquare) {
+                        break;
+                    }
+                    items[k] = items[parent];
+                    distanceSquares[k] = distanceSquares[parent];
+                    k = parent;
+                }
+            } else if (distanceSquare < distanceSquares[0]) {
+                // 替换堆顶再下沉
+                k = 0;
+                while (true) {
+                    int child = k * 2 + 1;
+                    if (child >= count) {
+                        break;
+                    }
+                    if (child + 1 < count && distanceSquares[child + 1] > distanceSquares[child]) {
+                        child++;
+                    }
+                    if (distanceSquares[child] <= distanceSquare) {
+                        break;
+                    }
+                    items[k] = items[child];
+                    distanceSquares[k] = distanceSquares[child];
+                    k = child;
+                }
+            } else {
+                return;
+            }
+            items[k] = item;
+            distanceSquares[k] = distanceSquare;
+        }
+    }
+
+    /**
+     * 在周围 3x3 个格子中找出第 i 条鱼查找半径内最近的至多 MAX_NEIGHBORS 个邻居，写入 neighbors，
+     * 返回检查过的候选数。调用前网格必须已经按 read 中的位置重建
+     */
+    private int findNeighbors(SchoolSnapshot read, int i, Neighbors neighbors) {
+        float[] xs = read.xs;
+        float[] ys = read.ys;
+        float x = xs[i];
+        float y = ys[i];
+        int candidates = 0;
+        neighbors.count = 0;
+
+        int column = grid.column(x);
+        int row = grid.row(y);
+        int firstColumn = Math.max(0, column - 1);
+        int lastColumn = Math.min(grid.getColumns() - 1, column + 1);
+        int firstRow = Math.max(0, row - 1);
+        int lastRow = Math.min(grid.getRows() - 1, row + 1);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * grid.getColumns() + c;
+                for (int p = grid.getCellStart(cell), end = grid.getCellEnd(cell); p < end; p++) {
+                    int j = grid.getItem(p);
+                    if (j == i) {
+                        continue;
+                    }
+                    candidates++;
+                    float dx = xs[j] - x;
+                    float dy = ys[j] - y;
+                    float distanceSquare = dx * dx + dy * dy;
+                    if (distanceSquare > NEIGHBOR_RADIUS * NEIGHBOR_RADIUS || distanceSquare == 0) {
+                        continue;
+                    }
+                    neighbors.offer(j, distanceSquare);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 按当前快照中的位置找出第 i 条鱼参与转向的邻居，写入 out，返回邻居数，供测试使用
+     */
+    int findNeighbors(int i, int[] out) {
+        SchoolSnapshot read = current;
+        grid.rebuild(read.xs, read.ys, count);
+        findNeighbors(read, i, neighbors);
+        System.arraycopy(neighbors.items, 0, out, 0, neighbors.count);
+        return neighbors.count;
+    }
+
+    /**
+     * 计算第 i 条鱼下一帧的速度和位置，只读 read，只写 write
+     */
+    private void steer(SchoolSnapshot read, SchoolSnapshot write, int i, float dt, float[] acceleration,
+                       Neighbors neighbors) {
+        float[] xs = read.xs;
+        float[] ys = read.ys;
+        float[] vxs = read.vxs;
+        float[] vys = read.vys;
+        float x = xs[i];
+        float y = ys[i];
+        float vx = vxs[i];
+        float vy = vys[i];
+
+        int candidates = findNeighbors(read, i, neighbors);
+        float separationX = 0, separationY = 0;
+        float alignmentX = 0, alignmentY = 0;
+        float centerX = 0, centerY = 0;
+        int neighborCount = neighbors.count;
+        for (int n = 0; n < neighborCount; n++) {
+            int j = neighbors.items[n];
+            float distanceSquare = neighbors.distanceSquares[n];
+            if (distanceSquare < SEPARATION_RADIUS * SEPARATION_RADIUS) {
+                // 越近推力越大
+                separationX -= (xs[j] - x) / distanceSquare;
+                separationY -= (ys[j] - y) / distanceSquare;
+            }
+            alignmentX += vxs[j];
+            alignmentY += vys[j];
+            centerX += xs[j];
+            centerY += ys[j];
+        }
+
+        write.candidateCounts[i] = candidates;
+        write.neighborCounts[i] = neighborCount;
+
+        acceleration[0] = 0;
+        acceleration[1] = 0;
+        if (neighborCount > 0) {
+            addSteering(acceleration, separationX, separationY, vx, vy, SEPARATION_WEIGHT);
+            addSteering(acceleration, alignmentX, alignmentY, vx, vy, ALIGNMENT_WEIGHT);
+            addSteering(acceleration, centerX / neighborCount - x, centerY / neighborCount - y, vx, vy,
+                    COHESION_WEIGHT);
+        }
+        if (hasTarget) {
+            addSteering(acceleration, targetX - x, targetY - y, vx, vy, TARGET_WEIGHT);
+        }
+        // 靠近边界时往回游
+        float wallX = x < WALL_MARGIN ? 1 : (x > width - WALL_MARGIN ? -1 : 0);
+        float wallY = y < WALL_MARGIN ? 1 : (y > height - WALL_MARGIN ? -1 : 0);
+        if (wallX != 0 || wallY != 0) {
+            addSteering(acceleration, wallX, wallY, vx, vy, WALL_WEIGHT);
+        }
+
+        vx += acceleration[0] * dt;
+        vy += acceleration[1] * dt;
+        float speed = (float) Math.sqrt(vx * vx + vy * vy);
+        if (speed > MAX_SPEED) {
+            vx = vx / speed * MAX_SPEED;
+            vy = vy / speed * MAX_SPEED;
+        } else if (speed < MIN_SPEED) {
+            if (speed == 0) {
+                vx = MIN_SPEED;
+                vy = 0;
+            } else {
+                vx = vx / speed * MIN_SPEED;
+                vy = vy / speed * MIN_SPEED;
+            }
+        }
+        write.vxs[i] = vx;
+        write.vys[i] = vy;
+        write.xs[i] = Math.max(0, Math.min(width, x + vx * dt));
+        write.ys[i] = Math.max(0, Math.min(height, y + vy * dt));
+    }
+
+    /**
+     * 推进第 i 条鱼的属性动画值，并根据转弯的快慢更新鱼鳍
+     */
+    private void animate(SchoolSnapshot read, SchoolSnapshot write, int i, float dt) {
+        write.animatorValues[i] = (read.animatorValues[i] + ANIMATOR_VALUE_PER_SECOND * dt) % MAX_ANIMATOR_VALUE;
+        float heading = (float) Math.toDegrees(Math.atan2(-write.vys[i], write.vxs[i]));
+        float turn = Math.abs(heading - read.headings[i]);
+        if (turn > 180) {
+            turn = 360 - turn;
+        }
+        float fins = read.finsValues[i] * Math.max(0, 1 - FINS_DECAY_PER_SECOND * dt);
+        write.finsValues[i] = Math.min(MAX_FINS_VALUE, Math.max(fins, turn * FINS_PER_TURN_DEGREE));
+        write.headings[i] = heading;
+    }
+
+    /**
+     * 根据第 i 条鱼的速度和属性动画值批量算出朝向、摆尾频率以及节肢、尾巴的角度
+     */
+    private static void updatePose(SchoolSnapshot state, int i) {
+        float vx = state.vxs[i];
+        float vy = state.vys[i];
+        // 屏幕坐标系Y轴向下，因此 vy 要取反
+        float heading = (float) Math.toDegrees(Math.atan2(-vy, vx));
+        float speed = (float) Math.sqrt(vx * vx + vy * vy);
+        float t = (speed - MIN_SPEED) / (MAX_SPEED - MIN_SPEED);
+        float frequency = MIN_FREQUENCY + Math.max(0, Math.min(1, t)) * (MAX_FREQUENCY - MIN_FREQUENCY);
+        float animatorValue = state.animatorValues[i];
+        float fishAngle = FishKinematics.fishAngle(heading, animatorValue);
+
+        state.headings[i] = heading;
+        state.frequencies[i] = frequency;
+        state.fishAngles[i] = fishAngle;
+        state.segment1Angles[i] = FishKinematics.segment1Angle(fishAngle, animatorValue, frequency);
+        state.segment2Angles[i] = FishKinematics.segment2Angle(fishAngle, animatorValue, frequency);
+        state.tailEdgeLengths[i] = FishKinematics.tailEdgeLength(animatorValue);
+    }
+
+    /**
+     * Reynolds 转向：期望速度为 (desiredX, desiredY) 方向上的最大速度，转向力为期望速度减去当前速度，
+     * 限制在 MAX_FORCE 以内后乘以权重累加到 acceleration 上
+     */
+    private static void addSteering(float[] acceleration, float desiredX, float desiredY,
+                                    float vx, float vy, float weight) {
+        float length = (float) Math.sqrt(desiredX * desiredX + desiredY * desiredY);
+        if (length == 0) {
+            return;
+        }
+        float fx = desiredX / length * MAX_SPEED - vx;
+        float fy = desiredY / length * MAX_SPEED - vy;
+        float force = (float) Math.sqrt(fx * fx + fy * fy);
+        float scale = force > MAX_FORCE ? MAX_FORCE / force * weight : weight;
+        acceleration[0] += fx * scale;
+        acceleration[1] += fy * scale;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 最近一次 step() 完成后发布的快照
+     */
+    public SchoolSnapshot getSnapshot() {
+        return current;
+    }
+
+    public float getX(int i) {
+        return current.xs[i];
+    }
+
+    public float getY(int i) {
+        return current.ys[i];
+    }
+
+    /**
+     * 第 i 条鱼的朝向与x轴正方向的夹角，可直接交给 FishDrawable.setFishMainAngle()
+     */
+    public float getHeading(int i) {
+        return current.headings[i];
+    }
+
+    /**
+     * 第 i 条鱼的摆尾频率，游得越快摆得越快，可直接交给 FishDrawable.setFrequency()
+     */
+    public float getFrequency(int i) {
+        return current.frequencies[i];
+    }
+}
@@ -0,0 +1,202 @@
+package com.frank.fish;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+
+/**
+ * 鱼群模式下按姿态缓存的位图精灵。
+ * <p>
+ * 鱼的形状只取决于属性动画值、摆尾频率和鱼鳍摆动量，朝向只是整体旋转。因此把这三个量量化成键，
+ * 以朝向 0° 预先画到图集中的一个槽位上，之后同一个键的鱼只需旋转画布贴一次图，
+ * 不再每条鱼重新光栅化十来个抗锯齿的路径和圆。图集由若干张固定大小的位图组成，
+ * 槽位总数由内存预算决定，满了以后按 LRU 淘汰，命中、未命中和淘汰次数可以随时读取。
+ * <p>
+ * 量化会带来轻微的跳变：属性动画值按 {@link #PHASE_STEPS} 份量化，频率按 {@link #FREQUENCY_STEP}
+ * 量化，鱼鳍按 {@link #FINS_STEPS} 份量化。
+ * 开启硬件加速时，新画入精灵的图集会在下一帧整体重新上传纹理，所以单张图集不宜太大。
+ */
+public class FishSpriteCache {
+
+    // 属性动画值一个周期 [0, 720) 量化的份数
+    public static final int PHASE_STEPS = 120;
+    // 鱼鳍摆动量 [0, 2R] 量化的份数
+    public static final int FINS_STEPS = 8;
+    // 摆尾频率的量化步长和最大频率，超出范围的频率按最大值处理
+    public static final float FREQUENCY_STEP = 0.1f;
+    private static final float MAX_FREQUENCY = 10f;
+    private static final int FREQUENCY_STEPS = Math.round(MAX_FREQUENCY / FREQUENCY_STEP) + 1;
+    private static final float MAX_FINS_VALUE = FishKinematics.HEAD_RADIUS * 2;
+
+    // 朝向 0° 时鱼相对重心的范围
+    private static final float SPRITE_LEFT = FishKinematics.MAX_EXTENT_LEFT;
+    private static final float SPRITE_RIGHT = FishKinematics.MAX_EXTENT_RIGHT;
+    private static final float SPRITE_HALF_HEIGHT = FishKinematics.MAX_HALF_HEIGHT;
+    // 槽位四周留出的像素，给抗锯齿和双线性过滤用
+    private static final int SLOT_PADDING = 2;
+    // 单张图集的最大边长
+    private static final int MAX_PAGE_SIZE = 1024;
+
+    private final float scale;
+    private final int slotWidth;
+    private final int slotHeight;
+    private final int columnsPerPage;
+    private final int slotsPerPage;
+    private final int pageWidth;
+    private final int pageHeight;
+    // 重心在槽位中的位置
+    private final float anchorX;
+    private final float anchorY;
+
+    private final SpriteLru lru;
+    // 按需创建的图集，以及各自复用的 Canvas
+    private final ArrayList<Bitmap> pages = new ArrayList<>();
+    private final ArrayList<Canvas> pageCanvases = new ArrayList<>();
+
+    // 用来把精灵画进图集的 Drawable
+    private final FishDrawable renderer = new FishDrawable();
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    /**
+     * @param scale             精灵相对于鱼原始大小的缩放比例，应与绘制时的缩放一致
+     * @param memoryBudgetBytes 图集最多占用的内存，至少能容纳一个精灵
+     */
+    public FishSpriteCache(float scale, long memoryBudgetBytes) {
+        this.scale = scale;
+        slotWidth = (int) Math.ceil((SPRITE_RIGHT - SPRITE_LEFT) * scale) + SLOT_PADDING * 2;
+        slotHeight = (int) Math.ceil(SPRITE_HALF_HEIGHT * 2 * scale) + SLOT_PADDING * 2;
+        anchorX = SLOT_PADDING - SPRITE_LEFT * scale;
+        anchorY = slotHeight / 2f;
+
+        long slotBytes = (long) slotWidth * slotHeight * 4;
+        int capacity = (int) Math.max(1, Math.min(FREQUENCY_STEPS * PHASE_STEPS * FINS_STEPS,
+                memoryBudgetBytes / slotBytes));
+        columnsPerPage = Math.max(1, Math.min(MAX_PAGE_SIZE / slotWidth, capacity));
+        int rowsPerPage = Math.max(1, Math.min(MAX_PAGE_SIZE / slotHeight, capacity / columnsPerPage));
+        slotsPerPage = columnsPerPage * rowsPerPage;
+        pageWidth = columnsPerPage * slotWidth;
+        pageHeight = rowsPerPage * slotHeight;
+        // 只用整张的图集，总内存不超过预算
+        lru = new SpriteLru(capacity - capacity % slotsPerPage);
+    }
+
+    /**
+     * 以 (x, y) 为重心、heading 为朝向画出一条鱼，对应姿态的精灵不存在时先画进图集
+     */
+    public void draw(Canvas canvas, float x, float y, float heading, float animatorValue, float frequency,
+                     float finsValue) {
+        int phase = Math.round(animatorValue / FishKinematics.MAX_ANIMATOR_VALUE * PHASE_STEPS) % PHASE_STEPS;
+        if (phase < 0) {
+            phase += PHASE_STEPS;
+        }
+        int frequencyStep = Math.round(Math.max(0, Math.min(FREQUENCY_STEPS - 1,
+                frequency / FREQUENCY_STEP)));
+        int finsStep = Math.round(Math.max(0, Math.min(1, finsValue / MAX_FINS_VALUE)) * (FINS_STEPS - 1));
+        long key = ((long) phase * FREQUENCY_STEPS + frequencyStep) * FINS_STEPS + finsStep;
+
+        int slot = lru.get(key);
+        if (slot < 0) {
+            slot = lru.put(key);
+            render(slot, phase, frequencyStep, finsStep);
+        }
+
+        int page = slot / slotsPerPage;
+        int index = slot % slotsPerPage;
+        int left = index % columnsPerPage * slotWidth;
+        int top = index / columnsPerPage * slotHeight;
+        src.set(left, top, left + slotWidth, top + slotHeight);
+        dst.set(-anchorX, -anchorY, slotWidth - anchorX, slotHeight - anchorY);
+
+        int saveCount = canvas.save();
+        canvas.translate(x, y);
+        // 数学坐标系的角度逆时针为正，屏幕上要反过来旋转
+        canvas.rotate(-heading);
+        canvas.drawBitmap(pages.get(page), src, dst, bitmapPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 按量化后的姿态，以朝向 0° 把鱼画进槽位
+     */
+    private void render(int slot, int phase, int frequencyStep, int finsStep) {
+        int page = slot / slotsPerPage;
+        while (pages.size() <= page) {
+            Bitmap bitmap = Bitmap.createBitmap(pageWidth, pageHeight, Bitmap.Config.ARGB_8888);
+            pages.add(bitmap);
+            pageCanvases.add(new Canvas(bitmap));
+        }
+        Canvas canvas = pageCanvases.get(page);
+        int index = slot % slotsPerPage;
+        int left = index % columnsPerPage * slotWidth;
+        int top = index / columnsPerPage * slotHeight;
+
+        float animatorValue = (float) phase / PHASE_STEPS * FishKinematics.MAX_ANIMATOR_VALUE;
+        float frequency = frequencyStep * FREQUENCY_STEP;
+        float finsValue = (float) finsStep / (FINS_STEPS - 1) * MAX_FINS_VALUE;
+        float fishAngle = FishKinematics.fishAngle(0, animatorValue);
+
+        int saveCount = canvas.save();
+        canvas.clipRect(left, top, left + slotWidth, top + slotHeight);
+        // 槽位可能被别的姿态用过，先清空
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        canvas.translate(left + anchorX, top + anchorY);
+        canvas.scale(scale, scale);
+        canvas.translate(-renderer.getMiddlePoint().x, -renderer.getMiddlePoint().y);
+        renderer.drawPose(canvas, fishAngle,
+                FishKinematics.segment1Angle(fishAngle, animatorValue, frequency),
+                FishKinematics.segment2Angle(fishAngle, animatorValue, frequency),
+                FishKinematics.tailEdgeLength(animatorValue), finsValue);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 回收所有图集，之后再绘制时重新生成
+     */
+    public void release() {
+        for (int i = 0; i < pages.size(); i++) {
+            pages.get(i).recycle();
+        }
+        pages.clear();
+        pageCanvases.clear();
+        lru.clear();
+    }
+
+    public int getCapacity() {
+        return lru.getCapacity();
+    }
+
+    public int getSize() {
+        return lru.getSize();
+    }
+
+    public long getHits() {
+        return lru.getHits();
+    }
+
+    public long getMisses() {
+        return lru.getMisses();
+    }
+
+    public long getEvictions() {
+        return lru.getEvictions();
+    }
+
+    public void resetCounters() {
+        lru.resetCounters();
+    }
+
+    /**
+     * 已经分配的图集占用的内存
+     */
+    public long getMemoryBytes() {
+        return (long) pages.size() * pageWidth * pageHeight * 4;
+    }
+}
@@ -0,0 +1,286 @@
+package com.frank.fish;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.Display;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * FishLayout 的另一种实现：整个鱼缸在独立的渲染线程中按 vsync 推进并绘制到 Surface 上。
+ * <p>
+ * 主线程只负责把触摸事件写入无锁的 {@link TouchQueue}，模拟与绘制都在 {@link FishRenderThread} 中进行，
+ * 仍然用 FishDrawable 画鱼。渲染线程随 Surface 创建而启动、随 Surface 销毁而结束，
+ * 鱼缸的状态保存在 {@link AquariumScene} 中，Surface 重建后从原来的状态继续。
+ * <p>
+ * 障碍物、水面、鱼群的各项缓存以及统计面板与 FishLayout 相同，设置都在下一帧由渲染线程生效。
+ * FishLayout 开启渲染线程模式时会把自己的设置转交给它。
+ */
+public class FishSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    // 一帧内最多缓存的触摸事件数
+    private static final int TOUCH_QUEUE_CAPACITY = 256;
+
+    private final AquariumScene scene = new AquariumScene();
+    private final TouchQueue touchQueue = new TouchQueue(TOUCH_QUEUE_CAPACITY);
+    private FishRenderThread renderThread;
+    // 所在的 Activity 是否处于暂停状态
+    private boolean paused;
+    // 已经交给渲染线程的障碍物数量，按与 ObstacleField 相同的规则分配下标
+    private int obstacleCount;
+
+    public FishSurfaceView(Context context) {
+        this(context, null);
+    }
+
+    public FishSurfaceView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FishSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * 设置鱼群中鱼的数量，大于 0 时切换为鱼群模式；为 0 时恢复单条鱼。下一帧在渲染线程中生效
+     */
+    public void setSchoolSize(int size) {
+        scene.setSchoolSize(size);
+    }
+
+    /**
+     * 开启或关闭鱼群的自适应细节层级，下一帧在渲染线程中生效
+     */
+    public void setSchoolLodEnabled(boolean enabled) {
+        scene.setLodEnabled(enabled);
+    }
+
+    /**
+     * 设置鱼群最多缓存多少条鱼的路径，为 0 时关闭。下一帧在渲染线程中生效
+     */
+    public void setSchoolDisplayListCapacity(int capacity) {
+        scene.setDisplayListCapacity(capacity);
+    }
+
+    /**
+     * 设置鱼群精灵缓存的内存预算，大于 0 时鱼群改为按量化后的姿态贴图绘制，为 0 时关闭。下一帧在渲染线程中生效
+     */
+    public void setSchoolSpriteCacheBudget(long bytes) {
+        scene.setSpriteCacheBudget(bytes);
+    }
+
+    /**
+     * 鱼群精灵缓存，可以读取命中、未命中次数，计数在渲染线程中更新。未开启时为 null
+     */
+    @Nullable
+    public FishSpriteCache getSchoolSpriteCache() {
+        return scene.getSpriteCache();
+    }
+
+    /**
+     * 在 (x, y) 处放一个半径为 radius 的圆形障碍物，单条鱼游动时会绕开它。下一帧在渲染线程中生效
+     *
+     * @return 障碍物的下标，用于 {@link #removeObstacle(int)}
+     */
+    public int addObstacle(float x, float y, float radius) {
+        scene.addObstacle(x, y, radius);
+        return obstacleCount++;
+    }
+
+    /**
+     * 移除第 index 个障碍物，原来的最后一个障碍物改用 index 作为下标。下一帧在渲染线程中生效
+     */
+    public void removeObstacle(int index) {
+        // 渲染线程中越界会直接崩溃，在调用方线程先检查
+        if (index < 0 || index >= obstacleCount) {
+            throw new IndexOutOfBoundsException("Obstacle " + index + ", count " + obstacleCount);
+        }
+        scene.removeObstacle(index);
+        obstacleCount--;
+    }
+
+    public void clearObstacles() {
+        scene.clearObstacles();
+        obstacleCount = 0;
+    }
+
+    /**
+     * 设置水面高度场每个格子的边长，大于 0 时开启，为 0 时关闭，触摸恢复为圆形波纹。下一帧在渲染线程中生效
+     */
+    public void setWaterCellSize(float cellSize) {
+        scene.setWaterCellSize(cellSize);
+    }
+
+    /**
+     * 水面平静时的颜色
+     */
+    public void setWaterColor(int color) {
+        scene.setWaterColor(color);
+    }
+
+    /**
+     * 开启或关闭帧耗时统计，关闭时同时隐藏统计面板。统计在渲染线程中进行，tick 为每帧推进的耗时
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        scene.setMetricsEnabled(enabled);
+    }
+
+    public boolean isMetricsEnabled() {
+        return scene.isMetricsEnabled();
+    }
+
+    /**
+     * 显示或隐藏左上角的统计面板，显示时会自动开启统计
+     */
+    public void setMetricsHudVisible(boolean visible) {
+        scene.setMetricsHudVisible(visible, getResources().getDisplayMetrics().density);
+    }
+
+    public boolean isMetricsHudVisible() {
+        return scene.isMetricsHudVisible();
+    }
+
+    /**
+     * 帧耗时统计，数值在渲染线程中更新，读到的可能不是同一帧的。还没有生效时为 null
+     */
+    @Nullable
+    public FishMetrics getMetrics() {
+        return scene.getMetrics();
+    }
+
+    /**
+     * 把目前为止的统计结果写入文件，渲染线程在运行时等它画完当前这一帧后在渲染线程中写入。
+     * 未开启统计时抛出 IllegalStateException
+     */
+    public void dumpMetrics(final File file) throws IOException {
+        FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                scene.dumpMetrics(file);
+                return null;
+            }
+        });
+        if (renderThread == null || !renderThread.runOnRenderThread(task)) {
+            // 渲染线程没有运行，统计不会再变，直接在当前线程中写入
+            scene.dumpMetrics(file);
+            return;
+        }
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while dumping metrics");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 设置固定的模拟步长，为 0 时按实际帧间隔推进。下一帧在渲染线程中生效
+     */
+    public void setFixedStepNanos(long stepNanos) {
+        scene.setFixedStepNanos(stepNanos);
+    }
+
+    /**
+     * 开始把触摸输入录制到 file，之后可以用 HeadlessReplay 在任意机器上重放并逐步比较校验和
+     */
+    public void startRecording(File file) {
+        scene.startRecording(file);
+    }
+
+    /**
+     * 结束录制，渲染线程在下一帧写入文件
+     */
+    public void stopRecording() {
+        scene.stopRecording();
+    }
+
+    /**
+     * 鱼缸的背景色，Surface 不透明，需要自己画背景
+     */
+    public void setAquariumColor(int color) {
+        scene.setBackgroundColor(color);
+    }
+
+    /**
+     * 由 Activity 的 onPause() 调用，渲染线程停止推进和绘制，恢复后从暂停时的状态继续
+     */
+    public void onPause() {
+        paused = true;
+        if (renderThread != null) {
+            renderThread.setPaused(true);
+        }
+    }
+
+    /**
+     * 由 Activity 的 onResume() 调用
+     */
+    public void onResume() {
+        paused = false;
+        if (renderThread != null) {
+            renderThread.setPaused(false);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateExpectedFrameInterval();
+    }
+
+    /**
+     * 按当前屏幕的刷新率设置一帧的理想间隔，用来判断掉帧，同时作为细节层级的帧预算
+     */
+    private void updateExpectedFrameInterval() {
+        Display display = getDisplay();
+        if (display == null || display.getRefreshRate() <= 0) {
+            return;
+        }
+        scene.setExpectedFrameIntervalNanos((long) (1e9 / display.getRefreshRate()));
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new FishRenderThread(holder, scene, touchQueue);
+        renderThread.setPaused(paused);
+        renderThread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        renderThread.setSurfaceSize(width, height);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // 必须等渲染线程结束，surfaceDestroyed 返回后 Surface 就不能再用了
+        renderThread.quitAndWait();
+        renderThread = null;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        // 拖动时也要持续收到事件，这里返回 true；事件交给渲染线程在下一帧统一处理
+        touchQueue.offer(event.getActionMasked(), event.getX(), event.getY());
+        return true;
+    }
+}
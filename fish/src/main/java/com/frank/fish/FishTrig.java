@@ -0,0 +1,72 @@
+package com.frank.fish;
+
+/**
+ * 查表实现的 float 三角函数，参数以角度为单位，省去 Math.toRadians() 以及 double 精度的 sin/cos。
+ * <p>
+ * 表的大小会向上取整为 2 的幂，这样取下标时用位运算就能处理任意大小（包括负数）的角度。
+ * 表下标按 double 精度计算，角度很大（例如节肢摆动的相位可达数千度）时小数部分也不会丢失精度。
+ * 开启插值时在相邻两项之间做线性插值，默认 4096 项时在 ±1e8° 以内误差都在 1e-6 以内。
+ */
+public class FishTrig {
+
+    // 默认配置，供骨架计算使用
+    public static final FishTrig DEFAULT = new FishTrig(4096, true);
+
+    private final float[] sinTable;
+    private final int mask;
+    // 角度换算成表下标的系数
+    private final double indexPerDegree;
+    private final int quarterIndex;
+    private final boolean interpolate;
+
+    /**
+     * @param resolution  一周（360°）的表项数，会向上取整为 2 的幂
+     * @param interpolate 是否在相邻表项之间线性插值，不插值时直接取最近的表项
+     */
+    public FishTrig(int resolution, boolean interpolate) {
+        int size = Integer.highestOneBit(Math.max(4, resolution));
+        if (size < resolution) {
+            size <<= 1;
+        }
+        // 多存一项，插值时不需要再对下一项取模
+        sinTable = new float[size + 1];
+        for (int i = 0; i <= size; i++) {
+            sinTable[i] = (float) Math.sin(Math.PI * 2 * i / size);
+        }
+        mask = size - 1;
+        indexPerDegree = size / 360.0;
+        quarterIndex = size / 4;
+        this.interpolate = interpolate;
+    }
+
+    public float sin(float degrees) {
+        return lookup(degrees * indexPerDegree);
+    }
+
+    public float cos(float degrees) {
+        // 在下标上加四分之一周，不在 float 精度的角度上加 90°
+        return lookup(degrees * indexPerDegree + quarterIndex);
+    }
+
+    private float lookup(double position) {
+        if (!interpolate) {
+            return sinTable[(int) Math.round(position) & mask];
+        }
+        int index = (int) position;
+        if (position < index) {
+            index--;
+        }
+        float fraction = (float) (position - index);
+        index &= mask;
+        float from = sinTable[index];
+        return from + (sinTable[index + 1] - from) * fraction;
+    }
+
+    public int getResolution() {
+        return mask + 1;
+    }
+
+    public boolean isInterpolated() {
+        return interpolate;
+    }
+}
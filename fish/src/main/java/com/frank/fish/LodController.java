@@ -0,0 +1,208 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+
+/**
+ * 为每条鱼选择细节层级，纯 Java 实现。
+ * <p>
+ * 首先按鱼在屏幕上的长度选层级：不小于 {@link #FULL_MIN_SIZE} 像素时画完整的鱼，不小于
+ * {@link #SILHOUETTE_MIN_SIZE} 像素时画剪影，再小就只贴一张精灵。升到更高的层级要求大小超过阈值的
+ * {@link #HYSTERESIS} 倍，降级则按原阈值，鱼在阈值附近时不会来回跳。
+ * <p>
+ * 其次按实际的帧间隔限制高层级的鱼的数量：连续 {@link #DEGRADE_FRAMES} 帧超出预算时，把完整层级
+ * （已经没有完整层级的鱼时改为剪影层级）的名额降到上一帧实际数量的 3/4；连续 {@link #UPGRADE_FRAMES}
+ * 帧都在预算内时再一点点放宽。名额按鱼的下标顺序分配，名额不变时每条鱼的层级也不变。
+ * <p>
+ * 每帧绘制前调用 {@link #beginFrame(int)}，依次为每条鱼调用 {@link #select(int, float)}；每次收到帧回调时
+ * 用 {@link #onFrame(long)} 报告帧间隔。所有方法都应在同一个线程中调用。
+ */
+public class LodController {
+
+    /**
+     * 细节层级，FishDrawable 中有同名的常量
+     */
+    // 完整的鱼
+    public static final int LOD_FULL = 0;
+    // 身体、节肢1加大尾巴的剪影
+    public static final int LOD_SILHOUETTE = 1;
+    // 按朝向旋转的一张精灵
+    public static final int LOD_SPRITE = 2;
+
+    // 画完整的鱼所需的最小长度，单位像素
+    public static final float FULL_MIN_SIZE = 48f;
+    // 画剪影所需的最小长度，单位像素
+    public static final float SILHOUETTE_MIN_SIZE = 20f;
+    // 升级时阈值放大的倍数
+    public static final float HYSTERESIS = 1.25f;
+
+    // 连续超出预算多少帧后降级
+    public static final int DEGRADE_FRAMES = 4;
+    // 连续在预算内多少帧后升级
+    public static final int UPGRADE_FRAMES = 60;
+
+    // 帧间隔超过预算的这个倍数才算超出，即至少掉了半帧
+    private static final float OVER_BUDGET_RATIO = 1.5f;
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // 一帧的预算，默认按 60Hz
+    private long frameBudgetNanos = 1000000000L / 60;
+
+    // 完整层级和剪影层级最多的鱼数
+    private int fullQuota = UNLIMITED;
+    private int silhouetteQuota = UNLIMITED;
+
+    // 每条鱼上一次按大小选出的层级
+    private byte[] sizeTiers = new byte[0];
+    // 最近一帧要画的鱼数，以及其中选中完整层级和剪影层级的鱼数
+    private int total;
+    private int fullCount;
+    private int silhouetteCount;
+
+    private int overBudgetFrames;
+    private int underBudgetFrames;
+
+    /**
+     * 设置一帧的预算，通常是屏幕刷新间隔
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    public long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
+    /**
+     * 开始为新的一帧选择层级，count 为这一帧要画的鱼数
+     */
+    public void beginFrame(int count) {
+        if (sizeTiers.length < count) {
+            byte[] newTiers = new byte[count];
+            System.arraycopy(sizeTiers, 0, newTiers, 0, sizeTiers.length);
+            sizeTiers = newTiers;
+        }
+        total = count;
+        fullCount = 0;
+        silhouetteCount = 0;
+    }
+
+    /**
+     * 为第 index 条鱼选择层级，必须按下标从小到大依次调用
+     *
+     * @param projectedSize 鱼在屏幕上从尾尖到鱼头的长度，单位像素
+     * @return {@link #LOD_FULL}、{@link #LOD_SILHOUETTE} 或 {@link #LOD_SPRITE}
+     */
+    public int select(int index, float projectedSize) {
+        // 滞后只作用于按大小选出的层级，被名额压低的鱼在名额放宽后可以直接恢复
+        int tier = sizeTier(sizeTiers[index], projectedSize);
+        sizeTiers[index] = (byte) tier;
+        if (tier == LOD_FULL && fullCount >= fullQuota) {
+            tier = LOD_SILHOUETTE;
+        }
+        if (tier == LOD_SILHOUETTE && silhouetteCount >= silhouetteQuota) {
+            tier = LOD_SPRITE;
+        }
+        if (tier == LOD_FULL) {
+            fullCount++;
+        } else if (tier == LOD_SILHOUETTE) {
+            silhouetteCount++;
+        }
+        return tier;
+    }
+
+    private static int sizeTier(int current, float size) {
+        float fullMin = current == LOD_FULL ? FULL_MIN_SIZE : FULL_MIN_SIZE * HYSTERESIS;
+        if (size >= fullMin) {
+            return LOD_FULL;
+        }
+        float silhouetteMin = current != LOD_SPRITE
+                ? SILHOUETTE_MIN_SIZE : SILHOUETTE_MIN_SIZE * HYSTERESIS;
+        return size >= silhouetteMin ? LOD_SILHOUETTE : LOD_SPRITE;
+    }
+
+    /**
+     * 报告一次帧间隔，据此调整各层级的名额
+     */
+    public void onFrame(long frameNanos) {
+        if (frameNanos > frameBudgetNanos * OVER_BUDGET_RATIO) {
+            underBudgetFrames = 0;
+            if (++overBudgetFrames >= DEGRADE_FRAMES) {
+                overBudgetFrames = 0;
+                degrade();
+            }
+        } else {
+            overBudgetFrames = 0;
+            if (++underBudgetFrames >= UPGRADE_FRAMES) {
+                underBudgetFrames = 0;
+                upgrade();
+            }
+        }
+    }
+
+    /**
+     * 按最近一帧实际画出的数量收紧名额，先减少完整的鱼，再减少剪影
+     */
+    private void degrade() {
+        if (fullCount > 0) {
+            fullQuota = fullCount * 3 / 4;
+        } else if (silhouetteCount > 0) {
+            silhouetteQuota = silhouetteCount * 3 / 4;
+        }
+    }
+
+    /**
+     * 逐步放宽名额，顺序与降级相反；名额超过鱼数后恢复为不限制
+     */
+    private void upgrade() {
+        if (silhouetteQuota != UNLIMITED) {
+            silhouetteQuota = grow(silhouetteQuota, total);
+        } else if (fullQuota != UNLIMITED) {
+            fullQuota = grow(fullQuota, total);
+        }
+    }
+
+    private static int grow(int quota, int count) {
+        int grown = quota + Math.max(1, quota / 8);
+        return grown >= count ? UNLIMITED : grown;
+    }
+
+    /**
+     * 清除所有名额限制和每条鱼的层级记录
+     */
+    public void reset() {
+        fullQuota = UNLIMITED;
+        silhouetteQuota = UNLIMITED;
+        Arrays.fill(sizeTiers, (byte) LOD_FULL);
+        overBudgetFrames = 0;
+        underBudgetFrames = 0;
+    }
+
+    /**
+     * 完整层级的名额，不限制时返回 -1
+     */
+    public int getFullQuota() {
+        return fullQuota == UNLIMITED ? -1 : fullQuota;
+    }
+
+    /**
+     * 剪影层级的名额，不限制时返回 -1
+     */
+    public int getSilhouetteQuota() {
+        return silhouetteQuota == UNLIMITED ? -1 : silhouetteQuota;
+    }
+
+    /**
+     * 本帧到目前为止选中完整层级的鱼数
+     */
+    public int getFullCount() {
+        return fullCount;
+    }
+
+    /**
+     * 本帧到目前为止选中剪影层级的鱼数
+     */
+    public int getSilhouetteCount() {
+        return silhouetteCount;
+    }
+}
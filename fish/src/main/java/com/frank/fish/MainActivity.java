@@ -6,9 +6,25 @@ import androidx.appcompat.app.AppCompatActivity;
 
 public class MainActivity extends AppCompatActivity {
 
+    private FishLayout fishLayout;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        fishLayout = findViewById(R.id.fish_layout);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        fishLayout.onResume();
+    }
+
+    @Override
+    protected void onPause() {
+        // 退到后台或被遮挡时暂停所有动画，回来后从暂停时的姿态继续
+        fishLayout.onPause();
+        super.onPause();
     }
 }
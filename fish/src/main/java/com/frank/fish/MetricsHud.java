@@ -0,0 +1,104 @@
+package com.frank.fish;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * 把 FishMetrics 的统计结果画在屏幕左上角。
+ * <p>
+ * 每次绘制都复用同一个 StringBuilder 拼出每一行，再按区间调用 drawText，不创建字符串。
+ * 时间单位：帧间隔为毫秒，各阶段为微秒，均保留一位小数。
+ */
+public class MetricsHud {
+
+    // 文字大小和边距，单位 dp
+    private static final float TEXT_SIZE_DP = 11;
+    private static final float PADDING_DP = 6;
+    // 统计阶段之外的两行：帧数与掉帧、帧间隔
+    private static final int HEADER_LINES = 2;
+    // 预留的每行最大字符数，用来估算背景宽度
+    private static final String WIDEST_LINE = "school_draw p50 0000.0 p99 0000.0 us";
+
+    private final FishMetrics metrics;
+    private final Paint textPaint;
+    private final Paint backgroundPaint;
+    private final StringBuilder line = new StringBuilder(64);
+    private final float padding;
+    private final float lineHeight;
+    private final float ascent;
+    private final Rect bounds = new Rect();
+
+    public MetricsHud(FishMetrics metrics, float density) {
+        this.metrics = metrics;
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(TEXT_SIZE_DP * density);
+        backgroundPaint = new Paint();
+        backgroundPaint.setColor(0x99000000);
+        padding = PADDING_DP * density;
+        Paint.FontMetrics fontMetrics = textPaint.getFontMetrics();
+        lineHeight = fontMetrics.descent - fontMetrics.ascent;
+        ascent = fontMetrics.ascent;
+
+        int lines = HEADER_LINES + FishMetrics.STAGE_COUNT;
+        bounds.set(0, 0, (int) Math.ceil(textPaint.measureText(WIDEST_LINE) + padding * 2),
+                (int) Math.ceil(lineHeight * lines + padding * 2));
+    }
+
+    /**
+     * HUD 占据的区域，每帧只需要刷新这一块
+     */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public void draw(Canvas canvas) {
+        canvas.drawRect(bounds, backgroundPaint);
+        float x = padding;
+        float y = padding - ascent;
+
+        line.setLength(0);
+        line.append("frames ").append(metrics.getFrameCount())
+                .append(" jank ").append(metrics.getJankFrames())
+                .append(" dropped ").append(metrics.getDroppedFrames());
+        y = drawLine(canvas, x, y);
+
+        LatencyHistogram intervals = metrics.getFrameIntervals();
+        line.setLength(0);
+        line.append("interval p50 ");
+        appendDecimal(intervals.getPercentile(50), 1000000);
+        line.append(" p99 ");
+        appendDecimal(intervals.getPercentile(99), 1000000);
+        line.append(" ms");
+        y = drawLine(canvas, x, y);
+
+        for (int i = 0; i < FishMetrics.STAGE_COUNT; i++) {
+            LatencyHistogram stage = metrics.getStage(i);
+            if (stage.getCount() == 0) {
+                continue;
+            }
+            line.setLength(0);
+            line.append(FishMetrics.getStageName(i)).append(" p50 ");
+            appendDecimal(stage.getPercentile(50), 1000);
+            line.append(" p99 ");
+            appendDecimal(stage.getPercentile(99), 1000);
+            line.append(" us");
+            y = drawLine(canvas, x, y);
+        }
+    }
+
+    private float drawLine(Canvas canvas, float x, float y) {
+        canvas.drawText(line, 0, line.length(), x, y, textPaint);
+        return y + lineHeight;
+    }
+
+    /**
+     * 追加 nanos / unit，保留一位小数
+     */
+    private void appendDecimal(long nanos, long unit) {
+        long tenths = nanos * 10 / unit;
+        line.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
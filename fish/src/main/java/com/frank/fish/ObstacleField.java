@@ -0,0 +1,227 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+
+/**
+ * 鱼缸中的静态障碍物（石头、荷叶等，都近似为圆）以及预先算好的有向距离场，纯 Java 实现。
+ * <p>
+ * 鱼缸被划分成边长为 cellSize 的粗网格，每个格子保存格子中心到最近障碍物边缘的距离，在障碍物内部为负。
+ * 距离只在障碍物附近有意义，超过 {@link #MAX_DISTANCE} 的一律记为 MAX_DISTANCE，因此每个障碍物只影响它周围
+ * 有限的一块格子。增加、移动或删除障碍物时只把受影响的格子范围并入脏区，下次 {@link #update()} 时
+ * 只重算脏区内的格子，其余格子保持不变。
+ * <p>
+ * 所有方法都应在同一个线程中调用。
+ */
+public class ObstacleField {
+
+    // 距离场记录的最大距离，单位像素，更远的格子都按这个距离处理
+    public static final float MAX_DISTANCE = 160f;
+
+    // 障碍物按圆心和半径保存，删除时用最后一个填补空位
+    private float[] xs = new float[8];
+    private float[] ys = new float[8];
+    private float[] radii = new float[8];
+    private int count;
+
+    private float cellSize;
+    private int columns;
+    private int rows;
+    // 每个格子中心的有向距离，按行存放
+    private float[] distances = new float[0];
+
+    // 还没有重算的格子范围，闭区间，dirtyLeft > dirtyRight 表示没有
+    private int dirtyLeft;
+    private int dirtyTop;
+    private int dirtyRight = -1;
+    private int dirtyBottom;
+
+    /**
+     * 设置距离场覆盖的区域和格子边长，整个距离场都需要重算
+     */
+    public void resize(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        if (distances.length < columns * rows) {
+            distances = new float[columns * rows];
+        }
+        markDirty(0, 0, columns - 1, rows - 1);
+    }
+
+    /**
+     * 增加一个圆形障碍物
+     *
+     * @return 障碍物的下标
+     */
+    public int add(float x, float y, float radius) {
+        if (count == xs.length) {
+            int capacity = count * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        radii[count] = radius;
+        markDirty(count);
+        return count++;
+    }
+
+    /**
+     * 把第 index 个障碍物移到 (x, y)
+     */
+    public void move(int index, float x, float y) {
+        markDirty(index);
+        xs[index] = x;
+        ys[index] = y;
+        markDirty(index);
+    }
+
+    /**
+     * 删除第 index 个障碍物，原来的最后一个障碍物改用 index 作为下标
+     */
+    public void remove(int index) {
+        markDirty(index);
+        count--;
+        xs[index] = xs[count];
+        ys[index] = ys[count];
+        radii[index] = radii[count];
+    }
+
+    /**
+     * 删除所有障碍物
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            markDirty(i);
+        }
+        count = 0;
+    }
+
+    // 把第 index 个障碍物影响的格子范围并入脏区
+    private void markDirty(int index) {
+        if (columns == 0) {
+            return;
+        }
+        float reach = radii[index] + MAX_DISTANCE;
+        markDirty(column(xs[index] - reach), row(ys[index] - reach),
+                column(xs[index] + reach), row(ys[index] + reach));
+    }
+
+    private void markDirty(int left, int top, int right, int bottom) {
+        if (dirtyLeft > dirtyRight) {
+            dirtyLeft = left;
+            dirtyTop = top;
+            dirtyRight = right;
+            dirtyBottom = bottom;
+        } else {
+            dirtyLeft = Math.min(dirtyLeft, left);
+            dirtyTop = Math.min(dirtyTop, top);
+            dirtyRight = Math.max(dirtyRight, right);
+            dirtyBottom = Math.max(dirtyBottom, bottom);
+        }
+    }
+
+    /**
+     * 重算脏区内的格子，没有脏区时直接返回
+     *
+     * @return 是否重算了
+     */
+    public boolean update() {
+        if (dirtyLeft > dirtyRight) {
+            return false;
+        }
+        for (int row = dirtyTop; row <= dirtyBottom; row++) {
+            Arrays.fill(distances, row * columns + dirtyLeft, row * columns + dirtyRight + 1, MAX_DISTANCE);
+        }
+        // 只有影响范围与脏区相交的障碍物需要参与计算
+        for (int i = 0; i < count; i++) {
+            float radius = radii[i];
+            float reach = radius + MAX_DISTANCE;
+            int left = Math.max(dirtyLeft, column(xs[i] - reach));
+            int top = Math.max(dirtyTop, row(ys[i] - reach));
+            int right = Math.min(dirtyRight, column(xs[i] + reach));
+            int bottom = Math.min(dirtyBottom, row(ys[i] + reach));
+            for (int row = top; row <= bottom; row++) {
+                float dy = (row + 0.5f) * cellSize - ys[i];
+                int offset = row * columns;
+                for (int column = left; column <= right; column++) {
+                    float dx = (column + 0.5f) * cellSize - xs[i];
+                    float distance = (float) Math.sqrt(dx * dx + dy * dy) - radius;
+                    if (distance < distances[offset + column]) {
+                        distances[offset + column] = distance;
+                    }
+                }
+            }
+        }
+        dirtyLeft = 0;
+        dirtyRight = -1;
+        return true;
+    }
+
+    /**
+     * 格子 (column, row) 中心的有向距离，调用前应先 {@link #update()}
+     */
+    public float getDistance(int column, int row) {
+        return distances[row * columns + column];
+    }
+
+    /**
+     * 任意一点的有向距离，由周围四个格子中心的距离双线性插值得到
+     */
+    public float sample(float x, float y) {
+        float gx = Math.max(0, Math.min(columns - 1, x / cellSize - 0.5f));
+        float gy = Math.max(0, Math.min(rows - 1, y / cellSize - 0.5f));
+        int column = (int) gx;
+        int row = (int) gy;
+        int right = Math.min(column + 1, columns - 1);
+        int bottom = Math.min(row + 1, rows - 1);
+        float fx = gx - column;
+        float fy = gy - row;
+        float top = lerp(distances[row * columns + column], distances[row * columns + right], fx);
+        float lower = lerp(distances[bottom * columns + column], distances[bottom * columns + right], fx);
+        return lerp(top, lower, fy);
+    }
+
+    private static float lerp(float from, float to, float fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    public int column(float x) {
+        int column = (int) Math.floor(x / cellSize);
+        return column < 0 ? 0 : (column >= columns ? columns - 1 : column);
+    }
+
+    public int row(float y) {
+        int row = (int) Math.floor(y / cellSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public float getRadius(int index) {
+        return radii[index];
+    }
+}
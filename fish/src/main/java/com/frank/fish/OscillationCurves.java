@@ -0,0 +1,68 @@
+package com.frank.fish;
+
+/**
+ * 鱼身、节肢和尾巴的摆动曲线。
+ * <p>
+ * 鱼身摆动角度和尾巴对边长度只与属性动画值 [0, 720] 有关，预先烘焙成表，之后按属性动画值查表并线性插值。
+ * 节肢和尾巴的摆动角度还与摆尾频率有关，鱼群中每条鱼的频率随速度连续变化，按量化后的频率烘焙会让摆动角度
+ * 明显偏离，并在频率跨过量化边界时跳变，所以这两项按 currentAnimatorValue * frequency * 1.5 直接通过
+ * {@link FishTrig} 查表计算，同样不需要 double 精度的 sin/cos。
+ */
+public class OscillationCurves {
+
+    // 每一度属性动画值采样的次数
+    private static final int SAMPLES_PER_DEGREE = 2;
+    private static final int SAMPLE_COUNT = (int) (FishKinematics.MAX_ANIMATOR_VALUE * SAMPLES_PER_DEGREE);
+
+    // 鱼身摆动角度 sin(v) * 10
+    private static final float[] BODY_SWING = new float[SAMPLE_COUNT + 1];
+    // 尾巴对边长度的一半 |sin(v * 1.5)| * 大圆半径
+    private static final float[] TAIL_EDGE_LENGTH = new float[SAMPLE_COUNT + 1];
+
+    static {
+        for (int i = 0; i <= SAMPLE_COUNT; i++) {
+            double value = (double) i / SAMPLES_PER_DEGREE;
+            BODY_SWING[i] = (float) (Math.sin(Math.toRadians(value)) * 10);
+            TAIL_EDGE_LENGTH[i] = (float) Math.abs(Math.sin(Math.toRadians(value * 1.5))
+                    * FishKinematics.BIG_CIRCLE_RADIUS);
+        }
+    }
+
+    private OscillationCurves() {
+    }
+
+    public static float bodySwing(float animatorValue) {
+        return sample(BODY_SWING, animatorValue);
+    }
+
+    /**
+     * 节肢1摆动角度 cos(v * f * 1.5) * 15
+     */
+    public static float segment1Swing(float animatorValue, float frequency) {
+        return FishTrig.DEFAULT.cos(animatorValue * frequency * 1.5f) * 15;
+    }
+
+    /**
+     * 节肢2和尾巴摆动角度 sin(v * f * 1.5) * 25
+     */
+    public static float segment2Swing(float animatorValue, float frequency) {
+        return FishTrig.DEFAULT.sin(animatorValue * frequency * 1.5f) * 25;
+    }
+
+    public static float tailEdgeLength(float animatorValue) {
+        return sample(TAIL_EDGE_LENGTH, animatorValue);
+    }
+
+    private static float sample(float[] table, float animatorValue) {
+        float position = animatorValue * SAMPLES_PER_DEGREE;
+        if (position <= 0) {
+            return table[0];
+        }
+        if (position >= SAMPLE_COUNT) {
+            return table[SAMPLE_COUNT];
+        }
+        int index = (int) position;
+        float from = table[index];
+        return from + (table[index + 1] - from) * (position - index);
+    }
+}
@@ -0,0 +1,383 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+
+/**
+ * 绕开障碍物的游动路径规划，纯 Java 实现。
+ * <p>
+ * 先试 {@link SwimTrajectory#plan} 规划的那一段曲线，沿途与障碍物的距离都不小于 {@link #CLEARANCE} 时直接使用，
+ * 没有障碍物时行为与原来完全相同。否则在 {@link ObstacleField} 的粗网格上用 A* 搜索一条八连通的格子路径，
+ * 离障碍物越近代价越高；再用距离场检查视线，删掉可以直接跨过的中间点；最后把剩下的路径点连成多段三阶贝塞尔曲线，
+ * 每个路径点处两侧的切线方向相同，第一段在起点处与鱼当前的朝向相切，鱼转向时不会突然折向。
+ * <p>
+ * 搜索最多展开 {@link #MAX_EXPANSIONS} 个格子，超出时放弃绕行，仍然使用原来的曲线，单次规划的耗时有上限。
+ * 用展开数而不是墙上时间限制规划，结果只取决于输入，固定步长的重放不受影响。
+ * 所有数组只在网格变大时重新分配，稳态下规划不会创建任何对象。所有方法都应在同一个线程中调用。
+ */
+public class PathPlanner {
+
+    // 鱼的重心与障碍物边缘至少保持的距离，单位像素
+    public static final float CLEARANCE = FishKinematics.HEAD_RADIUS;
+    // 单次搜索最多展开的格子数
+    public static final int MAX_EXPANSIONS = 4096;
+
+    // 与障碍物的距离小于它时代价开始增加，以及最近处代价增加的倍数
+    private static final float COMFORT_DISTANCE = CLEARANCE * 2;
+    private static final float PROXIMITY_COST = 3f;
+    // 检查曲线和视线时的采样间隔，单位像素
+    private static final float CHECK_STEP = 8f;
+    // 目标点落在障碍物里时，向外寻找空位的最大格子数
+    private static final int MAX_SNAP_CELLS = 8;
+    // 控制点离开端点的距离占弦长的比例，依次尝试，越小曲线越贴近折线，越不容易擦到障碍物
+    private static final float[] TENSIONS = {1 / 3f, 1 / 6f, 1 / 16f};
+    // 起点处控制点离开重心的最大距离，与 SwimTrajectory#plan 相同，鱼在原地附近完成转向
+    private static final float HEAD_LENGTH = FishKinematics.BODY_LENGTH / 2;
+
+    private static final float DIAGONAL = (float) Math.sqrt(2);
+    private static final int[] NEIGHBOR_COLUMNS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_ROWS = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final ObstacleField field;
+
+    // 每个格子的已知最短代价和前驱，只有 openStamps 等于本次搜索编号的格子有效，不必每次清空
+    private float[] costs = new float[0];
+    private int[] parents = new int[0];
+    private int[] openStamps = new int[0];
+    private int[] closedStamps = new int[0];
+    private int search;
+
+    // 二叉堆实现的开放列表，同一个格子可能被放入多次，取出时跳过已经关闭的
+    private int[] heapCells = new int[64];
+    private float[] heapKeys = new float[64];
+    private int heapSize;
+
+    // 从起点到终点的路径点，先是格子路径，简化后原地覆盖
+    private float[] pathXs = new float[64];
+    private float[] pathYs = new float[64];
+    private int pathCount;
+
+    private final float[] chain = new float[2 + 6 * SwimTrajectory.MAX_SEGMENTS];
+    private final float[] sample = new float[2];
+
+    // 最近一次规划展开的格子数
+    private int expansions;
+
+    public PathPlanner(ObstacleField field) {
+        this.field = field;
+    }
+
+    /**
+     * 从鱼当前的重心 (middleX, middleY) 和朝向 heading 出发，规划一条游到 (targetX, targetY) 的轨迹
+     *
+     * @return 是否绕开了障碍物；为 false 时 trajectory 中是 {@link SwimTrajectory#plan} 规划的曲线
+     */
+    public boolean plan(float middleX, float middleY, float heading, float targetX, float targetY,
+                        SwimTrajectory trajectory) {
+        field.update();
+        expansions = 0;
+        trajectory.plan(middleX, middleY, heading, targetX, targetY);
+        if (field.getCount() == 0 || isClear(trajectory)) {
+            return false;
+        }
+        int start = field.row(middleY) * field.getColumns() + field.column(middleX);
+        int goal = snapToFree(field.column(targetX), field.row(targetY));
+        if (goal < 0 || goal == start || !search(start, goal)) {
+            return false;
+        }
+        // 首尾换成实际的重心和目标点，目标点落在障碍物里时停在找到的空格子中心
+        pathXs[0] = middleX;
+        pathYs[0] = middleY;
+        if (field.row(targetY) * field.getColumns() + field.column(targetX) == goal) {
+            pathXs[pathCount - 1] = targetX;
+            pathYs[pathCount - 1] = targetY;
+        }
+        simplify();
+        // 折线的每一段都已经检查过视线，曲线偏离折线太多擦到障碍物时收紧一些再试
+        for (int i = 0; i < TENSIONS.length; i++) {
+            buildChain(heading, TENSIONS[i], trajectory);
+            if (isClear(trajectory)) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    // 沿曲线按弧长均匀采样，检查是否都离障碍物足够远
+    private boolean isClear(SwimTrajectory trajectory) {
+        int samples = Math.max(2, (int) (trajectory.getLength() / CHECK_STEP));
+        for (int i = 1; i <= samples; i++) {
+            trajectory.position((float) i / samples, sample);
+            if (field.sample(sample[0], sample[1]) < CLEARANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 线段两端之间是否都离障碍物足够远
+    private boolean isClear(float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        int samples = Math.max(1, (int) (Math.sqrt(dx * dx + dy * dy) / CHECK_STEP));
+        for (int i = 1; i <= samples; i++) {
+            float fraction = (float) i / samples;
+            if (field.sample(x0 + dx * fraction, y0 + dy * fraction) < CLEARANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFree(int column, int row) {
+        return field.getDistance(column, row) >= CLEARANCE;
+    }
+
+    /**
+     * 目标格子被挡住时，按由近到远的方形圈找最近的空格子，找不到时返回 -1
+     */
+    private int snapToFree(int column, int row) {
+        int columns = field.getColumns();
+        int rows = field.getRows();
+        if (isFree(column, row)) {
+            return row * columns + column;
+        }
+        for (int ring = 1; ring <= MAX_SNAP_CELLS; ring++) {
+            int best = -1;
+            float bestDistance = Float.MAX_VALUE;
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = column - ring; c <= column + ring; c++) {
+                    boolean onRing = Math.abs(r - row) == ring || Math.abs(c - column) == ring;
+                    if (!onRing || r < 0 || r >= rows || c < 0 || c >= columns || !isFree(c, r)) {
+                        continue;
+                    }
+                    float distance = (c - column) * (c - column) + (r - row) * (r - row);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = r * columns + c;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从 start 到 goal 的 A* 搜索，找到时把格子中心按顺序写入路径点
+     */
+    private boolean search(int start, int goal) {
+        int columns = field.getColumns();
+        int cellCount = columns * field.getRows();
+        if (costs.length < cellCount) {
+            costs = new float[cellCount];
+            parents = new int[cellCount];
+            openStamps = new int[cellCount];
+            closedStamps = new int[cellCount];
+        }
+        if (++search == 0) {
+            // 编号用完一轮后清空，避免与很久以前的搜索混淆
+            Arrays.fill(openStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            search = 1;
+        }
+        int goalColumn = goal % columns;
+        int goalRow = goal / columns;
+        heapSize = 0;
+        costs[start] = 0;
+        parents[start] = -1;
+        openStamps[start] = search;
+        push(start, heuristic(start % columns, start / columns, goalColumn, goalRow));
+
+        float cellSize = field.getCellSize();
+        while (heapSize > 0) {
+            int cell = pop();
+            if (closedStamps[cell] == search) {
+                continue;
+            }
+            if (cell == goal) {
+                tracePath(goal);
+                return true;
+            }
+            if (++expansions > MAX_EXPANSIONS) {
+                return false;
+            }
+            closedStamps[cell] = search;
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int n = 0; n < NEIGHBOR_COLUMNS.length; n++) {
+                int c = column + NEIGHBOR_COLUMNS[n];
+                int r = row + NEIGHBOR_ROWS[n];
+                if (c < 0 || c >= columns || r < 0 || r >= field.getRows() || !isFree(c, r)) {
+                    continue;
+                }
+                // 斜着走时两侧的格子也必须是空的，不从障碍物的角上穿过去
+                if (n >= 4 && (!isFree(c, row) || !isFree(column, r))) {
+                    continue;
+                }
+                int next = r * columns + c;
+                if (closedStamps[next] == search) {
+                    continue;
+                }
+                float distance = field.getDistance(c, r);
+                float penalty = distance < COMFORT_DISTANCE
+                        ? PROXIMITY_COST * (COMFORT_DISTANCE - distance) / COMFORT_DISTANCE : 0;
+                float cost = costs[cell] + (n >= 4 ? DIAGONAL : 1) * cellSize * (1 + penalty);
+                if (openStamps[next] != search || cost < costs[next]) {
+                    openStamps[next] = search;
+                    costs[next] = cost;
+                    parents[next] = cell;
+                    push(next, cost + heuristic(c, r, goalColumn, goalRow));
+                }
+            }
+        }
+        return false;
+    }
+
+    // 八连通网格上的对角距离，代价只会比它大，保证找到的是最短路径
+    private float heuristic(int column, int row, int goalColumn, int goalRow) {
+        int dx = Math.abs(goalColumn - column);
+        int dy = Math.abs(goalRow - row);
+        return (Math.max(dx, dy) + (DIAGONAL - 1) * Math.min(dx, dy)) * field.getCellSize();
+    }
+
+    private void tracePath(int goal) {
+        int columns = field.getColumns();
+        float cellSize = field.getCellSize();
+        pathCount = 0;
+        for (int cell = goal; cell >= 0; cell = parents[cell]) {
+            if (pathCount == pathXs.length) {
+                pathXs = Arrays.copyOf(pathXs, pathCount * 2);
+                pathYs = Arrays.copyOf(pathYs, pathCount * 2);
+            }
+            pathXs[pathCount] = (cell % columns + 0.5f) * cellSize;
+            pathYs[pathCount] = (cell / columns + 0.5f) * cellSize;
+            pathCount++;
+        }
+        // 从终点回溯得到的是倒序，翻转成从起点开始
+        for (int i = 0, j = pathCount - 1; i < j; i++, j--) {
+            float x = pathXs[i];
+            pathXs[i] = pathXs[j];
+            pathXs[j] = x;
+            float y = pathYs[i];
+            pathYs[i] = pathYs[j];
+            pathYs[j] = y;
+        }
+    }
+
+    /**
+     * 从每个保留的点出发，一直跳到视线还能直接到达的最远的点，删掉中间的点
+     */
+    private void simplify() {
+        int kept = 1;
+        int anchor = 0;
+        while (anchor < pathCount - 1) {
+            int next = anchor + 1;
+            while (next < pathCount - 1
+                    && isClear(pathXs[anchor], pathYs[anchor], pathXs[next + 1], pathYs[next + 1])) {
+                next++;
+            }
+            pathXs[kept] = pathXs[next];
+            pathYs[kept] = pathYs[next];
+            kept++;
+            anchor = next;
+        }
+        // 超出最多的段数时只走前面一部分，到达后再次触摸会继续规划
+        pathCount = Math.min(kept, SwimTrajectory.MAX_SEGMENTS + 1);
+    }
+
+    /**
+     * 把路径点连成多段三阶贝塞尔曲线。每个中间点的切线方向取前后两个点连线的方向，
+     * 起点的切线取鱼的朝向，终点取最后一段的方向；控制点沿切线离开端点该段弦长的 tension 倍
+     */
+    private void buildChain(float heading, float tension, SwimTrajectory trajectory) {
+        double headingRadians = Math.toRadians(heading);
+        float tangentX = (float) Math.cos(headingRadians);
+        float tangentY = -(float) Math.sin(headingRadians);
+        chain[0] = pathXs[0];
+        chain[1] = pathYs[0];
+        int segments = pathCount - 1;
+        for (int i = 0; i < segments; i++) {
+            float x0 = pathXs[i];
+            float y0 = pathYs[i];
+            float x1 = pathXs[i + 1];
+            float y1 = pathYs[i + 1];
+            float reach = (float) Math.sqrt((x1 - x0) * (x1 - x0) + (y1 - y0) * (y1 - y0)) * tension;
+            float startReach = i == 0 ? Math.min(reach, HEAD_LENGTH) : reach;
+            // 终点处的切线
+            float nextX = i + 2 < pathCount ? pathXs[i + 2] - x0 : x1 - x0;
+            float nextY = i + 2 < pathCount ? pathYs[i + 2] - y0 : y1 - y0;
+            float nextLength = (float) Math.sqrt(nextX * nextX + nextY * nextY);
+            if (nextLength > 0) {
+                nextX /= nextLength;
+                nextY /= nextLength;
+            }
+            int o = 2 + i * 6;
+            chain[o] = x0 + tangentX * startReach;
+            chain[o + 1] = y0 + tangentY * startReach;
+            chain[o + 2] = x1 - nextX * reach;
+            chain[o + 3] = y1 - nextY * reach;
+            chain[o + 4] = x1;
+            chain[o + 5] = y1;
+            tangentX = nextX;
+            tangentY = nextY;
+        }
+        trajectory.setChain(chain, segments);
+    }
+
+    private void push(int cell, float key) {
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        float lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= lastKey) {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapCells[i] = lastCell;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+
+    /**
+     * 最近一次规划中 A* 展开的格子数，没有搜索时为 0
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    public ObstacleField getField() {
+        return field;
+    }
+}
@@ -0,0 +1,61 @@
+package com.frank.fish;
+
+/**
+ * 鱼群某一帧算好的全部骨架点，由 PoseWorker 在后台线程写入，主线程绘制时只需要读取。
+ * <p>
+ * 第 i 条鱼的 {@link FishKinematics#POINT_COUNT} 个骨架点依次保存在 points 的
+ * [i * POINT_STRIDE, (i + 1) * POINT_STRIDE) 中，坐标以鱼的重心为原点、按原始大小计算，
+ * 绘制时平移到 (xs[i], ys[i]) 并缩放即可。其余字段供精灵缓存等按姿态参数绘制的方式使用。
+ */
+public class PoseSnapshot {
+
+    // 每条鱼的骨架点在 points 中占用的 float 数
+    public static final int POINT_STRIDE = FishKinematics.POINT_COUNT * 2;
+
+    public int count;
+    // 发布的序号，每计算一帧加一
+    public long sequence;
+    // 计算这一帧（模拟一步加骨架点）所用的时间
+    public long computeNanos;
+
+    public float[] xs = new float[0];
+    public float[] ys = new float[0];
+    public float[] headings = new float[0];
+    public float[] animatorValues = new float[0];
+    public float[] frequencies = new float[0];
+    public float[] finsValues = new float[0];
+    public float[] points = new float[0];
+
+    /**
+     * 根据鱼群快照中批量算好的姿态角度，计算出每条鱼的骨架点
+     */
+    public void fill(SchoolSnapshot school, FishKinematics kinematics) {
+        int count = school.count;
+        ensureCapacity(count);
+        this.count = count;
+        System.arraycopy(school.xs, 0, xs, 0, count);
+        System.arraycopy(school.ys, 0, ys, 0, count);
+        System.arraycopy(school.headings, 0, headings, 0, count);
+        System.arraycopy(school.animatorValues, 0, animatorValues, 0, count);
+        System.arraycopy(school.frequencies, 0, frequencies, 0, count);
+        System.arraycopy(school.finsValues, 0, finsValues, 0, count);
+        for (int i = 0; i < count; i++) {
+            kinematics.computePoints(0, 0, school.fishAngles[i], school.segment1Angles[i],
+                    school.segment2Angles[i], school.tailEdgeLengths[i], school.finsValues[i]);
+            System.arraycopy(kinematics.points, 0, points, i * POINT_STRIDE, POINT_STRIDE);
+        }
+    }
+
+    void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) {
+            return;
+        }
+        xs = new float[capacity];
+        ys = new float[capacity];
+        headings = new float[capacity];
+        animatorValues = new float[capacity];
+        frequencies = new float[capacity];
+        finsValues = new float[capacity];
+        points = new float[capacity * POINT_STRIDE];
+    }
+}
@@ -0,0 +1,158 @@
+package com.frank.fish;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在后台线程中推进鱼群并计算全部骨架点，纯 Java 实现。
+ * <p>
+ * 主线程每帧调用 {@link #requestFrame(long)} 把时间间隔交给工作线程，工作线程推进一步 FishSchool，
+ * 把每条鱼的骨架点写入三缓冲中的一份 PoseSnapshot 后发布。主线程绘制时用 {@link #acquire()}
+ * 取最近发布的快照，只剩下画布调用。工作线程没来得及算完时主线程画上一次的结果，双方都不会等待对方。
+ * <p>
+ * 工作线程运行期间 FishSchool 只由它访问；需要修改鱼群（设置范围、重新生成）时先 {@link #stop()}，
+ * 改完后调用 {@link #refresh()} 立即发布一份新快照，再 {@link #start()}。
+ */
+public class PoseWorker {
+
+    // 单步模拟的最长时间间隔，避免卡顿后一步跨得太远
+    private static final long MAX_STEP_NANOS = 50 * 1000000L;
+
+    private final FishSchool school;
+    private final FishKinematics kinematics = new FishKinematics();
+    private final TripleBuffer<PoseSnapshot> buffers =
+            new TripleBuffer<>(new PoseSnapshot(), new PoseSnapshot(), new PoseSnapshot());
+
+    // 主线程写入、工作线程取走的累计时间间隔
+    private final AtomicLong pendingNanos = new AtomicLong();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    // 触摸吸引点，x、y 的 float 位拼成一个 long 一次写入，x 为 NaN 表示没有吸引点
+    private volatile long target = packTarget(Float.NaN, 0);
+
+    private Thread thread;
+    private volatile boolean running;
+    // 只由生产者（工作线程，或停止时调用 refresh() 的线程）读写
+    private long sequence;
+
+    public PoseWorker(FishSchool school) {
+        this.school = school;
+    }
+
+    public FishSchool getSchool() {
+        return school;
+    }
+
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "FishPoseWorker");
+        thread.start();
+    }
+
+    /**
+     * 停止工作线程并等待它结束，返回后可以安全地修改 FishSchool
+     */
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * 由主线程每帧调用，请求工作线程推进 deltaNanos 纳秒并计算新的骨架点
+     */
+    public void requestFrame(long deltaNanos) {
+        pendingNanos.addAndGet(deltaNanos);
+        requested.set(true);
+        Thread worker = thread;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * 可以在任意线程调用，下一步模拟时生效
+     */
+    public void setTarget(float x, float y) {
+        target = packTarget(x, y);
+    }
+
+    public void clearTarget() {
+        target = packTarget(Float.NaN, 0);
+    }
+
+    /**
+     * 工作线程停止时，用鱼群当前的状态立即算出并发布一份快照
+     */
+    public void refresh() {
+        if (thread != null) {
+            throw new IllegalStateException("Worker is running");
+        }
+        publish(0);
+    }
+
+    /**
+     * 由主线程调用，获取最近发布的快照，在下一次调用之前可以放心读取
+     */
+    public PoseSnapshot acquire() {
+        return buffers.acquire();
+    }
+
+    private void loop() {
+        while (running) {
+            if (!requested.getAndSet(false)) {
+                LockSupport.park(this);
+                continue;
+            }
+            long start = System.nanoTime();
+            long deltaNanos = pendingNanos.getAndSet(0);
+            long packed = target;
+            float targetX = Float.intBitsToFloat((int) (packed >>> 32));
+            if (Float.isNaN(targetX)) {
+                school.clearTarget();
+            } else {
+                school.setTarget(targetX, Float.intBitsToFloat((int) packed));
+            }
+            school.step(Math.min(deltaNanos, MAX_STEP_NANOS) / 1e9f);
+            publish(start);
+        }
+    }
+
+    private void publish(long startNanos) {
+        PoseSnapshot snapshot = buffers.getWriteBuffer();
+        snapshot.fill(school.getSnapshot(), kinematics);
+        snapshot.sequence = ++sequence;
+        snapshot.computeNanos = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+        buffers.publish();
+    }
+
+    private static long packTarget(float x, float y) {
+        return ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xffffffffL);
+    }
+}
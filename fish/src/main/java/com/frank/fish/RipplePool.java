@@ -0,0 +1,127 @@
+package com.frank.fish;
+
+/**
+ * 固定容量的波纹池，所有波纹的状态保存在基本类型数组中。
+ * <p>
+ * 每个波纹只记录圆心和已经扩散的时间，半径和透明度都由时间算出，由 FishLayout 的每帧回调统一推进、
+ * 在一次 onDraw 中全部画出。新增波纹时不创建任何对象，池满时直接复用最早的那个。
+ */
+public class RipplePool {
+
+    // 波纹从出现到消失的时间，单位秒
+    public static final float DURATION = 1f;
+    // 波纹最大半径
+    public static final float MAX_RADIUS = 100f;
+    // 波纹初始透明度，随着扩散变浅
+    public static final int MAX_ALPHA = 100;
+
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] ages;
+    private int count;
+
+    public RipplePool(int capacity) {
+        xs = new float[capacity];
+        ys = new float[capacity];
+        ages = new float[capacity];
+    }
+
+    /**
+     * 在 (x, y) 处新增一个波纹，池满时替换扩散时间最长的那个
+     */
+    public void spawn(float x, float y) {
+        int index = count;
+        if (count == xs.length) {
+            index = 0;
+            for (int i = 1; i < count; i++) {
+                if (ages[i] > ages[index]) {
+                    index = i;
+                }
+            }
+        } else {
+            count++;
+        }
+        xs[index] = x;
+        ys[index] = y;
+        ages[index] = 0;
+    }
+
+    /**
+     * 移除所有波纹
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * 推进所有波纹，并移除已经消失的波纹
+     *
+     * @param dt 时间间隔，单位秒
+     * @return 推进前是否有波纹，即本帧是否需要重绘
+     */
+    public boolean advance(float dt) {
+        if (count == 0) {
+            return false;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            ages[i] += dt;
+            if (ages[i] >= DURATION) {
+                // 用最后一个波纹填补空位
+                count--;
+                xs[i] = xs[count];
+                ys[i] = ys[count];
+                ages[i] = ages[count];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算所有波纹的包围盒，用于只刷新波纹所在的区域
+     *
+     * @param strokeWidth 画笔宽度，圆环会向外多画一半
+     * @param out         长度至少为 4，依次写入 left、top、right、bottom
+     * @return 是否有波纹，没有波纹时不修改 out
+     */
+    public boolean computeBounds(float strokeWidth, float[] out) {
+        if (count == 0) {
+            return false;
+        }
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            float extent = getRadius(i) + strokeWidth / 2;
+            left = Math.min(left, xs[i] - extent);
+            top = Math.min(top, ys[i] - extent);
+            right = Math.max(right, xs[i] + extent);
+            bottom = Math.max(bottom, ys[i] + extent);
+        }
+        out[0] = left;
+        out[1] = top;
+        out[2] = right;
+        out[3] = bottom;
+        return true;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    public float getRadius(int i) {
+        return ages[i] / DURATION * MAX_RADIUS;
+    }
+
+    public int getAlpha(int i) {
+        return (int) (MAX_ALPHA * (1 - ages[i] / DURATION));
+    }
+}
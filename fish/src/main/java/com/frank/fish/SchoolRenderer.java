@@ -0,0 +1,170 @@
+package com.frank.fish;
+
+import android.graphics.Canvas;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 把鱼群的骨架点快照画到 Canvas 上，FishLayout 和渲染线程模式的 FishSurfaceView 共用。
+ * <p>
+ * 鱼群中的所有鱼共用一个 FishDrawable，依次平移缩放画布后按算好的骨架点画出；
+ * 设置了 LodController 时每条鱼按它选出的细节层级画；设置了精灵缓存时改为按量化后的姿态贴图。
+ * 默认最多保留 {@link #DEFAULT_DISPLAY_LIST_CAPACITY} 份 {@link FishPathCache}，按鱼的下标用 {@link SpriteLru} 分配，
+ * 鱼数不超过容量时每条鱼各占一份，超过时最久没画过的鱼的那一份交给新来的鱼，内存上限与鱼数无关。
+ * 缓存只在某条鱼第一次画时创建，换给别的鱼时也不必清空，它按骨架点和细节层级判断是否命中。
+ * 骨架点和层级都没变时（例如只有波纹或水面变化、后台线程还没有发布新一帧时的重绘）直接画缓存的路径，
+ * 不再计算轮廓，也不再重建 Path；姿态变化时重新录制，只比直接构建路径多写、读一遍 float 命令。
+ */
+public class SchoolRenderer {
+
+    // 鱼群模式下每条鱼相对于原始大小的缩放比例
+    public static final float SCHOOL_FISH_SCALE = 0.15f;
+    // 鱼群中每条鱼在屏幕上的长度
+    private static final float SCHOOL_FISH_SIZE = FishKinematics.FISH_LENGTH * SCHOOL_FISH_SCALE;
+    // 默认最多缓存的鱼数，一份完整细节的缓存约 900 字节加六条 Path
+    public static final int DEFAULT_DISPLAY_LIST_CAPACITY = 256;
+
+    private final FishDrawable fish = new FishDrawable();
+    // 按姿态缓存的位图精灵，为 null 时每条鱼都用 fish 画
+    private FishSpriteCache spriteCache;
+    // 为每条鱼选择细节层级，为 null 时都画完整的鱼
+    private LodController lodController;
+    // 最近画过的鱼录下的绘制命令和路径，按 pathCacheLru 分配的槽位存放，lru 为 null 时不缓存
+    private SpriteLru pathCacheLru = new SpriteLru(DEFAULT_DISPLAY_LIST_CAPACITY);
+    private FishPathCache[] pathCaches = new FishPathCache[DEFAULT_DISPLAY_LIST_CAPACITY];
+
+    /**
+     * 按快照中已经算好的骨架点画出每条鱼，骨架点以鱼的重心为原点
+     */
+    public void draw(Canvas canvas, PoseSnapshot snapshot) {
+        if (spriteCache != null) {
+            drawSprites(canvas, snapshot, spriteCache);
+            return;
+        }
+        LodController lod = lodController;
+        if (lod != null) {
+            lod.beginFrame(snapshot.count);
+        }
+        float[] points = snapshot.points;
+        for (int i = 0, count = snapshot.count; i < count; i++) {
+            if (lod != null) {
+                fish.setLod(lod.select(i, SCHOOL_FISH_SIZE));
+            }
+            int saveCount = canvas.save();
+            canvas.translate(snapshot.xs[i], snapshot.ys[i]);
+            canvas.scale(SCHOOL_FISH_SCALE, SCHOOL_FISH_SCALE);
+            int offset = i * PoseSnapshot.POINT_STRIDE;
+            if (pathCacheLru != null) {
+                fish.drawPoints(canvas, points, offset, pathCache(i));
+            } else {
+                fish.drawPoints(canvas, points, offset);
+            }
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * 第 index 条鱼的路径缓存，没有时接手一个空的或最久没用过的槽位
+     */
+    private FishPathCache pathCache(int index) {
+        int slot = pathCacheLru.get(index);
+        if (slot < 0) {
+            slot = pathCacheLru.put(index);
+            if (pathCaches[slot] == null) {
+                pathCaches[slot] = new FishPathCache();
+            }
+        }
+        return pathCaches[slot];
+    }
+
+    /**
+     * 已经创建的路径缓存份数，缓存关闭时为 0
+     */
+    int getPathCacheCount() {
+        return pathCacheLru != null ? pathCacheLru.getSize() : 0;
+    }
+
+    /**
+     * 第 slot 个槽位的路径缓存，供测试统计录下的绘制命令
+     */
+    FishPathCache getPathCacheInSlot(int slot) {
+        return pathCaches[slot];
+    }
+
+    private static void drawSprites(Canvas canvas, PoseSnapshot snapshot, FishSpriteCache cache) {
+        for (int i = 0, count = snapshot.count; i < count; i++) {
+            cache.draw(canvas, snapshot.xs[i], snapshot.ys[i], snapshot.headings[i],
+                    snapshot.animatorValues[i], snapshot.frequencies[i], snapshot.finsValues[i]);
+        }
+    }
+
+    /**
+     * 设置精灵缓存的内存预算，大于 0 时开启，为 0 时关闭并回收图集
+     */
+    public void setSpriteCacheBudget(long bytes) {
+        if (spriteCache != null) {
+            spriteCache.release();
+            spriteCache = null;
+        }
+        if (bytes > 0) {
+            spriteCache = new FishSpriteCache(SCHOOL_FISH_SCALE, bytes);
+        }
+    }
+
+    @Nullable
+    public FishSpriteCache getSpriteCache() {
+        return spriteCache;
+    }
+
+    /**
+     * 设置细节层级控制器，传 null 时所有鱼都画完整的细节
+     */
+    public void setLodController(@Nullable LodController lodController) {
+        this.lodController = lodController;
+        if (lodController == null) {
+            fish.setLod(FishDrawable.LOD_FULL);
+        }
+    }
+
+    @Nullable
+    public LodController getLodController() {
+        return lodController;
+    }
+
+    /**
+     * 开启或关闭绘制命令和路径缓存，开启时使用默认容量，关闭时释放所有缓存
+     */
+    public void setDisplayListsEnabled(boolean enabled) {
+        if (enabled == (pathCacheLru != null)) {
+            return;
+        }
+        setDisplayListCapacity(enabled ? DEFAULT_DISPLAY_LIST_CAPACITY : 0);
+    }
+
+    public boolean isDisplayListsEnabled() {
+        return pathCacheLru != null;
+    }
+
+    /**
+     * 设置最多缓存多少条鱼的绘制命令和路径，大于 0 时开启，为 0 时关闭；容量变化时原有的缓存全部释放
+     */
+    public void setDisplayListCapacity(int capacity) {
+        if (capacity == getDisplayListCapacity()) {
+            return;
+        }
+        if (capacity > 0) {
+            pathCacheLru = new SpriteLru(capacity);
+            pathCaches = new FishPathCache[capacity];
+        } else {
+            pathCacheLru = null;
+            pathCaches = null;
+        }
+    }
+
+    /**
+     * 最多缓存的鱼数，关闭时为 0
+     */
+    public int getDisplayListCapacity() {
+        return pathCacheLru != null ? pathCacheLru.getCapacity() : 0;
+    }
+}
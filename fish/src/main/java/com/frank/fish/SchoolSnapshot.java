@@ -0,0 +1,56 @@
+package com.frank.fish;
+
+/**
+ * 鱼群某一帧的完整状态，按结构数组（struct-of-arrays）的方式保存，每个字段一个 float 数组，
+ * 第 i 条鱼的数据位于各数组的下标 i 处。
+ * <p>
+ * FishSchool 持有两份快照交替写入，渲染时读取的始终是已经写完的那一份。
+ */
+public class SchoolSnapshot {
+
+    public int count;
+
+    // 位置和速度
+    public float[] xs = new float[0];
+    public float[] ys = new float[0];
+    public float[] vxs = new float[0];
+    public float[] vys = new float[0];
+
+    // 对应 FishDrawable 中的 currentAnimatorValue、frequency 和 finsValue
+    public float[] animatorValues = new float[0];
+    public float[] frequencies = new float[0];
+    public float[] finsValues = new float[0];
+
+    // 游动方向，即 fishMainAngle
+    public float[] headings = new float[0];
+
+    // 批量计算好的姿态角度，见 FishKinematics 中的同名方法
+    public float[] fishAngles = new float[0];
+    public float[] segment1Angles = new float[0];
+    public float[] segment2Angles = new float[0];
+    public float[] tailEdgeLengths = new float[0];
+
+    // 得到这份快照的那一步中，每条鱼检查过的候选邻居数和实际参与计算的邻居数，用来观察邻居查找的开销
+    public int[] candidateCounts = new int[0];
+    public int[] neighborCounts = new int[0];
+
+    void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) {
+            return;
+        }
+        xs = new float[capacity];
+        ys = new float[capacity];
+        vxs = new float[capacity];
+        vys = new float[capacity];
+        animatorValues = new float[capacity];
+        frequencies = new float[capacity];
+        finsValues = new float[capacity];
+        headings = new float[capacity];
+        fishAngles = new float[capacity];
+        segment1Angles = new float[capacity];
+        segment2Angles = new float[capacity];
+        tailEdgeLengths = new float[capacity];
+        candidateCounts = new int[capacity];
+        neighborCounts = new int[capacity];
+    }
+}
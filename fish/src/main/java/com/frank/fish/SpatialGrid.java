@@ -0,0 +1,110 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格空间索引，用来快速查找某条鱼附近的鱼，避免 O(n²) 的两两比较。
+ * <p>
+ * 每次 {@link #rebuild} 时用计数排序把所有鱼按所在格子排好，同一格子里的鱼在
+ * {@link #sortedIndices} 中是连续的，格子 c 的鱼位于 [cellStart[c], cellStart[c + 1]) 区间。
+ * 数组只在鱼的数量或网格尺寸变大时才重新分配，稳态下重建不会创建任何对象。
+ */
+public class SpatialGrid {
+
+    private float cellSize;
+    private int columns;
+    private int rows;
+
+    // 长度为格子数 + 1，最后一个元素等于鱼的总数
+    private int[] cellStart = new int[1];
+    // 每条鱼所在的格子
+    private int[] cellOfItem = new int[0];
+    // 按格子排好序的鱼的下标
+    private int[] sortedIndices = new int[0];
+
+    /**
+     * @param width    索引覆盖区域的宽
+     * @param height   索引覆盖区域的高
+     * @param cellSize 格子边长，一般取邻居查找半径，这样只需要查找周围 3x3 个格子
+     */
+    public void resize(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cellCount = columns * rows;
+        if (cellStart.length < cellCount + 1) {
+            cellStart = new int[cellCount + 1];
+        }
+    }
+
+    /**
+     * 根据所有鱼的位置重建索引
+     */
+    public void rebuild(float[] xs, float[] ys, int count) {
+        if (cellOfItem.length < count) {
+            cellOfItem = new int[count];
+            sortedIndices = new int[count];
+        }
+        int cellCount = columns * rows;
+        Arrays.fill(cellStart, 0, cellCount + 1, 0);
+
+        // 1.统计每个格子里有几条鱼
+        for (int i = 0; i < count; i++) {
+            int cell = cellOf(xs[i], ys[i]);
+            cellOfItem[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        // 2.前缀和得到每个格子的起始位置
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // 3.按格子把鱼放到对应位置，借用 cellStart 作为写入游标，放完后再整体后移一位还原
+        for (int i = 0; i < count; i++) {
+            int cell = cellOfItem[i];
+            sortedIndices[cellStart[cell]++] = i;
+        }
+        System.arraycopy(cellStart, 0, cellStart, 1, cellCount);
+        cellStart[0] = 0;
+    }
+
+    /**
+     * 坐标所在的格子，超出范围的坐标归到边缘格子
+     */
+    public int cellOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    public int column(float x) {
+        int column = (int) (x / cellSize);
+        return column < 0 ? 0 : (column >= columns ? columns - 1 : column);
+    }
+
+    public int row(float y) {
+        int row = (int) (y / cellSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    public int getCellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    /**
+     * @param position 排序后的位置，取值范围由 getCellStart() 和 getCellEnd() 给出
+     * @return 该位置上的鱼的下标
+     */
+    public int getItem(int position) {
+        return sortedIndices[position];
+    }
+}
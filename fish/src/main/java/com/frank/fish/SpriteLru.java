@@ -0,0 +1,200 @@
+package com.frank.fish;
+
+/**
+ * 固定容量的 LRU 索引，把 long 类型的键映射到 [0, capacity) 内的槽位，纯 Java 实现。
+ * <p>
+ * 本身不保存缓存的内容，只负责分配槽位：命中时返回键所在的槽位并标记为最近使用，
+ * 未命中时由调用方申请一个槽位，已满则淘汰最久未使用的键。哈希表用线性探测，
+ * 使用顺序用数组实现的双向链表维护，查找、插入、淘汰都不创建对象，也不会装箱。
+ */
+public class SpriteLru {
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+
+    // 开放寻址的哈希表，存放槽位下标 + 1，0 表示空
+    private final int[] table;
+    private final int mask;
+
+    // 每个槽位的键，以及使用顺序链表的前后指针
+    private final long[] slotKeys;
+    private final int[] prev;
+    private final int[] next;
+    // 最近使用的槽位在 head，最久未使用的在 tail
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SpriteLru(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // 装载因子不超过 0.5，探测链保持很短
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+        slotKeys = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+    }
+
+    /**
+     * 查找键所在的槽位，命中时将其标记为最近使用
+     *
+     * @return 槽位下标，未命中时返回 -1
+     */
+    public int get(long key) {
+        int slot = find(key);
+        if (slot == NONE) {
+            misses++;
+            return NONE;
+        }
+        hits++;
+        moveToHead(slot);
+        return slot;
+    }
+
+    /**
+     * 为一个不在索引中的键分配槽位，已满时淘汰最久未使用的键并复用它的槽位。
+     * 返回的槽位中原有的内容需要由调用方重新生成。
+     */
+    public int put(long key) {
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            slot = tail;
+            remove(slotKeys[slot]);
+            unlink(slot);
+            evictions++;
+        }
+        slotKeys[slot] = key;
+        int index = hash(key);
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = slot + 1;
+        linkHead(slot);
+        return slot;
+    }
+
+    /**
+     * 清空索引，统计数据保留
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = 0;
+        }
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    private int find(long key) {
+        int index = hash(key);
+        int entry;
+        while ((entry = table[index]) != 0) {
+            if (slotKeys[entry - 1] == key) {
+                return entry - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * 从哈希表中删除键，把后面探测链上的项往前挪，保证之后的查找不会提前遇到空位
+     */
+    private void remove(long key) {
+        int index = hash(key);
+        while (slotKeys[table[index] - 1] != key) {
+            index = (index + 1) & mask;
+        }
+        int hole = index;
+        index = (index + 1) & mask;
+        int entry;
+        while ((entry = table[index]) != 0) {
+            int home = hash(slotKeys[entry - 1]);
+            // home 不在 (hole, index] 这段环形区间内时，这一项可以挪到空位上
+            boolean movable = hole <= index ? (home <= hole || home > index) : (home <= hole && home > index);
+            if (movable) {
+                table[hole] = entry;
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private void moveToHead(int slot) {
+        if (slot != head) {
+            unlink(slot);
+            linkHead(slot);
+        }
+    }
+
+    private void linkHead(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NONE) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+    }
+
+    private int hash(long key) {
+        // 64 位混合，避免量化后相邻的键挤在一起
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
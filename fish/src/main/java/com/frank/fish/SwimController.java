@@ -0,0 +1,178 @@
+package com.frank.fish;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
+import android.graphics.PointF;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+
+import java.util.Random;
+
+/**
+ * 控制单条鱼游向触摸点。
+ * <p>
+ * 触摸事件只记录最新的目标点，真正的重新规划在 FishClock 的每帧回调中进行，因此一帧内无论来了
+ * 多少个 MOVE 事件最多只规划一次。重新规划时以鱼当前的位置和朝向为起点，新曲线与鱼正在游的方向相切，
+ * 并按 {@link SwimSimulation#retargetDuration} 保持原来的速度，拖动手指时鱼会平滑地转向；
+ * 目标点几乎没变时不重新规划。轨迹、游动动画、鱼鳍动画和随机数生成器都只创建一次并反复使用。
+ */
+public class SwimController implements FishClock.OnTickListener {
+
+    // 从静止开始一次游动的时长，单位毫秒，与 SwimSimulation 保持一致
+    private static final long SWIM_DURATION = SwimSimulation.SWIM_DURATION_NANOS / 1000000;
+
+    // 游动时与静止时的摆尾频率
+    private static final float SWIM_FREQUENCY = SwimSimulation.SWIM_FREQUENCY;
+    private static final float IDLE_FREQUENCY = SwimSimulation.IDLE_FREQUENCY;
+
+    private final View fishView;
+    private final FishDrawable fishDrawable;
+
+    private final SwimTrajectory trajectory = new SwimTrajectory();
+    // 每帧对轨迹采样得到的 x、y 和切线角度
+    private final float[] sample = new float[3];
+    private final ValueAnimator swimAnimator;
+    // 从静止开始游动时先加速后减速；游动途中重新规划时鱼已经有速度，直接减速即可，
+    // 否则连续拖动时每帧都从零速度重新加速，鱼会停在原地
+    private final AccelerateDecelerateInterpolator startInterpolator = new AccelerateDecelerateInterpolator();
+    private final DecelerateInterpolator retargetInterpolator = new DecelerateInterpolator();
+    private final ObjectAnimator finsAnimator;
+    private final Random random = new Random();
+    // 绕开障碍物的规划器，为 null 时直接游向目标点
+    private PathPlanner pathPlanner;
+
+    // 正在游向的目标点
+    private float targetX;
+    private float targetY;
+
+    // 等待下一帧处理的目标点
+    private boolean hasPendingTarget;
+    private float pendingX;
+    private float pendingY;
+
+    public SwimController(View fishView, FishDrawable fishDrawable) {
+        this.fishView = fishView;
+        this.fishDrawable = fishDrawable;
+
+        // 鱼鳍摆动动画
+        finsAnimator = ObjectAnimator.ofFloat(fishDrawable, "finsValue", 0, FishDrawable.HEAD_RADIUS * 2, 0);
+
+        swimAnimator = ValueAnimator.ofFloat(0, 1f);
+        swimAnimator.setDuration(SWIM_DURATION);
+        swimAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                fishDrawable.setFrequency(IDLE_FREQUENCY);
+            }
+        });
+        // 鱼头方向与贝塞尔曲线的切线方向保持一致，从而实现鱼的调头
+        swimAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                // 动画执行的百分比即已经走过的路程占曲线总长的比例
+                trajectory.sample(animation.getAnimatedFraction(), sample);
+                PointF relativeMiddlePoint = fishDrawable.getMiddlePoint();
+                fishView.setX(sample[0] - relativeMiddlePoint.x);
+                fishView.setY(sample[1] - relativeMiddlePoint.y);
+                fishDrawable.setFishMainAngle(sample[2]);
+            }
+        });
+    }
+
+    /**
+     * 设置绕开障碍物的规划器，为 null 时直接游向目标点
+     */
+    public void setPathPlanner(PathPlanner pathPlanner) {
+        this.pathPlanner = pathPlanner;
+    }
+
+    /**
+     * 记录新的目标点，下一帧再统一处理，同一帧内后来的目标点会覆盖之前的
+     */
+    public void requestTarget(float x, float y) {
+        pendingX = x;
+        pendingY = y;
+        hasPendingTarget = true;
+    }
+
+    @Override
+    public void onTick(long frameTimeNanos, long deltaNanos) {
+        if (hasPendingTarget) {
+            hasPendingTarget = false;
+            retarget(pendingX, pendingY);
+        }
+    }
+
+    /**
+     * 从鱼当前的位置和朝向出发，重新规划一条游到 (targetX, targetY) 的三阶贝塞尔曲线
+     */
+    private void retarget(float targetX, float targetY) {
+        boolean swimming = swimAnimator.isRunning();
+        if (swimming && SwimSimulation.isSameTarget(this.targetX, this.targetY, targetX, targetY)) {
+            return;
+        }
+        this.targetX = targetX;
+        this.targetY = targetY;
+        // 曲线按鱼的重心规划，平移 View 时再减去重心相对 View 左上角的坐标
+        PointF relativeMiddlePoint = fishDrawable.getMiddlePoint();
+        float middleX = fishView.getX() + relativeMiddlePoint.x;
+        float middleY = fishView.getY() + relativeMiddlePoint.y;
+        long remainingMillis = swimAnimator.getDuration() - swimAnimator.getCurrentPlayTime();
+        float remainingLength = trajectory.getLength() * (1 - swimAnimator.getAnimatedFraction());
+        if (pathPlanner != null) {
+            pathPlanner.plan(middleX, middleY, fishDrawable.getFishMainAngle(), targetX, targetY, trajectory);
+        } else {
+            trajectory.plan(middleX, middleY, fishDrawable.getFishMainAngle(), targetX, targetY);
+        }
+
+        // 游动中重新规划时以原来的速度从头走新曲线，时长按剩下的路程换算，不触发结束回调，摆尾频率保持不变
+        if (swimming) {
+            long duration = SwimSimulation.retargetDuration(remainingMillis * 1000000, remainingLength,
+                    trajectory.getLength()) / 1000000;
+            swimAnimator.setInterpolator(retargetInterpolator);
+            swimAnimator.setDuration(duration);
+            swimAnimator.setCurrentPlayTime(0);
+        } else {
+            swimAnimator.setInterpolator(startInterpolator);
+            swimAnimator.setDuration(SWIM_DURATION);
+            swimAnimator.start();
+        }
+        // 鱼开始游动时，摆尾频率更快一些
+        fishDrawable.setFrequency(SWIM_FREQUENCY);
+        flapFins();
+    }
+
+    /**
+     * 鱼鳍摆动动画，重复次数具有随机性，正在摆动时不打断
+     */
+    private void flapFins() {
+        if (finsAnimator.isRunning()) {
+            return;
+        }
+        finsAnimator.setDuration(SwimSimulation.FINS_PERIOD_NANOS / 1000000);
+        finsAnimator.setRepeatCount(random.nextInt(SwimSimulation.MAX_FINS_REPEAT + 1));
+        finsAnimator.start();
+    }
+
+    /**
+     * 暂停游动和鱼鳍动画，恢复后从暂停时的位置继续
+     */
+    public void pause() {
+        swimAnimator.pause();
+        finsAnimator.pause();
+    }
+
+    public void resume() {
+        swimAnimator.resume();
+        finsAnimator.resume();
+    }
+
+    public void cancel() {
+        hasPendingTarget = false;
+        swimAnimator.cancel();
+        finsAnimator.cancel();
+    }
+}
@@ -0,0 +1,197 @@
+package com.frank.fish;
+
+import java.util.Random;
+
+/**
+ * 单条鱼游向目标点的过程，纯 Java 实现，按调用方给出的时间间隔推进。
+ * <p>
+ * 行为与 {@link SwimController} 一致：沿 {@link SwimTrajectory#plan} 规划的曲线游动，
+ * 从静止开始时先加速后减速，游动途中重新规划时直接减速，时长按 {@link #retargetDuration} 换算；
+ * 开始游动时加快摆尾并随机摆动几次鱼鳍。
+ * 区别在于不依赖属性动画和 View，位置、朝向都保存在本对象中，可以在任意一个线程中使用，
+ * 也可以脱离 Android 运行。
+ */
+public class SwimSimulation {
+
+    // 从静止开始一次游动的时长，也是游动途中重新规划后的最长时长
+    public static final long SWIM_DURATION_NANOS = 2000 * 1000000L;
+
+    // 游动途中新的目标点离正在游向的目标点不超过这个距离时不重新规划，单位 px。
+    // 手指按住不动时仍会收到抖动的 MOVE 事件，鱼已经在终点附近时重新规划的曲线会绕圈，鱼就停不下来
+    public static final float RETARGET_TOLERANCE = 4f;
+
+    // 游动时与静止时的摆尾频率
+    public static final float SWIM_FREQUENCY = 3f;
+    public static final float IDLE_FREQUENCY = 1f;
+
+    // 鱼鳍摆动一次的时长，以及最多重复的次数
+    public static final long FINS_PERIOD_NANOS = 500 * 1000000L;
+    public static final int MAX_FINS_REPEAT = 3;
+    private static final float MAX_FINS_VALUE = FishKinematics.HEAD_RADIUS * 2;
+
+    private final SwimTrajectory trajectory = new SwimTrajectory();
+    // 对轨迹采样得到的 x、y 和切线角度
+    private final float[] sample = new float[3];
+    private final Random random;
+    // 绕开障碍物的规划器，为 null 时直接游向目标点
+    private PathPlanner pathPlanner;
+
+    // 鱼的重心和朝向
+    private float x;
+    private float y;
+    private float heading = 90;
+    private float frequency = IDLE_FREQUENCY;
+    private float finsValue;
+
+    private boolean swimming;
+    // 游动途中重新规划的曲线直接减速，否则先加速后减速
+    private boolean decelerateOnly;
+    private long swimElapsedNanos;
+    private long swimDurationNanos = SWIM_DURATION_NANOS;
+    // 正在游向的目标点
+    private float targetX;
+    private float targetY;
+    // 当前曲线上已经走过的路程占总长的比例
+    private float swimFraction;
+
+    private boolean flapping;
+    private long finsElapsedNanos;
+    private long finsDurationNanos;
+
+    public SwimSimulation(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * 设置绕开障碍物的规划器，为 null 时直接游向目标点
+     */
+    public void setPathPlanner(PathPlanner pathPlanner) {
+        this.pathPlanner = pathPlanner;
+    }
+
+    /**
+     * 把鱼放到 (x, y) 处并停止游动
+     */
+    public void reset(float x, float y, float heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        frequency = IDLE_FREQUENCY;
+        finsValue = 0;
+        swimming = false;
+        flapping = false;
+    }
+
+    /**
+     * 从当前的位置和朝向出发，重新规划一条游到 (targetX, targetY) 的曲线
+     */
+    public void retarget(float targetX, float targetY) {
+        if (swimming && isSameTarget(this.targetX, this.targetY, targetX, targetY)) {
+            return;
+        }
+        this.targetX = targetX;
+        this.targetY = targetY;
+        long remainingNanos = swimDurationNanos - swimElapsedNanos;
+        float remainingLength = trajectory.getLength() * (1 - swimFraction);
+        if (pathPlanner != null) {
+            pathPlanner.plan(x, y, heading, targetX, targetY, trajectory);
+        } else {
+            trajectory.plan(x, y, heading, targetX, targetY);
+        }
+        swimDurationNanos = swimming
+                ? retargetDuration(remainingNanos, remainingLength, trajectory.getLength())
+                : SWIM_DURATION_NANOS;
+        decelerateOnly = swimming;
+        swimming = true;
+        swimElapsedNanos = 0;
+        swimFraction = 0;
+        frequency = SWIM_FREQUENCY;
+        // 鱼鳍正在摆动时不打断
+        if (!flapping) {
+            flapping = true;
+            finsElapsedNanos = 0;
+            finsDurationNanos = FINS_PERIOD_NANOS * (random.nextInt(MAX_FINS_REPEAT + 1) + 1);
+        }
+    }
+
+    /**
+     * 两个目标点是否近到不必重新规划
+     */
+    public static boolean isSameTarget(float x1, float y1, float x2, float y2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        return dx * dx + dy * dy <= RETARGET_TOLERANCE * RETARGET_TOLERANCE;
+    }
+
+    /**
+     * 游动途中重新规划后走完新曲线的时长。按旧曲线剩下的路程和时间算出平均速度，新曲线以同样的速度走完，
+     * 上一段也是直接减速时新曲线起点的速度与重新规划前完全相同。拖动手指时每帧都会重新规划，
+     * 手指不动时到达的时刻保持不变，手指移远时时长随路程变长，鱼的速度始终取决于离目标点的距离，
+     * 而不是每帧都从完整的 {@link #SWIM_DURATION_NANOS} 重新开始。结果不超过 SWIM_DURATION_NANOS；
+     * 这里不设下限，否则手指不动时每帧都把剩下的时间拉回下限，鱼永远到不了
+     */
+    public static long retargetDuration(long remainingNanos, float remainingLength, float newLength) {
+        if (remainingNanos <= 0 || remainingLength <= 0) {
+            return SWIM_DURATION_NANOS;
+        }
+        double duration = (double) remainingNanos * newLength / remainingLength;
+        return (long) Math.max(1, Math.min(SWIM_DURATION_NANOS, duration));
+    }
+
+    /**
+     * 推进 deltaNanos 纳秒
+     */
+    public void step(long deltaNanos) {
+        if (swimming) {
+            swimElapsedNanos = Math.min(swimDurationNanos, swimElapsedNanos + deltaNanos);
+            float fraction = (float) swimElapsedNanos / swimDurationNanos;
+            // 与 DecelerateInterpolator、AccelerateDecelerateInterpolator 的公式相同
+            swimFraction = decelerateOnly ? 1 - (1 - fraction) * (1 - fraction)
+                    : (float) (Math.cos((fraction + 1) * Math.PI) / 2) + 0.5f;
+            trajectory.sample(swimFraction, sample);
+            x = sample[0];
+            y = sample[1];
+            heading = sample[2];
+            if (swimElapsedNanos == swimDurationNanos) {
+                swimming = false;
+                frequency = IDLE_FREQUENCY;
+            }
+        }
+        if (flapping) {
+            finsElapsedNanos += deltaNanos;
+            if (finsElapsedNanos >= finsDurationNanos) {
+                flapping = false;
+                finsValue = 0;
+            } else {
+                // 每次摆动 0 -> 2R -> 0，先加速后减速
+                float fraction = (float) (finsElapsedNanos % FINS_PERIOD_NANOS) / FINS_PERIOD_NANOS;
+                float eased = (float) (Math.cos((fraction + 1) * Math.PI) / 2) + 0.5f;
+                finsValue = MAX_FINS_VALUE * (1 - Math.abs(eased * 2 - 1));
+            }
+        }
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getHeading() {
+        return heading;
+    }
+
+    public float getFrequency() {
+        return frequency;
+    }
+
+    public float getFinsValue() {
+        return finsValue;
+    }
+
+    public boolean isSwimming() {
+        return swimming;
+    }
+}
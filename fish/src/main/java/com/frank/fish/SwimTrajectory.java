@@ -0,0 +1,187 @@
+package com.frank.fish;
+
+/**
+ * 鱼游动的轨迹，由首尾相接的若干段三阶贝塞尔曲线组成，纯 Java 实现。
+ * <p>
+ * 每次设置曲线时预先计算一张弧长参数化表：把“已经走过的路程占总长的比例”映射到曲线参数。
+ * 之后任意动画进度下的位置和切线角度都只需要查一次表再代入曲线公式，是 O(1) 的计算，
+ * 取代原先每帧 PathMeasure.getLength() + getPosTan()，以及 ObjectAnimator 对同一条 Path 的重复采样。
+ * 多段曲线时参数 u 的整数部分是段号，小数部分是段内的 t。
+ */
+public class SwimTrajectory {
+
+    // 最多的曲线段数
+    public static final int MAX_SEGMENTS = 16;
+
+    // 计算弧长时对每段曲线的细分数
+    private static final int ARC_SAMPLES = 64;
+    // 每段曲线在弧长参数化表中的项数
+    private static final int TABLE_SIZE = 128;
+
+    // 起点，以及每段曲线的两个控制点和终点，共 2 + 6 * segmentCount 个数
+    private final float[] points = new float[2 + 6 * MAX_SEGMENTS];
+    private int segmentCount;
+    private float length;
+
+    // 曲线参数 u = i / ARC_SAMPLES 处的累计弧长
+    private final float[] arcLengths = new float[ARC_SAMPLES * MAX_SEGMENTS + 1];
+    // 路程比例 j / (TABLE_SIZE * segmentCount) 对应的曲线参数 u
+    private final float[] parameters = new float[TABLE_SIZE * MAX_SEGMENTS + 1];
+
+    private final float[] temp = new float[2];
+
+    /**
+     * 设置只有一段的曲线：起点、两个控制点和终点，并重新计算弧长参数化表
+     */
+    public void set(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        points[0] = x0;
+        points[1] = y0;
+        points[2] = x1;
+        points[3] = y1;
+        points[4] = x2;
+        points[5] = y2;
+        points[6] = x3;
+        points[7] = y3;
+        segmentCount = 1;
+        measure();
+    }
+
+    /**
+     * 设置多段曲线，并重新计算弧长参数化表
+     *
+     * @param chain        起点 x、y，之后每段依次为控制点1、控制点2、终点的 x、y，上一段的终点就是下一段的起点
+     * @param segmentCount 段数，1 到 {@link #MAX_SEGMENTS}
+     */
+    public void setChain(float[] chain, int segmentCount) {
+        if (segmentCount < 1 || segmentCount > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("Segment count out of range: " + segmentCount);
+        }
+        System.arraycopy(chain, 0, points, 0, 2 + 6 * segmentCount);
+        this.segmentCount = segmentCount;
+        measure();
+    }
+
+    private void measure() {
+        // 1.沿参数均匀细分，累加每一小段的长度
+        int sampleCount = ARC_SAMPLES * segmentCount;
+        float lastX = points[0];
+        float lastY = points[1];
+        arcLengths[0] = 0;
+        for (int i = 1; i <= sampleCount; i++) {
+            int segment = (i - 1) / ARC_SAMPLES;
+            pointAt(segment, (float) (i - segment * ARC_SAMPLES) / ARC_SAMPLES, temp);
+            float dx = temp[0] - lastX;
+            float dy = temp[1] - lastY;
+            arcLengths[i] = arcLengths[i - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+            lastX = temp[0];
+            lastY = temp[1];
+        }
+        length = arcLengths[sampleCount];
+
+        // 2.反过来求出路程均匀分布时对应的参数 u
+        int tableSize = TABLE_SIZE * segmentCount;
+        int segment = 0;
+        for (int j = 0; j <= tableSize; j++) {
+            float distance = length * j / tableSize;
+            while (segment < sampleCount - 1 && arcLengths[segment + 1] < distance) {
+                segment++;
+            }
+            float from = arcLengths[segment];
+            float to = arcLengths[segment + 1];
+            float fraction = to > from ? (distance - from) / (to - from) : 0;
+            parameters[j] = (segment + Math.max(0, Math.min(1, fraction))) / ARC_SAMPLES;
+        }
+    }
+
+    private void pointAt(int segment, float t, float[] out) {
+        int o = segment * 6;
+        FishMath.cubicPoint(points[o], points[o + 1], points[o + 2], points[o + 3],
+                points[o + 4], points[o + 5], points[o + 6], points[o + 7], t, out, 0);
+    }
+
+    /**
+     * 从鱼当前的重心 (middleX, middleY) 和朝向 heading 出发，规划一条游到 (targetX, targetY) 的曲线
+     */
+    public void plan(float middleX, float middleY, float heading, float targetX, float targetY) {
+        /**
+         * 1、起始点O为鱼的重心，控制点1 A 在鱼的正前方，距离为鱼身长的一半（静止时就是鱼头圆心），
+         * 这样新曲线在起点处与鱼当前的朝向相切，游动途中改变目标也不会突然转向。
+         */
+        float headLength = FishKinematics.BODY_LENGTH / 2;
+        double headingRadians = Math.toRadians(heading);
+        float controlX1 = middleX + (float) Math.cos(headingRadians) * headLength;
+        float controlY1 = middleY - (float) Math.sin(headingRadians) * headLength;
+
+        /**
+         * 2、控制点2 C 与O的距离为 1.6R，OC 平分∠AOB，B为目标点
+         */
+        float targetAngle = (float) Math.toDegrees(Math.atan2(middleY - targetY, targetX - middleX));
+        float turnAngle = targetAngle - heading;
+        while (turnAngle > 180) {
+            turnAngle -= 360;
+        }
+        while (turnAngle <= -180) {
+            turnAngle += 360;
+        }
+        double controlRadians = Math.toRadians(heading + turnAngle / 2);
+        float controlX2 = middleX + (float) Math.cos(controlRadians) * headLength;
+        float controlY2 = middleY - (float) Math.sin(controlRadians) * headLength;
+
+        set(middleX, middleY, controlX1, controlY1, controlX2, controlY2, targetX, targetY);
+    }
+
+    public float getLength() {
+        return length;
+    }
+
+    /**
+     * 路程比例 fraction 对应的曲线参数 u，范围为 [0, 段数]
+     */
+    public float parameterAt(float fraction) {
+        int tableSize = TABLE_SIZE * segmentCount;
+        float position = Math.max(0, Math.min(1, fraction)) * tableSize;
+        int index = Math.min((int) position, tableSize - 1);
+        float from = parameters[index];
+        return from + (parameters[index + 1] - from) * (position - index);
+    }
+
+    /**
+     * 计算走过 fraction 比例的路程时所处的位置和切线角度
+     *
+     * @param out 长度至少为 3，依次写入 x、y 以及切线与x轴正方向的夹角
+     */
+    public void sample(float fraction, float[] out) {
+        float u = parameterAt(fraction);
+        int segment = Math.min((int) u, segmentCount - 1);
+        float t = u - segment;
+        int o = segment * 6;
+        float x0 = points[o];
+        float y0 = points[o + 1];
+        float x3 = points[o + 6];
+        float y3 = points[o + 7];
+        FishMath.cubicPoint(x0, y0, points[o + 2], points[o + 3], points[o + 4], points[o + 5], x3, y3, t, out, 0);
+        FishMath.cubicTangent(x0, y0, points[o + 2], points[o + 3], points[o + 4], points[o + 5], x3, y3, t, temp, 0);
+        float tx = temp[0];
+        float ty = temp[1];
+        if (tx == 0 && ty == 0) {
+            // 控制点与端点重合时端点处切线为 0，退化为用弦的方向
+            tx = x3 - x0;
+            ty = y3 - y0;
+        }
+        // 纵坐标取反是因为数学与屏幕坐标系Y轴相反
+        out[2] = (float) Math.toDegrees(Math.atan2(-ty, tx));
+    }
+
+    /**
+     * 只计算走过 fraction 比例的路程时所处的位置，写入 out[0] 和 out[1]
+     */
+    public void position(float fraction, float[] out) {
+        float u = parameterAt(fraction);
+        int segment = Math.min((int) u, segmentCount - 1);
+        pointAt(segment, u - segment, out);
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+}
@@ -0,0 +1,216 @@
+package com.frank.fish;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 固定步长模拟的输入记录，纯 Java 实现，用来在别的机器上无界面地重放同一段操作。
+ * <p>
+ * 头部记录重放所需的初始条件：随机数种子、步长、鱼缸大小和鱼群数量；之后每个事件记录它在第几步之前生效、
+ * 事件类型和两个参数。触摸事件的类型就是 MotionEvent 的 action，参数是坐标；鱼缸大小、鱼群数量和障碍物的变化
+ * 也作为事件记录，增加障碍物的事件另外多记一个半径，末尾再记下录制结束时的步数。事件按基本类型数组保存，写入文件时步数只记与上一个事件的差值并按变长整数编码，
+ * 一个触摸事件通常只占 10 个字节。
+ */
+public class TouchLog {
+
+    // 鱼缸大小变化，两个参数为宽和高
+    public static final int EVENT_RESIZE = 0x40;
+    // 鱼群数量变化，第一个参数为数量
+    public static final int EVENT_SCHOOL_SIZE = 0x41;
+    // 增加障碍物，两个参数为圆心坐标，第三个参数为半径
+    public static final int EVENT_OBSTACLE_ADD = 0x42;
+    // 删除障碍物，第一个参数为下标
+    public static final int EVENT_OBSTACLE_REMOVE = 0x43;
+    // 删除所有障碍物
+    public static final int EVENT_OBSTACLE_CLEAR = 0x44;
+
+    // 文件头的魔数 "KOIL" 与格式版本，版本 2 增加了障碍物事件，仍然可以读取版本 1 的文件
+    private static final int MAGIC = 0x4b4f494c;
+    private static final int VERSION = 2;
+    private static final int MIN_VERSION = 1;
+
+    private final long seed;
+    private final long stepNanos;
+    private final int width;
+    private final int height;
+    private final int schoolSize;
+
+    // 录制结束时已经推进的步数，重放到这一步为止
+    private long endStep;
+
+    private int count;
+    private long[] steps = new long[64];
+    private byte[] types = new byte[64];
+    private float[] firsts = new float[64];
+    private float[] seconds = new float[64];
+    private float[] thirds = new float[64];
+
+    public TouchLog(long seed, long stepNanos, int width, int height, int schoolSize) {
+        this.seed = seed;
+        this.stepNanos = stepNanos;
+        this.width = width;
+        this.height = height;
+        this.schoolSize = schoolSize;
+    }
+
+    /**
+     * 追加一个事件，step 不能小于上一个事件的 step
+     */
+    public void record(long step, int type, float first, float second) {
+        record(step, type, first, second, 0);
+    }
+
+    /**
+     * 追加一个带三个参数的事件，只有 {@link #EVENT_OBSTACLE_ADD} 的第三个参数会写入文件
+     */
+    public void record(long step, int type, float first, float second, float third) {
+        if (count > 0 && step < steps[count - 1]) {
+            throw new IllegalArgumentException("Step " + step + " is before " + steps[count - 1]);
+        }
+        if (count == steps.length) {
+            int capacity = count * 2;
+            steps = Arrays.copyOf(steps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+            thirds = Arrays.copyOf(thirds, capacity);
+        }
+        steps[count] = step;
+        types[count] = (byte) type;
+        firsts[count] = first;
+        seconds[count] = second;
+        thirds[count] = third;
+        count++;
+    }
+
+    /**
+     * 录制结束时调用，记下一共推进了多少步
+     */
+    public void finish(long endStep) {
+        this.endStep = endStep;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(seed);
+        data.writeLong(stepNanos);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeInt(schoolSize);
+        data.writeInt(count);
+        long lastStep = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarLong(data, steps[i] - lastStep);
+            lastStep = steps[i];
+            data.writeByte(types[i]);
+            data.writeFloat(firsts[i]);
+            data.writeFloat(seconds[i]);
+            if (types[i] == EVENT_OBSTACLE_ADD) {
+                data.writeFloat(thirds[i]);
+            }
+        }
+        data.writeLong(endStep);
+        data.flush();
+    }
+
+    /**
+     * 读取 {@link #writeTo(OutputStream)} 写出的记录，格式不对时抛出 IOException
+     */
+    public static TouchLog readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a touch log");
+        }
+        int version = data.readUnsignedByte();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Unsupported touch log version " + version);
+        }
+        TouchLog log = new TouchLog(data.readLong(), data.readLong(), data.readInt(), data.readInt(), data.readInt());
+        int count = data.readInt();
+        long step = 0;
+        for (int i = 0; i < count; i++) {
+            step += readVarLong(data);
+            int type = data.readByte();
+            float first = data.readFloat();
+            float second = data.readFloat();
+            float third = type == EVENT_OBSTACLE_ADD ? data.readFloat() : 0;
+            log.record(step, type, first, second, third);
+        }
+        log.finish(data.readLong());
+        return log;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed step delta");
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSchoolSize() {
+        return schoolSize;
+    }
+
+    public long getEndStep() {
+        return endStep;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getStep(int i) {
+        return steps[i];
+    }
+
+    public int getType(int i) {
+        return types[i];
+    }
+
+    public float getFirst(int i) {
+        return firsts[i];
+    }
+
+    public float getSecond(int i) {
+        return seconds[i];
+    }
+
+    public float getThird(int i) {
+        return thirds[i];
+    }
+}
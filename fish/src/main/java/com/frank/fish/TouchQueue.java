@@ -0,0 +1,94 @@
+package com.frank.fish;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者、单消费者的无锁触摸事件队列，纯 Java 实现。
+ * <p>
+ * 主线程在 onTouchEvent 中写入，渲染线程每帧开始时一次取完。事件保存在预分配的环形数组中，
+ * 读写位置各自只由一个线程修改，通过 AtomicLong 的 lazySet 发布，不加锁也不创建对象。
+ * 队列满时丢弃新事件并计数，渲染线程每帧都会清空队列，正常情况下不会满。
+ */
+public class TouchQueue {
+
+    private final int capacity;
+    private final int mask;
+    private final int[] actions;
+    private final float[] xs;
+    private final float[] ys;
+
+    // 下一个写入和读取的位置，只增不减
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    // 生产者缓存的读取位置，减少读取另一个线程写入的变量
+    private long cachedReadIndex;
+    private volatile long dropped;
+
+    /**
+     * @param capacity 容量，会向上取整为 2 的幂
+     */
+    public TouchQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        mask = size - 1;
+        actions = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+    }
+
+    /**
+     * 由生产者线程调用
+     *
+     * @param action MotionEvent 的 actionMasked
+     * @return 队列已满、事件被丢弃时返回 false
+     */
+    public boolean offer(int action, float x, float y) {
+        long write = writeIndex.get();
+        if (write - cachedReadIndex >= capacity) {
+            cachedReadIndex = readIndex.get();
+            if (write - cachedReadIndex >= capacity) {
+                dropped++;
+                return false;
+            }
+        }
+        int index = (int) write & mask;
+        actions[index] = action;
+        xs[index] = x;
+        ys[index] = y;
+        // 先写数据再发布写入位置，消费者看到新位置时一定能看到数据
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * 由消费者线程调用，依次把队列中的事件交给 consumer，返回取出的事件数
+     */
+    public int drain(Consumer consumer) {
+        long read = readIndex.get();
+        long write = writeIndex.get();
+        for (long i = read; i < write; i++) {
+            int index = (int) i & mask;
+            consumer.onTouch(actions[index], xs[index], ys[index]);
+        }
+        readIndex.lazySet(write);
+        return (int) (write - read);
+    }
+
+    public boolean isEmpty() {
+        return readIndex.get() == writeIndex.get();
+    }
+
+    /**
+     * 因队列已满而丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public interface Consumer {
+        void onTouch(int action, float x, float y);
+    }
+}
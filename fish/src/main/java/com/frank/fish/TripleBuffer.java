@@ -0,0 +1,60 @@
+package com.frank.fish;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单生产者、单消费者的无锁三缓冲，纯 Java 实现。
+ * <p>
+ * 三份数据分别由生产者（正在写入）、消费者（正在读取）持有，剩下一份处于中间位置，保存最近发布的结果。
+ * 发布和获取都只是与中间位置做一次原子交换，因此生产者永远不会写到消费者正在读的那一份，
+ * 消费者拿到的总是某一次完整发布的结果，不会读到写了一半的数据；双方也都不需要等待对方。
+ */
+public class TripleBuffer<T> {
+
+    // 中间位置的下标保存在 state 的低两位，DIRTY 表示中间那份是消费者还没取走的新结果
+    private static final int INDEX_MASK = 3;
+    private static final int DIRTY = 4;
+
+    private final T[] buffers;
+    private final AtomicInteger state = new AtomicInteger(1);
+    // 只由生产者读写
+    private int writeIndex;
+    // 只由消费者读写
+    private int readIndex = 2;
+
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(T first, T second, T third) {
+        buffers = (T[]) new Object[]{first, second, third};
+    }
+
+    /**
+     * 生产者当前可以写入的一份
+     */
+    public T getWriteBuffer() {
+        return buffers[writeIndex];
+    }
+
+    /**
+     * 生产者写完后调用，发布刚写好的一份，并换到一份新的写入缓冲
+     */
+    public void publish() {
+        writeIndex = state.getAndSet(writeIndex | DIRTY) & INDEX_MASK;
+    }
+
+    /**
+     * 消费者获取最近发布的一份。没有新发布时返回上一次获取的那一份，在下一次调用 acquire() 之前可以放心读取
+     */
+    public T acquire() {
+        if ((state.get() & DIRTY) != 0) {
+            readIndex = state.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return buffers[readIndex];
+    }
+
+    /**
+     * 消费者上一次获取的那一份，不检查新发布
+     */
+    public T peek() {
+        return buffers[readIndex];
+    }
+}
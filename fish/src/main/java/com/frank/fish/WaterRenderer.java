@@ -0,0 +1,130 @@
+package com.frank.fish;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * 把 {@link WaterSurface} 画到 Canvas 上，并把触摸和鱼游动的尾迹换算成对水面的扰动。
+ * <p>
+ * 水面按固定的 60Hz 推进，与屏幕刷新率无关，波的传播速度在各种设备上都一样。每个格子对应位图中的一个像素，
+ * 着色结果写入复用的 int 数组后整体拷进复用的位图，绘制时带双线性过滤拉伸到整个区域。
+ * 水面平静后不再推进、着色，也不需要重绘。
+ */
+public class WaterRenderer {
+
+    // 水面推进的步长，以及一帧最多追赶的步数
+    private static final long STEP_NANOS = 1000000000L / 60;
+    private static final int MAX_STEPS_PER_FRAME = 2;
+    // 触摸按下水面的半径（像素）和深度
+    private static final float TOUCH_RADIUS = 28f;
+    private static final float TOUCH_DEPTH = 6f;
+    // 鱼游过时尾迹的半径（像素）和深度，鱼每移动一个格子留下一个
+    private static final float WAKE_RADIUS = 14f;
+    private static final float WAKE_DEPTH = 0.6f;
+
+    private final WaterSurface surface;
+    private final float cellSize;
+    private final int[] pixels;
+    private final Bitmap bitmap;
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect dst = new Rect();
+
+    private long pendingNanos;
+    // 水面推进后置为 true，下次绘制前重新着色
+    private boolean shadeDirty = true;
+
+    // 上一次留下尾迹的位置，NaN 表示还没有
+    private float lastWakeX = Float.NaN;
+    private float lastWakeY;
+
+    /**
+     * @param width    水面覆盖的宽度，单位像素
+     * @param height   水面覆盖的高度，单位像素
+     * @param cellSize 每个格子的边长，单位像素，越小越精细，开销随格子数线性增长
+     */
+    public WaterRenderer(int width, int height, float cellSize) {
+        this.cellSize = cellSize;
+        int columns = Math.max(3, (int) Math.ceil(width / cellSize));
+        int rows = Math.max(3, (int) Math.ceil(height / cellSize));
+        surface = new WaterSurface(columns, rows);
+        pixels = new int[columns * rows];
+        bitmap = Bitmap.createBitmap(columns, rows, Bitmap.Config.ARGB_8888);
+        dst.set(0, 0, Math.round(columns * cellSize), Math.round(rows * cellSize));
+    }
+
+    /**
+     * 在 (x, y) 处按下水面，坐标单位为像素
+     */
+    public void touch(float x, float y) {
+        surface.disturb(x / cellSize, y / cellSize, TOUCH_RADIUS / cellSize, TOUCH_DEPTH);
+    }
+
+    /**
+     * 鱼的头部移动到 (x, y)，与上一次留下尾迹的位置相距超过一个格子时再留下一个
+     */
+    public void wake(float x, float y) {
+        if (!Float.isNaN(lastWakeX)) {
+            float dx = x - lastWakeX;
+            float dy = y - lastWakeY;
+            if (dx * dx + dy * dy < cellSize * cellSize) {
+                return;
+            }
+            surface.disturb(x / cellSize, y / cellSize, Math.max(1, WAKE_RADIUS / cellSize), WAKE_DEPTH);
+        }
+        lastWakeX = x;
+        lastWakeY = y;
+    }
+
+    /**
+     * 推进 deltaNanos 纳秒
+     *
+     * @return 水面是否有变化，即是否需要重绘
+     */
+    public boolean advance(long deltaNanos) {
+        if (surface.isCalm()) {
+            pendingNanos = 0;
+            return false;
+        }
+        pendingNanos += deltaNanos;
+        int steps = 0;
+        while (pendingNanos >= STEP_NANOS && steps < MAX_STEPS_PER_FRAME) {
+            surface.step();
+            pendingNanos -= STEP_NANOS;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            pendingNanos = 0;
+        }
+        if (steps > 0) {
+            shadeDirty = true;
+        }
+        return steps > 0;
+    }
+
+    public void draw(Canvas canvas) {
+        if (shadeDirty) {
+            shadeDirty = false;
+            surface.shade(pixels);
+            bitmap.setPixels(pixels, 0, surface.getColumns(), 0, 0, surface.getColumns(), surface.getRows());
+        }
+        canvas.drawBitmap(bitmap, null, dst, bitmapPaint);
+    }
+
+    /**
+     * 水面平静时的颜色
+     */
+    public void setColor(int color) {
+        surface.setBaseColor(color);
+        shadeDirty = true;
+    }
+
+    public WaterSurface getSurface() {
+        return surface;
+    }
+
+    public void release() {
+        bitmap.recycle();
+    }
+}
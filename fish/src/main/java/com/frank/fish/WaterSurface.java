@@ -0,0 +1,272 @@
+package com.frank.fish;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 水面的高度场模拟，纯 Java 实现。
+ * <p>
+ * 水面被划分成 columns x rows 的网格，每个格子的高度保存在一维 float 数组中，按带阻尼的波动方程推进：
+ * 下一步的高度 = (上下左右四个邻居之和) / 2 - 上一步的高度，再乘以阻尼系数。只需要保存当前和上一步两份高度，
+ * 新的结果直接覆盖上一步那一份后交换。每个格子只读当前高度、只写自己的位置，因此可以把网格按行分带，
+ * 交给 ForkJoinPool 在多个核心上并行推进。边界上的格子高度始终为 0，波到达边界后反射回来。
+ * <p>
+ * 着色同样按行分带并行：根据高度的梯度算出每个格子的颜色，写入调用方提供的 ARGB 数组，
+ * 由调用方整体拷进一张复用的位图后拉伸画到屏幕上。触摸和鱼游动的尾迹通过 {@link #disturb} 按下水面。
+ */
+public class WaterSurface {
+
+    // 每一步高度保留的比例，越小波纹消失得越快
+    private static final float DAMPING = 0.985f;
+    // 所有格子高度的绝对值都小于它时认为水面已经平静，不再需要推进和重绘
+    private static final float CALM_THRESHOLD = 0.02f;
+    // 着色时梯度换算成亮度的系数，以及亮度变化的上限
+    private static final float SHADE_SCALE = 24f;
+    private static final int MAX_SHADE = 110;
+    // 每个并行带包含的行数，网格不超过两带时直接在当前线程计算
+    private static final int ROWS_PER_BAND = 16;
+
+    private final int columns;
+    private final int rows;
+    private final ForkJoinPool pool;
+
+    // 当前高度和上一步的高度，推进时新结果写入 previous，再交换
+    private float[] current;
+    private float[] previous;
+    // 水面平静时的颜色，着色时在它的基础上变亮或变暗
+    private int baseColor = 0xff7ec8e3;
+
+    // 并行计算的任务，预先创建好每一步复用
+    private final BandsAction bandsAction = new BandsAction();
+    private final BandAction[] bands;
+    // 每一带本步的最大高度，合并后判断水面是否平静
+    private final float[] bandPeaks;
+    // 本次并行执行的是推进还是着色，以及着色的目标数组
+    private boolean shading;
+    private int[] shadeTarget;
+
+    private boolean calm = true;
+
+    public WaterSurface(int columns, int rows) {
+        this(columns, rows, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool 并行推进和着色使用的线程池
+     */
+    public WaterSurface(int columns, int rows, ForkJoinPool pool) {
+        if (columns < 3 || rows < 3) {
+            throw new IllegalArgumentException("Grid must be at least 3x3: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.pool = pool;
+        current = new float[columns * rows];
+        previous = new float[columns * rows];
+        int bandCount = (rows + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+        bands = new BandAction[bandCount];
+        for (int b = 0; b < bandCount; b++) {
+            bands[b] = new BandAction(b);
+        }
+        bandPeaks = new float[bandCount];
+    }
+
+    /**
+     * 以格子坐标 (x, y) 为中心、radius 个格子为半径按下水面，越靠近中心按得越深
+     *
+     * @param depth 中心处降低的高度
+     */
+    public void disturb(float x, float y, float radius, float depth) {
+        int left = Math.max(1, (int) Math.floor(x - radius));
+        int right = Math.min(columns - 2, (int) Math.ceil(x + radius));
+        int top = Math.max(1, (int) Math.floor(y - radius));
+        int bottom = Math.min(rows - 2, (int) Math.ceil(y + radius));
+        float radiusSquared = radius * radius;
+        for (int row = top; row <= bottom; row++) {
+            float dy = row - y;
+            int offset = row * columns;
+            for (int column = left; column <= right; column++) {
+                float dx = column - x;
+                float distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared < radiusSquared) {
+                    // 余弦形状的凹坑，边缘平滑，不会激起锯齿状的高频波
+                    float falloff = (float) (Math.cos(Math.sqrt(distanceSquared / radiusSquared) * Math.PI) + 1) / 2;
+                    current[offset + column] -= depth * falloff;
+                }
+            }
+        }
+        calm = false;
+    }
+
+    /**
+     * 推进一步
+     */
+    public void step() {
+        if (calm) {
+            return;
+        }
+        runBands(false, null);
+        float[] swap = current;
+        current = previous;
+        previous = swap;
+        float peak = 0;
+        for (int b = 0; b < bands.length; b++) {
+            peak = Math.max(peak, bandPeaks[b]);
+        }
+        if (peak < CALM_THRESHOLD) {
+            // 剩下的起伏已经看不出来，直接抹平，之后不再推进
+            Arrays.fill(current, 0);
+            Arrays.fill(previous, 0);
+            calm = true;
+        }
+    }
+
+    /**
+     * 把当前的水面着色到 pixels 中，每个格子一个 ARGB 像素，按行存放
+     */
+    public void shade(int[] pixels) {
+        if (pixels.length < columns * rows) {
+            throw new IllegalArgumentException("Need " + columns * rows + " pixels, got " + pixels.length);
+        }
+        runBands(true, pixels);
+    }
+
+    private void runBands(boolean shading, int[] target) {
+        this.shading = shading;
+        shadeTarget = target;
+        if (bands.length <= 2) {
+            for (int b = 0; b < bands.length; b++) {
+                bands[b].compute();
+            }
+        } else {
+            bandsAction.reinitialize();
+            pool.invoke(bandsAction);
+        }
+        shadeTarget = null;
+    }
+
+    /**
+     * 第 [from, to) 行的下一步高度，只读 current，只写 previous，返回这些行中最大的高度绝对值
+     */
+    private float stepRows(int from, int to) {
+        float[] read = current;
+        float[] write = previous;
+        int columns = this.columns;
+        float peak = 0;
+        for (int row = Math.max(1, from), end = Math.min(rows - 1, to); row < end; row++) {
+            int offset = row * columns;
+            for (int i = offset + 1, last = offset + columns - 1; i < last; i++) {
+                float height = ((read[i - 1] + read[i + 1] + read[i - columns] + read[i + columns]) * 0.5f
+                        - write[i]) * DAMPING;
+                write[i] = height;
+                peak = Math.max(peak, Math.abs(height));
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 按左上方向的光照给第 [from, to) 行着色：朝光的坡面变亮，背光的坡面变暗
+     */
+    private void shadeRows(int from, int to, int[] pixels) {
+        float[] heights = current;
+        int columns = this.columns;
+        int base = baseColor;
+        int alpha = base & 0xff000000;
+        int red = (base >> 16) & 0xff;
+        int green = (base >> 8) & 0xff;
+        int blue = base & 0xff;
+        for (int row = from; row < to; row++) {
+            int offset = row * columns;
+            int up = row > 0 ? -columns : 0;
+            int down = row < rows - 1 ? columns : 0;
+            for (int column = 0; column < columns; column++) {
+                int i = offset + column;
+                float left = column > 0 ? heights[i - 1] : heights[i];
+                float right = column < columns - 1 ? heights[i + 1] : heights[i];
+                float slope = (left - right) + (heights[i + up] - heights[i + down]);
+                int shade = (int) Math.max(-MAX_SHADE, Math.min(MAX_SHADE, slope * SHADE_SCALE));
+                pixels[i] = alpha | clamp(red + shade) << 16 | clamp(green + shade) << 8 | clamp(blue + shade);
+            }
+        }
+    }
+
+    private static int clamp(int channel) {
+        return channel < 0 ? 0 : channel > 255 ? 255 : channel;
+    }
+
+    /**
+     * 水面平静时的颜色，不透明度保持不变
+     */
+    public void setBaseColor(int color) {
+        baseColor = color;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * 水面是否已经平静，平静时 step() 直接返回，着色结果也不会变化
+     */
+    public boolean isCalm() {
+        return calm;
+    }
+
+    /**
+     * 格子 (column, row) 当前的高度
+     */
+    public float getHeight(int column, int row) {
+        return current[row * columns + column];
+    }
+
+    /**
+     * 把所有带一次性交给线程池
+     */
+    private class BandsAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (int b = 1; b < bands.length; b++) {
+                bands[b].reinitialize();
+            }
+            // 第一带在当前线程计算，其余的分给其它线程
+            for (int b = 1; b < bands.length; b++) {
+                bands[b].fork();
+            }
+            bands[0].compute();
+            for (int b = bands.length - 1; b > 0; b--) {
+                bands[b].join();
+            }
+        }
+    }
+
+    private class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int index;
+        final int from;
+        final int to;
+
+        BandAction(int index) {
+            this.index = index;
+            from = index * ROWS_PER_BAND;
+            to = Math.min(rows, from + ROWS_PER_BAND);
+        }
+
+        @Override
+        protected void compute() {
+            if (shading) {
+                shadeRows(from, to, shadeTarget);
+            } else {
+                bandPeaks[index] = stepRows(from, to);
+            }
+        }
+    }
+}
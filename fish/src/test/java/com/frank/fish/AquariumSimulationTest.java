@@ -0,0 +1,150 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AquariumSimulationTest {
+
+    private static final long SEED = 20201017L;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int SCHOOL_SIZE = 120;
+    private static final int FRAMES = 900;
+    // 录制时每帧的间隔在这个范围内随机变化，模拟掉帧和抖动，单位 ms
+    private static final int MIN_FRAME_MILLIS = 4;
+    private static final int MAX_FRAME_MILLIS = 60;
+
+    /**
+     * 按不规则的帧间隔录制一段操作：先在鱼群模式下拖动，再切换到单条鱼，中途改变鱼缸大小、增删障碍物。
+     * 开始录制时手指已经按住，重放从没有目标点的状态开始，录制时也必须如此。
+     * 录制时每次推进后的校验和必须与重放（包括写入文件再读回）同一步的校验和完全相同
+     */
+    @Test
+    public void replayMatchesRecordedRun() throws IOException {
+        Recording recording = record();
+        TouchLog log = recording.log;
+        long[] replayed = AquariumSimulation.replay(log);
+        long[] reread = AquariumSimulation.replay(roundTrip(log));
+
+        assertEquals(log.getEndStep(), replayed.length);
+        assertEquals(-1, AquariumSimulation.firstDivergence(replayed, reread));
+        int compared = 0;
+        for (int step = 0; step < replayed.length; step++) {
+            // 一帧推进多步时录制时只能拿到最后一步的校验和
+            if (recording.recorded[step]) {
+                assertEquals("Checksum at step " + step, recording.checksums[step], replayed[step]);
+                compared++;
+            }
+        }
+        assertTrue("Only " + compared + " of " + replayed.length + " steps compared",
+                compared > replayed.length / 3);
+    }
+
+    /**
+     * 改动记录中的一个触摸坐标后重放，必须从那个事件生效的那一步开始报告不一致
+     */
+    @Test
+    public void modifiedLogIsReportedAsDiverging() {
+        TouchLog log = record().log;
+        // 同一步中后面的拖动会覆盖前面的目标点，只改一步中的最后一个事件
+        int changed = -1;
+        for (int i = log.getCount() / 2; i < log.getCount() - 1; i++) {
+            if (log.getType(i) == AquariumSimulation.ACTION_MOVE && log.getStep(i + 1) > log.getStep(i)) {
+                changed = i;
+                break;
+            }
+        }
+        assertTrue("No move event to change", changed >= 0);
+
+        TouchLog modified = new TouchLog(log.getSeed(), log.getStepNanos(), log.getWidth(), log.getHeight(),
+                log.getSchoolSize());
+        for (int i = 0; i < log.getCount(); i++) {
+            float x = i == changed ? log.getFirst(i) + 40 : log.getFirst(i);
+            modified.record(log.getStep(i), log.getType(i), x, log.getSecond(i), log.getThird(i));
+        }
+        modified.finish(log.getEndStep());
+
+        assertEquals(log.getStep(changed), AquariumSimulation.firstDivergence(AquariumSimulation.replay(log),
+                AquariumSimulation.replay(modified)));
+    }
+
+    private static Recording record() {
+        AquariumSimulation simulation = new AquariumSimulation(new Random(7));
+        simulation.setSize(WIDTH, HEIGHT);
+        simulation.setSchoolSize(SCHOOL_SIZE);
+        // 录制前放好的障碍物，单条鱼游动时要绕开
+        simulation.addObstacle(400, 700, 120);
+        simulation.addObstacle(700, 1200, 90);
+        // 录制前就已经按住并拖动，鱼群留下了目标点
+        simulation.onTouch(AquariumSimulation.ACTION_DOWN, 200, 300);
+        simulation.advance(AquariumSimulation.DEFAULT_STEP_NANOS * 3);
+        simulation.onTouch(AquariumSimulation.ACTION_MOVE, 240, 380);
+
+        TouchLog log = simulation.startRecording(SEED);
+        long[] checksums = new long[FRAMES * 8];
+        boolean[] recorded = new boolean[checksums.length];
+        Random frames = new Random(SEED);
+        float x = 240;
+        float y = 380;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            if (frame == FRAMES / 3) {
+                simulation.setSchoolSize(0);
+            } else if (frame == FRAMES / 2) {
+                simulation.setSize(HEIGHT, WIDTH);
+            } else if (frame == FRAMES / 2 + 30) {
+                simulation.removeObstacle(0);
+                simulation.addObstacle(900, 500, 150);
+            } else if (frame == FRAMES / 2 + 60) {
+                simulation.clearObstacles();
+            } else if (frame == FRAMES * 2 / 3) {
+                simulation.setSchoolSize(SCHOOL_SIZE);
+            }
+            // 开头 30 帧没有新的触摸，之后每 90 帧松开一次再按下，其余时间一直拖动，一帧里可能有多个事件
+            if (frame % 90 == 89) {
+                simulation.onTouch(AquariumSimulation.ACTION_UP, x, y);
+            } else if (frame >= 30) {
+                int moves = frames.nextInt(3);
+                for (int i = 0; i < moves; i++) {
+                    x = Math.max(0, Math.min(WIDTH, x + frames.nextFloat() * 60 - 30));
+                    y = Math.max(0, Math.min(HEIGHT, y + frames.nextFloat() * 60 - 30));
+                    simulation.onTouch(frame % 90 == 0 && i == 0
+                            ? AquariumSimulation.ACTION_DOWN : AquariumSimulation.ACTION_MOVE, x, y);
+                }
+            }
+            long millis = MIN_FRAME_MILLIS + frames.nextInt(MAX_FRAME_MILLIS - MIN_FRAME_MILLIS + 1);
+            if (simulation.advance(millis * 1000000L) > 0) {
+                int step = (int) simulation.getStepCount() - 1;
+                checksums[step] = simulation.checksum();
+                recorded[step] = true;
+            }
+        }
+        simulation.stopRecording();
+        return new Recording(log, checksums, recorded);
+    }
+
+    private static TouchLog roundTrip(TouchLog log) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        log.writeTo(out);
+        return TouchLog.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static class Recording {
+        final TouchLog log;
+        // 录制时第几步之后的校验和，recorded 中对应位置为 true 时才有值
+        final long[] checksums;
+        final boolean[] recorded;
+
+        Recording(TouchLog log, long[] checksums, boolean[] recorded) {
+            this.log = log;
+            this.checksums = checksums;
+            this.recorded = recorded;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.frank.fish;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+public class FishKinematicsTest {
+
+    // 测量分配时连续计算的帧数
+    private static final int FRAMES = 100000;
+    // 允许的总分配字节数，只给测量本身留一点余量，每帧哪怕只创建一个对象也会远远超出
+    private static final long ALLOCATION_SLACK_BYTES = 1024;
+    // 包围盒与轮廓比较时允许的 float 误差，单位 px
+    private static final float BOUNDS_EPSILON = 1e-3f;
+
+    @Test
+    public void computeDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long thread = Thread.currentThread().getId();
+        FishKinematics kinematics = new FishKinematics();
+        // 预热，让查表用到的曲线都创建好，并让 JIT 完成编译
+        float checksum = computeFrames(kinematics, FRAMES);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        checksum += computeFrames(kinematics, FRAMES);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue("Allocated " + allocated + " bytes in " + FRAMES + " frames (checksum " + checksum + ")",
+                allocated <= ALLOCATION_SLACK_BYTES);
+    }
+
+    /**
+     * 脏区失效依赖包围盒包住实际画出的一切，这里遍历各种朝向、相位、频率和鱼鳍值，
+     * 把 FishOutline 输出的每个点和每个圆都与包围盒比较
+     */
+    @Test
+    public void boundsContainDrawnGeometry() {
+        FishKinematics kinematics = new FishKinematics();
+        ExtentSink sink = new ExtentSink();
+        for (float heading = -180; heading < 180; heading += 7.5f) {
+            for (float animatorValue = 0; animatorValue < FishKinematics.MAX_ANIMATOR_VALUE; animatorValue += 11.3f) {
+                for (float frequency = 1; frequency <= 3; frequency += 0.25f) {
+                    for (float finsValue = 0; finsValue <= FishKinematics.HEAD_RADIUS * 2; finsValue += 25) {
+                        kinematics.compute(500, 400, heading, animatorValue, frequency, finsValue);
+                        sink.reset();
+                        FishOutline.addParts(kinematics, sink);
+                        FishOutline.addBody(kinematics, sink);
+                        FishOutline.addSilhouette(kinematics, sink);
+                        float[] bounds = kinematics.bounds;
+                        String pose = "heading " + heading + ", value " + animatorValue + ", frequency "
+                                + frequency + ", fins " + finsValue;
+                        assertTrue("Left " + sink.left + " < " + bounds[FishKinematics.LEFT] + " at " + pose,
+                                sink.left >= bounds[FishKinematics.LEFT] - BOUNDS_EPSILON);
+                        assertTrue("Top " + sink.top + " < " + bounds[FishKinematics.TOP] + " at " + pose,
+                                sink.top >= bounds[FishKinematics.TOP] - BOUNDS_EPSILON);
+                        assertTrue("Right " + sink.right + " > " + bounds[FishKinematics.RIGHT] + " at " + pose,
+                                sink.right <= bounds[FishKinematics.RIGHT] + BOUNDS_EPSILON);
+                        assertTrue("Bottom " + sink.bottom + " > " + bounds[FishKinematics.BOTTOM] + " at " + pose,
+                                sink.bottom <= bounds[FishKinematics.BOTTOM] + BOUNDS_EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 与 FishDrawable 每帧的调用相同，姿态参数逐帧变化，覆盖各个角度、频率和鱼鳍值
+     */
+    private static float computeFrames(FishKinematics kinematics, int frames) {
+        float checksum = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            float animatorValue = frame * 7.3f % FishKinematics.MAX_ANIMATOR_VALUE;
+            kinematics.compute(frame % 1000, frame % 700, frame * 1.7f % 360, animatorValue,
+                    1 + frame % 20 * 0.1f, frame % 30);
+            checksum += kinematics.bounds[FishKinematics.RIGHT];
+        }
+        return checksum;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("JVM cannot count allocated bytes", threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue("JVM cannot count allocated bytes", hotspot.isThreadAllocatedMemorySupported());
+        hotspot.setThreadAllocatedMemoryEnabled(true);
+        return hotspot;
+    }
+
+    /**
+     * 记录轮廓用到的所有点的范围。二阶贝塞尔曲线在起点、控制点和终点构成的三角形内，圆按外接正方形计算
+     */
+    private static class ExtentSink implements FishOutline.Sink {
+        float left;
+        float top;
+        float right;
+        float bottom;
+
+        void reset() {
+            left = Float.MAX_VALUE;
+            top = Float.MAX_VALUE;
+            right = -Float.MAX_VALUE;
+            bottom = -Float.MAX_VALUE;
+        }
+
+        private void include(float x, float y, float radius) {
+            left = Math.min(left, x - radius);
+            top = Math.min(top, y - radius);
+            right = Math.max(right, x + radius);
+            bottom = Math.max(bottom, y + radius);
+        }
+
+        @Override
+        public void layer(int layer) {
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            include(x, y, 0);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            include(x, y, 0);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            include(x1, y1, 0);
+            include(x2, y2, 0);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void circle(float x, float y, float radius) {
+            include(x, y, radius);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class FishOutlineTest {
+
+    // 同一层的部分之间至少要留的间隔，单位 px。鱼群中的鱼缩小到 SCHOOL_FISH_SCALE 后，
+    // 间隔仍然要比两侧各 1px 的抗锯齿边缘宽，合并成一条路径时才不会有像素同时被两个部分覆盖
+    private static final float MIN_LAYER_GAP = 2 / SchoolRenderer.SCHOOL_FISH_SCALE;
+    // 把圆和二阶贝塞尔曲线展开成折线时的段数
+    private static final int CIRCLE_SEGMENTS = 48;
+    private static final int QUAD_SEGMENTS = 16;
+
+    /**
+     * 同一层的部分合并在一条路径里只画一次，只有它们互不相接时才与逐个绘制的效果相同。
+     * 这里遍历各种相位、频率和鱼鳍值，检查每一层中任意两个部分之间都留有足够的间隔
+     */
+    @Test
+    public void partsInOneLayerNeverTouch() {
+        FishKinematics kinematics = new FishKinematics();
+        ContourSink sink = new ContourSink();
+        for (float animatorValue = 0; animatorValue < FishKinematics.MAX_ANIMATOR_VALUE; animatorValue += 7.5f) {
+            for (float frequency = 1; frequency <= 3; frequency += 0.5f) {
+                for (float finsValue = 0; finsValue <= FishKinematics.HEAD_RADIUS * 2; finsValue += 25) {
+                    kinematics.compute(500, 400, 30, animatorValue, frequency, finsValue);
+                    sink.reset();
+                    FishOutline.addParts(kinematics, sink);
+                    FishOutline.addBody(kinematics, sink);
+                    String pose = "value " + animatorValue + ", frequency " + frequency + ", fins " + finsValue;
+                    for (int i = 0; i < sink.contours.size(); i++) {
+                        for (int j = i + 1; j < sink.contours.size(); j++) {
+                            if (sink.layers.get(i).intValue() != sink.layers.get(j).intValue()) {
+                                continue;
+                            }
+                            float gap = gap(sink.contours.get(i), sink.contours.get(j));
+                            assertTrue("Parts " + i + " and " + j + " in layer " + sink.layers.get(i) + " are " + gap
+                                    + " px apart at " + pose, gap >= MIN_LAYER_GAP);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 两条闭合折线之间的最短距离，相交或一个包含另一个时为 0
+     */
+    private static float gap(float[] a, float[] b) {
+        if (contains(a, b[0], b[1]) || contains(b, a[0], a[1])) {
+            return 0;
+        }
+        float gap = Float.MAX_VALUE;
+        for (int i = 0; i < a.length; i += 2) {
+            int i2 = (i + 2) % a.length;
+            for (int j = 0; j < b.length; j += 2) {
+                int j2 = (j + 2) % b.length;
+                gap = Math.min(gap, segmentDistance(a[i], a[i + 1], a[i2], a[i2 + 1],
+                        b[j], b[j + 1], b[j2], b[j2 + 1]));
+            }
+        }
+        return gap;
+    }
+
+    private static float segmentDistance(float ax, float ay, float bx, float by,
+                                         float cx, float cy, float dx, float dy) {
+        if (cross(ax, ay, bx, by, cx, cy) * cross(ax, ay, bx, by, dx, dy) < 0
+                && cross(cx, cy, dx, dy, ax, ay) * cross(cx, cy, dx, dy, bx, by) < 0) {
+            return 0;
+        }
+        return Math.min(Math.min(pointDistance(ax, ay, bx, by, cx, cy), pointDistance(ax, ay, bx, by, dx, dy)),
+                Math.min(pointDistance(cx, cy, dx, dy, ax, ay), pointDistance(cx, cy, dx, dy, bx, by)));
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    /**
+     * 点 p 到线段 ab 的距离
+     */
+    private static float pointDistance(float ax, float ay, float bx, float by, float px, float py) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float lengthSquare = dx * dx + dy * dy;
+        float t = lengthSquare == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquare;
+        t = Math.max(0, Math.min(1, t));
+        return (float) Math.hypot(ax + t * dx - px, ay + t * dy - py);
+    }
+
+    private static boolean contains(float[] polygon, float x, float y) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.length - 2; i < polygon.length; j = i, i += 2) {
+            float xi = polygon[i];
+            float yi = polygon[i + 1];
+            float xj = polygon[j];
+            float yj = polygon[j + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * 把每个部分的轮廓展开成一条闭合折线，并记下它所在的层
+     */
+    private static class ContourSink implements FishOutline.Sink {
+        final List<float[]> contours = new ArrayList<>();
+        final List<Integer> layers = new ArrayList<>();
+        private int layer = -1;
+        private float[] points = new float[64];
+        private int size;
+
+        void reset() {
+            contours.clear();
+            layers.clear();
+            layer = -1;
+            size = 0;
+        }
+
+        private void add(float x, float y) {
+            if (size + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[size++] = x;
+            points[size++] = y;
+        }
+
+        @Override
+        public void layer(int layer) {
+            this.layer = layer;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            size = 0;
+            add(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            float x0 = points[size - 2];
+            float y0 = points[size - 1];
+            for (int i = 1; i <= QUAD_SEGMENTS; i++) {
+                float t = (float) i / QUAD_SEGMENTS;
+                float u = 1 - t;
+                add(u * u * x0 + 2 * u * t * x1 + t * t * x2, u * u * y0 + 2 * u * t * y1 + t * t * y2);
+            }
+        }
+
+        @Override
+        public void close() {
+            assertTrue("Outline outside a layer", layer >= 0);
+            contours.add(Arrays.copyOf(points, size));
+            layers.add(layer);
+            size = 0;
+        }
+
+        @Override
+        public void circle(float x, float y, float radius) {
+            size = 0;
+            for (int i = 0; i < CIRCLE_SEGMENTS; i++) {
+                double angle = 2 * Math.PI * i / CIRCLE_SEGMENTS;
+                add(x + radius * (float) Math.cos(angle), y + radius * (float) Math.sin(angle));
+            }
+            close();
+        }
+    }
+}
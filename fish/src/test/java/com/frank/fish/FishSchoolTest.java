@@ -0,0 +1,146 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FishSchoolTest {
+
+    // 每条鱼平均占据的边长，单位 px，与 SchoolBenchmark 相同，鱼数变化时密度保持不变
+    private static final float SPACING = 60f;
+    private static final int[] FISH_COUNTS = {1000, 4000, 16000};
+    private static final int STEPS = 30;
+    // 鱼数增加 16 倍时，每条鱼检查的候选邻居数最多允许增加的比例
+    private static final float MAX_CANDIDATE_GROWTH = 1.5f;
+    // 鱼数增加 16 倍时，每条鱼每步的耗时最多允许增加的比例，耗时受机器和 JIT 影响，上限放得很宽
+    private static final double MAX_STEP_COST_GROWTH = 3;
+    // 测量耗时时每轮推进的步数和轮数，取最快的一轮
+    private static final int TIMED_STEPS = 10;
+    private static final int TIMED_ROUNDS = 5;
+
+    /**
+     * 邻居查找只看周围 3x3 个格子，密度不变时每条鱼的查找开销不应随鱼数增长，整步的开销因此近似线性。
+     * 这里比较的是查找次数而不是耗时，结果与机器无关
+     */
+    @Test
+    public void neighborQueriesStayBoundedAsSchoolGrows() {
+        float baseline = 0;
+        for (int fishCount : FISH_COUNTS) {
+            FishSchool school = new FishSchool();
+            float side = (float) Math.sqrt(fishCount) * SPACING;
+            school.setBounds(side, side);
+            school.spawn(fishCount, new Random(42));
+
+            long candidates = 0;
+            for (int step = 0; step < STEPS; step++) {
+                school.step(1 / 60f);
+                SchoolSnapshot snapshot = school.getSnapshot();
+                for (int i = 0; i < snapshot.count; i++) {
+                    assertTrue(fishCount + " fish: fish " + i + " used " + snapshot.neighborCounts[i]
+                                    + " neighbors in step " + step,
+                            snapshot.neighborCounts[i] <= FishSchool.MAX_NEIGHBORS);
+                    candidates += snapshot.candidateCounts[i];
+                }
+            }
+
+            float candidatesPerFish = (float) candidates / ((long) fishCount * STEPS);
+            if (baseline == 0) {
+                baseline = candidatesPerFish;
+            }
+            assertTrue(fishCount + " fish checked " + candidatesPerFish + " candidates per fish, "
+                            + FISH_COUNTS[0] + " fish checked " + baseline,
+                    candidatesPerFish <= baseline * MAX_CANDIDATE_GROWTH);
+        }
+    }
+
+    /**
+     * 在同一个线程中比较 N 条鱼和 16N 条鱼时每条鱼每步的耗时，整步的开销应当随鱼数近似线性增长
+     */
+    @Test
+    public void stepCostGrowsNearLinearly() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            int small = FISH_COUNTS[0];
+            int large = FISH_COUNTS[FISH_COUNTS.length - 1];
+            // 先各跑一遍让 JIT 完成编译，再正式测量
+            nanosPerFishStep(pool, small);
+            nanosPerFishStep(pool, large);
+            double smallCost = nanosPerFishStep(pool, small);
+            double largeCost = nanosPerFishStep(pool, large);
+            assertTrue(String.format("%d fish took %.1f ns per fish step, %d fish took %.1f ns",
+                            large, largeCost, small, smallCost),
+                    largeCost <= smallCost * MAX_STEP_COST_GROWTH);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 查找半径内的邻居超过 MAX_NEIGHBORS 个时必须取最近的那些，而不是网格先扫描到的那些。
+     * 远处的鱼都放在最先扫描的左上格，近处的鱼放在鱼自己所在、较晚扫描的格子里
+     */
+    @Test
+    public void neighborScanKeepsNearest() {
+        int far = FishSchool.MAX_NEIGHBORS + 6;
+        int near = 10;
+        FishSchool school = new FishSchool();
+        school.setBounds(900, 900);
+        school.spawn(1 + far + near, new Random(42));
+        SchoolSnapshot snapshot = school.getSnapshot();
+        snapshot.xs[0] = 460;
+        snapshot.ys[0] = 460;
+        for (int k = 0; k < far; k++) {
+            // 距离 75 到 85 之间，各不相同
+            float distance = 75 + k * 10f / far;
+            snapshot.xs[1 + k] = 460 - distance / (float) Math.sqrt(2);
+            snapshot.ys[1 + k] = 460 - distance / (float) Math.sqrt(2) - k * 0.01f;
+        }
+        for (int k = 0; k < near; k++) {
+            snapshot.xs[1 + far + k] = 470 + k * 2;
+            snapshot.ys[1 + far + k] = 475 + k;
+        }
+
+        int[] neighbors = new int[FishSchool.MAX_NEIGHBORS];
+        int count = school.findNeighbors(0, neighbors);
+        assertEquals(FishSchool.MAX_NEIGHBORS, count);
+        boolean[] chosen = new boolean[snapshot.count];
+        float farthestChosen = 0;
+        for (int n = 0; n < count; n++) {
+            chosen[neighbors[n]] = true;
+            farthestChosen = Math.max(farthestChosen, distance(snapshot, 0, neighbors[n]));
+        }
+        for (int j = 1; j < snapshot.count; j++) {
+            if (!chosen[j]) {
+                assertTrue("Fish " + j + " at " + distance(snapshot, 0, j) + " was skipped for one at "
+                        + farthestChosen, distance(snapshot, 0, j) >= farthestChosen);
+            }
+        }
+        for (int k = 0; k < near; k++) {
+            assertTrue("Near fish " + (1 + far + k) + " was not chosen", chosen[1 + far + k]);
+        }
+    }
+
+    private static double nanosPerFishStep(ForkJoinPool pool, int fishCount) {
+        FishSchool school = new FishSchool(pool);
+        float side = (float) Math.sqrt(fishCount) * SPACING;
+        school.setBounds(side, side);
+        school.spawn(fishCount, new Random(42));
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < TIMED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int step = 0; step < TIMED_STEPS; step++) {
+                school.step(1 / 60f);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / ((long) fishCount * TIMED_STEPS);
+    }
+
+    private static float distance(SchoolSnapshot snapshot, int i, int j) {
+        return (float) Math.hypot(snapshot.xs[j] - snapshot.xs[i], snapshot.ys[j] - snapshot.ys[i]);
+    }
+}
@@ -0,0 +1,39 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FishTrigTest {
+
+    @Test
+    public void interpolatedTableIsAccurateOverLargeAngles() {
+        FishTrig trig = FishTrig.DEFAULT;
+        double maxError = 0;
+        // 步长取一个不整除表项间隔的值，覆盖表项之间的各个位置
+        for (float degrees = -5000; degrees <= 5000; degrees += 0.0137f) {
+            maxError = Math.max(maxError, Math.abs(trig.sin(degrees) - Math.sin(Math.toRadians(degrees))));
+            maxError = Math.max(maxError, Math.abs(trig.cos(degrees) - Math.cos(Math.toRadians(degrees))));
+        }
+        assertTrue("Max error " + maxError, maxError < 1e-6);
+    }
+
+    @Test
+    public void nearestLookupIsWithinHalfAStep() {
+        FishTrig trig = new FishTrig(4096, false);
+        // 不插值时误差不超过半个表项间隔对应的弧度
+        double bound = Math.PI / trig.getResolution() + 1e-6;
+        double maxError = 0;
+        for (float degrees = -720; degrees <= 720; degrees += 0.0137f) {
+            maxError = Math.max(maxError, Math.abs(trig.sin(degrees) - Math.sin(Math.toRadians(degrees))));
+        }
+        assertTrue("Max error " + maxError + ", bound " + bound, maxError < bound);
+    }
+
+    @Test
+    public void resolutionIsRoundedUpToPowerOfTwo() {
+        assertEquals(4096, new FishTrig(3000, true).getResolution());
+        assertEquals(4096, new FishTrig(4096, true).getResolution());
+    }
+}
@@ -0,0 +1,64 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class OscillationCurvesTest {
+
+    // 鱼群中摆尾频率的范围，与 FishSchool 一致
+    private static final float MIN_FREQUENCY = 1f;
+    private static final float MAX_FREQUENCY = 3f;
+
+    // 与 Math 直接计算的结果相比允许的误差，角度单位为度，长度单位为 px
+    private static final double MAX_ANGLE_ERROR = 1e-3;
+    private static final double MAX_LENGTH_ERROR = 1e-3;
+
+    @Test
+    public void segmentSwingsMatchMathForContinuousFrequencies() {
+        double maxError = 0;
+        for (float frequency = MIN_FREQUENCY; frequency <= MAX_FREQUENCY; frequency += 0.0173f) {
+            for (float value = 0; value < FishKinematics.MAX_ANIMATOR_VALUE; value += 0.37f) {
+                double swing = Math.toRadians(value * frequency * 1.5);
+                maxError = Math.max(maxError,
+                        Math.abs(OscillationCurves.segment1Swing(value, frequency) - Math.cos(swing) * 15));
+                maxError = Math.max(maxError,
+                        Math.abs(OscillationCurves.segment2Swing(value, frequency) - Math.sin(swing) * 25));
+            }
+        }
+        assertTrue("Max segment swing error " + maxError + "°", maxError < MAX_ANGLE_ERROR);
+    }
+
+    @Test
+    public void bakedCurvesMatchMath() {
+        double maxSwingError = 0;
+        double maxLengthError = 0;
+        for (float value = 0; value <= FishKinematics.MAX_ANIMATOR_VALUE; value += 0.13f) {
+            maxSwingError = Math.max(maxSwingError,
+                    Math.abs(OscillationCurves.bodySwing(value) - Math.sin(Math.toRadians(value)) * 10));
+            maxLengthError = Math.max(maxLengthError, Math.abs(OscillationCurves.tailEdgeLength(value)
+                    - Math.abs(Math.sin(Math.toRadians(value * 1.5)) * FishKinematics.BIG_CIRCLE_RADIUS)));
+        }
+        assertTrue("Max body swing error " + maxSwingError + "°", maxSwingError < MAX_ANGLE_ERROR);
+        assertTrue("Max tail edge error " + maxLengthError + " px", maxLengthError < MAX_LENGTH_ERROR);
+    }
+
+    /**
+     * 鱼的速度连续变化时摆动角度也应连续变化，不能在某个频率处跳变
+     */
+    @Test
+    public void segmentSwingIsContinuousInFrequency() {
+        float delta = 1e-3f;
+        // 相位对频率的导数最大为 v * 1.5°，乘以摆幅换算成弧度即为角度变化的上限，再留一倍余量
+        double bound = FishKinematics.MAX_ANIMATOR_VALUE * 1.5 * delta * Math.toRadians(25) * 2;
+        double maxJump = 0;
+        for (float frequency = MIN_FREQUENCY; frequency < MAX_FREQUENCY; frequency += 0.01f) {
+            for (float value = 0; value < FishKinematics.MAX_ANIMATOR_VALUE; value += 1.1f) {
+                maxJump = Math.max(maxJump, Math.abs(OscillationCurves.segment2Swing(value, frequency + delta)
+                        - OscillationCurves.segment2Swing(value, frequency)));
+            }
+        }
+        assertTrue("Max jump " + maxJump + "° for a frequency change of " + delta + ", bound " + bound,
+                maxJump < bound);
+    }
+}
@@ -0,0 +1,324 @@
+package com.frank.fish;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 无界面的压力测试：让 1 到 10000 条鱼按 FishLayout 鱼群模式的流程逐帧运行，输出各项开销随鱼数变化的报告。
+ * <p>
+ * 每一帧依次执行鱼群模拟一步（{@link FishSchool#step}）、算出每条鱼的骨架点（{@link PoseSnapshot#fill}），
+ * 再用 {@link SchoolRenderer#draw} 画到一个只计数的 Canvas 上，经过的是 App 中真实的 FishDrawable 和
+ * FishPathCache。最后把同一帧再画若干遍，得到姿态不变时重绘的耗时：鱼数不超过缓存容量时每条鱼都命中缓存，
+ * 超过时按最近使用的顺序轮流让出缓存，全部重新录制。
+ * 鱼的密度保持不变，只改变数量。报告写入 build/reports/stress/scaling.txt。
+ * <p>
+ * Paint 和 Path 来自 Robolectric 的原生图形模式，与真机一样由 Skia 实现，路径命令不在 Java 堆上分配对象。
+ * 计数的 Canvas 只覆盖 SchoolRenderer 和 FishDrawable 用到的方法，不做真正的绘制。
+ * <p>
+ * 耗时和堆内存与机器、GC 有关，只报告不检查；每条鱼的绘制命令数和稳态下每帧分配的内存与机器无关，超出上限时测试失败。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class SchoolStressTest {
+
+    private static final int[] FISH_COUNTS = {1, 10, 100, 1000, 10000};
+    // 每条鱼平均占据的边长，单位 px，与 SchoolBenchmark 相同
+    private static final float SPACING = 60f;
+    private static final float DT = 1 / 60f;
+    private static final int WARMUP_FRAMES = 60;
+    // 每个鱼数测量的总鱼帧数，帧数在上下限之间
+    private static final long FISH_FRAMES = 2000000;
+    private static final int MIN_FRAMES = 20;
+    private static final int MAX_FRAMES = 600;
+    // 姿态不变时重绘的遍数
+    private static final int REDRAWS = 20;
+
+    // 完整细节的鱼每帧的画布调用（save、translate、scale、每层一次共六次 drawPath、restoreToCount）
+    // 加上缓存路径中的命令数（33），多一条命令都说明轮廓或绘制流程变了
+    private static final double MAX_COMMANDS_PER_FISH = 43;
+    // 稳态下每帧（所有线程合计）允许分配的字节数，只给线程池调度留余量，每条鱼每帧哪怕只创建一个对象也会超出
+    private static final double MAX_ALLOCATED_BYTES_PER_FRAME = 4096;
+
+    private static final File REPORT = new File("build/reports/stress/scaling.txt");
+
+    /**
+     * 一个鱼数的测量结果
+     */
+    private static class Result {
+        int fishCount;
+        int frames;
+        double updateNanosPerFish;
+        double poseNanosPerFish;
+        double drawNanosPerFish;
+        double cachedDrawNanosPerFish;
+        double commandsPerFish;
+        double allocatedBytesPerFrame;
+        double heapBytesPerFish;
+    }
+
+    @Test
+    public void schoolScalesWithinLimits() throws IOException {
+        Result[] results = new Result[FISH_COUNTS.length];
+        for (int i = 0; i < FISH_COUNTS.length; i++) {
+            results[i] = run(FISH_COUNTS[i]);
+        }
+        print(results, System.out);
+        writeReport(results);
+
+        for (Result r : results) {
+            assertTrue(String.format(Locale.US, "%.1f draw commands per fish with %d fish, limit %.0f",
+                            r.commandsPerFish, r.fishCount, MAX_COMMANDS_PER_FISH),
+                    r.commandsPerFish <= MAX_COMMANDS_PER_FISH);
+            // 当前 JVM 测不出分配量时为 NaN，不检查
+            assertTrue(String.format(Locale.US, "%.0f bytes allocated per frame with %d fish, limit %.0f",
+                            r.allocatedBytesPerFrame, r.fishCount, MAX_ALLOCATED_BYTES_PER_FRAME),
+                    Double.isNaN(r.allocatedBytesPerFrame)
+                            || r.allocatedBytesPerFrame <= MAX_ALLOCATED_BYTES_PER_FRAME);
+        }
+    }
+
+    private static Result run(int fishCount) {
+        long heapBefore = usedHeap();
+        FishSchool school = new FishSchool();
+        float side = (float) Math.sqrt(fishCount) * SPACING;
+        school.setBounds(side, side);
+        school.spawn(fishCount, new Random(42));
+        FishKinematics kinematics = new FishKinematics();
+        PoseSnapshot poses = new PoseSnapshot();
+        SchoolRenderer renderer = new SchoolRenderer();
+        RecordingCanvas canvas = new RecordingCanvas();
+        // 预热，同时让鱼群、快照、线程池和路径缓存都分配到稳态所需的大小
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            school.step(DT);
+            poses.fill(school.getSnapshot(), kinematics);
+            renderer.draw(canvas, poses);
+        }
+        long heapAfter = usedHeap();
+
+        int frames = (int) Math.max(MIN_FRAMES, Math.min(MAX_FRAMES, FISH_FRAMES / fishCount));
+        long updateNanos = 0;
+        long poseNanos = 0;
+        long drawNanos = 0;
+        canvas.reset();
+        long allocatedBefore = allocatedBytes();
+        for (int frame = 0; frame < frames; frame++) {
+            long start = System.nanoTime();
+            school.step(DT);
+            long time = System.nanoTime();
+            updateNanos += time - start;
+
+            start = time;
+            poses.fill(school.getSnapshot(), kinematics);
+            time = System.nanoTime();
+            poseNanos += time - start;
+
+            start = time;
+            renderer.draw(canvas, poses);
+            drawNanos += System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        double canvasCallsPerFish = (double) canvas.calls / ((double) fishCount * frames);
+
+        long start = System.nanoTime();
+        for (int redraw = 0; redraw < REDRAWS; redraw++) {
+            renderer.draw(canvas, poses);
+        }
+        long cachedDrawNanos = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.fishCount = fishCount;
+        result.frames = frames;
+        double fishFrames = (double) fishCount * frames;
+        result.updateNanosPerFish = updateNanos / fishFrames;
+        result.poseNanosPerFish = poseNanos / fishFrames;
+        result.drawNanosPerFish = drawNanos / fishFrames;
+        result.cachedDrawNanosPerFish = cachedDrawNanos / ((double) fishCount * REDRAWS);
+        result.commandsPerFish = canvasCallsPerFish + pathCommandsPerFish(renderer, fishCount);
+        result.allocatedBytesPerFrame = allocated < 0 ? Double.NaN : (double) allocated / frames;
+        result.heapBytesPerFish = (double) Math.max(0, heapAfter - heapBefore) / fishCount;
+        return result;
+    }
+
+    /**
+     * 缓存的路径中平均每条鱼的命令数。layer 只选择写入哪条路径，对应的 drawPath 已经在画布调用中计过，这里不再计入。
+     * 缓存的份数必须正好是鱼数和容量中较小的那个，鱼再多也不能超出容量
+     */
+    private static double pathCommandsPerFish(SchoolRenderer renderer, int fishCount) {
+        int cacheCount = renderer.getPathCacheCount();
+        int expected = Math.min(fishCount, renderer.getDisplayListCapacity());
+        assertTrue(cacheCount + " path caches for " + fishCount + " fish, expected " + expected,
+                cacheCount == expected);
+        long commands = 0;
+        for (int slot = 0; slot < cacheCount; slot++) {
+            FishDisplayList list = renderer.getPathCacheInSlot(slot).getDisplayList();
+            commands += list.getCommandCount() - layerCount(list);
+        }
+        return (double) commands / cacheCount;
+    }
+
+    private static int layerCount(FishDisplayList list) {
+        final int[] layers = new int[1];
+        list.replay(new FishOutline.Sink() {
+            @Override
+            public void layer(int layer) {
+                layers[0]++;
+            }
+
+            @Override
+            public void moveTo(float x, float y) {
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+            }
+
+            @Override
+            public void quadTo(float x1, float y1, float x2, float y2) {
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void circle(float x, float y, float radius) {
+            }
+        });
+        return layers[0];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 所有线程累计分配的字节数，鱼群模拟会用到线程池中的其它线程。JVM 不支持时返回 -1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : hotspot.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    private static void writeReport(Result[] results) throws IOException {
+        File parent = REPORT.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        PrintStream out = new PrintStream(new FileOutputStream(REPORT), false, "UTF-8");
+        try {
+            print(results, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void print(Result[] results, PrintStream out) {
+        out.println(String.format(Locale.US, "%8s %7s %12s %12s %12s %12s %12s %14s %12s",
+                "fish", "frames", "update ns", "pose ns", "draw ns", "cached ns", "commands", "alloc B/frame",
+                "heap B"));
+        for (Result r : results) {
+            out.println(String.format(Locale.US, "%8d %7d %12.1f %12.1f %12.1f %12.1f %12.1f %14.0f %12.0f",
+                    r.fishCount, r.frames, r.updateNanosPerFish, r.poseNanosPerFish, r.drawNanosPerFish,
+                    r.cachedDrawNanosPerFish, r.commandsPerFish, r.allocatedBytesPerFrame, r.heapBytesPerFish));
+        }
+        out.println("(all columns are per fish except alloc, which is per frame in steady state; "
+                + "cached is a redraw of an unchanged pose)");
+    }
+
+    /**
+     * 代替真实画布，只统计 SchoolRenderer 和 FishDrawable 发出的调用次数
+     */
+    private static class RecordingCanvas extends Canvas {
+        long calls;
+        private int saveCount;
+
+        void reset() {
+            calls = 0;
+        }
+
+        @Override
+        public int save() {
+            calls++;
+            return saveCount++;
+        }
+
+        @Override
+        public void restoreToCount(int saveCount) {
+            calls++;
+            this.saveCount = saveCount;
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+            calls++;
+        }
+
+        @Override
+        public void scale(float sx, float sy) {
+            calls++;
+        }
+
+        @Override
+        public void rotate(float degrees) {
+            calls++;
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            calls++;
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            calls++;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            calls++;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+            calls++;
+        }
+    }
+}
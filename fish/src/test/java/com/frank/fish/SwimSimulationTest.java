@@ -0,0 +1,77 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwimSimulationTest {
+
+    private static final long FRAME_NANOS = 1000000000L / 60;
+    private static final float TARGET_X = 900;
+    private static final float TARGET_Y = 1400;
+    // 到达目标点时允许的距离误差，单位 px
+    private static final float ARRIVAL_EPSILON = 1f;
+
+    /**
+     * 拖动手指时每帧都会重新规划。手指按住不动（只有 1px 的抖动）时鱼必须在原来的时限内游到并停下，
+     * 而不是每帧从完整的游动时长重新开始减速，或者在终点附近绕圈
+     */
+    @Test
+    public void retargetingEveryFrameStillArrives() {
+        SwimSimulation swim = new SwimSimulation(new Random(1));
+        swim.reset(200, 300, 90);
+        swim.retarget(TARGET_X, TARGET_Y);
+        long elapsed = 0;
+        while (elapsed < SwimSimulation.SWIM_DURATION_NANOS / 4) {
+            swim.step(FRAME_NANOS);
+            elapsed += FRAME_NANOS;
+        }
+        while (swim.isSwimming() && elapsed < SwimSimulation.SWIM_DURATION_NANOS * 2) {
+            swim.retarget(TARGET_X + (elapsed / FRAME_NANOS % 2), TARGET_Y);
+            swim.step(FRAME_NANOS);
+            elapsed += FRAME_NANOS;
+        }
+
+        assertFalse("Still swimming after " + elapsed / 1000000 + " ms", swim.isSwimming());
+        assertTrue("Arrived after " + elapsed / 1000000 + " ms", elapsed <= SwimSimulation.SWIM_DURATION_NANOS + FRAME_NANOS);
+        float distance = (float) Math.hypot(swim.getX() - TARGET_X, swim.getY() - TARGET_Y);
+        assertTrue("Stopped " + distance + " px from the target", distance <= ARRIVAL_EPSILON);
+    }
+
+    /**
+     * 游动途中重新规划时新曲线起点的速度与重新规划前相同，不会每次都跳回减速曲线开头的最高速度
+     */
+    @Test
+    public void retargetKeepsSpeed() {
+        SwimSimulation swim = new SwimSimulation(new Random(1));
+        swim.reset(200, 300, 90);
+        swim.retarget(TARGET_X, TARGET_Y);
+        stepFrames(swim, 30);
+        // 第二次重新规划时上一段也是直接减速，速度应当完全连续
+        swim.retarget(TARGET_X + 300, TARGET_Y - 200);
+        stepFrames(swim, 20);
+
+        float before = stepFrames(swim, 1);
+        swim.retarget(TARGET_X - 200, TARGET_Y + 100);
+        float after = stepFrames(swim, 1);
+        assertTrue("Moved " + before + " px before the retarget and " + after + " px after",
+                after > before * 0.9f && after < before * 1.1f);
+    }
+
+    /**
+     * 推进若干帧，返回最后一帧移动的距离
+     */
+    private static float stepFrames(SwimSimulation swim, int frames) {
+        float moved = 0;
+        for (int i = 0; i < frames; i++) {
+            float x = swim.getX();
+            float y = swim.getY();
+            swim.step(FRAME_NANOS);
+            moved = (float) Math.hypot(swim.getX() - x, swim.getY() - y);
+        }
+        return moved;
+    }
+}
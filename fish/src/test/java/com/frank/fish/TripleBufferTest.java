@@ -0,0 +1,132 @@
+package com.frank.fish;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TripleBufferTest {
+
+    private static final int FISH_COUNT = 64;
+    private static final long PUBLISHES = 200000;
+
+    @Test
+    public void acquireReturnsLatestPublished() {
+        TripleBuffer<PoseSnapshot> buffer = new TripleBuffer<>(
+                new PoseSnapshot(), new PoseSnapshot(), new PoseSnapshot());
+        PoseSnapshot written = buffer.getWriteBuffer();
+        written.sequence = 1;
+        buffer.publish();
+        assertSame("acquire() should return the published buffer", written, buffer.acquire());
+        // 没有新发布时继续返回同一份
+        assertSame(written, buffer.acquire());
+        assertTrue("Producer must not write into the buffer being read", buffer.getWriteBuffer() != written);
+    }
+
+    /**
+     * 生产者把每一份快照的所有字段都写成同一个序号再发布，消费者同时不停地获取并检查：
+     * 同一份快照中的字段必须一致（没有读到写了一半的数据），序号也不能倒退
+     */
+    @Test
+    public void concurrentReadsNeverSeeTornSnapshots() throws InterruptedException {
+        final TripleBuffer<PoseSnapshot> buffer = new TripleBuffer<>(
+                newSnapshot(), newSnapshot(), newSnapshot());
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final long[] acquired = new long[2];
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long last = 0;
+                long distinct = 0;
+                long reads = 0;
+                while (last < PUBLISHES && failure.get() == null) {
+                    PoseSnapshot snapshot = buffer.acquire();
+                    reads++;
+                    long sequence = snapshot.sequence;
+                    if (sequence < last) {
+                        failure.set("Sequence went back from " + last + " to " + sequence);
+                        return;
+                    }
+                    if (sequence > last) {
+                        distinct++;
+                    }
+                    last = sequence;
+                    String torn = checkStamped(snapshot);
+                    if (torn != null) {
+                        failure.set(torn);
+                        return;
+                    }
+                }
+                acquired[0] = distinct;
+                acquired[1] = reads;
+            }
+        });
+        consumer.start();
+
+        for (long sequence = 1; sequence <= PUBLISHES && failure.get() == null; sequence++) {
+            stamp(buffer.getWriteBuffer(), sequence);
+            buffer.publish();
+        }
+        consumer.join();
+
+        assertNull(failure.get(), failure.get());
+        // 消费者应当确实与生产者交替拿到了很多份不同的快照，而不是只读到最后一份
+        assertTrue("Consumer only saw " + acquired[0] + " snapshots in " + acquired[1] + " reads",
+                acquired[0] > 1);
+    }
+
+    private static PoseSnapshot newSnapshot() {
+        PoseSnapshot snapshot = new PoseSnapshot();
+        snapshot.ensureCapacity(FISH_COUNT);
+        snapshot.count = FISH_COUNT;
+        return snapshot;
+    }
+
+    /**
+     * 所有字段都写成序号，序号不超过 2^24，float 可以精确表示
+     */
+    private static void stamp(PoseSnapshot snapshot, long sequence) {
+        float value = sequence;
+        for (int i = 0; i < FISH_COUNT; i++) {
+            snapshot.xs[i] = value;
+            snapshot.ys[i] = value;
+            snapshot.headings[i] = value;
+            snapshot.animatorValues[i] = value;
+            snapshot.frequencies[i] = value;
+            snapshot.finsValues[i] = value;
+        }
+        for (int i = 0, size = FISH_COUNT * PoseSnapshot.POINT_STRIDE; i < size; i++) {
+            snapshot.points[i] = value;
+        }
+        snapshot.computeNanos = sequence;
+        snapshot.sequence = sequence;
+    }
+
+    private static String checkStamped(PoseSnapshot snapshot) {
+        long sequence = snapshot.sequence;
+        if (sequence == 0) {
+            return null;
+        }
+        float value = sequence;
+        if (snapshot.computeNanos != sequence) {
+            return "computeNanos " + snapshot.computeNanos + " in snapshot " + sequence;
+        }
+        for (int i = 0; i < FISH_COUNT; i++) {
+            if (snapshot.xs[i] != value || snapshot.ys[i] != value || snapshot.headings[i] != value
+                    || snapshot.animatorValues[i] != value || snapshot.frequencies[i] != value
+                    || snapshot.finsValues[i] != value) {
+                return "Fish " + i + " is torn in snapshot " + sequence;
+            }
+        }
+        for (int i = 0, size = FISH_COUNT * PoseSnapshot.POINT_STRIDE; i < size; i++) {
+            if (snapshot.points[i] != value) {
+                return "Point " + i + " is " + snapshot.points[i] + " in snapshot " + sequence;
+            }
+        }
+        return null;
+    }
+}